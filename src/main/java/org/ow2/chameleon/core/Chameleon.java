@@ -27,8 +27,12 @@ import org.osgi.framework.launch.Framework;
 import org.ow2.chameleon.core.activators.*;
 import org.ow2.chameleon.core.hook.HookManager;
 import org.ow2.chameleon.core.services.Stability;
+import org.ow2.chameleon.core.services.StartupProfile;
+import org.ow2.chameleon.core.utils.BundleInstaller;
 import org.ow2.chameleon.core.utils.FrameworkManager;
 import org.ow2.chameleon.core.utils.LogbackUtil;
+import org.ow2.chameleon.core.utils.MonitoringEngine;
+import org.ow2.chameleon.core.utils.StartupProfiler;
 import org.ow2.chameleon.core.utils.jul.JulLogManager;
 import org.slf4j.Logger;
 
@@ -51,6 +55,11 @@ public class Chameleon {
      */
     public static final String CHAMELEON_BASEDIR = "chameleon.base";
 
+    /**
+     * The category of the startup phases recorded by the Chameleon instance itself.
+     */
+    private static final String PROFILE_CATEGORY = "chameleon";
+
     /**
      * The framework manager holding the OSGi framework instance.
      */
@@ -72,6 +81,11 @@ public class Chameleon {
      */
     private final HookManager hooks;
 
+    /**
+     * The profiler recording the startup phases.
+     */
+    private final StartupProfiler profiler = new StartupProfiler();
+
     /**
      * Creates a chameleon instance.
      *
@@ -86,18 +100,25 @@ public class Chameleon {
             System.setProperty("java.util.logging.manager", JulLogManager.class.getName());
         }
 
+        long begin = profiler.begin();
         hooks = new HookManager();
         hooks.load();
         hooks.fireInitializing();
+        profiler.end(PROFILE_CATEGORY, "hooks.initializing", begin);
 
-
+        begin = profiler.begin();
         ChameleonConfiguration configuration = new ChameleonConfiguration(basedir);
         configuration.setInteractiveModeEnabled(interactive);
         configuration.initialize(userProperties);
-        configuration.initFrameworkConfiguration();
+        profiler.end(PROFILE_CATEGORY, "configuration.initialize", begin);
 
+        begin = profiler.begin();
+        configuration.initFrameworkConfiguration();
+        profiler.end(PROFILE_CATEGORY, "configuration.framework", begin);
 
+        begin = profiler.begin();
         logger = initializeLoggingSystem(configuration);
+        profiler.end(PROFILE_CATEGORY, "logging", begin);
 
         initializeActivatorList(configuration);
 
@@ -117,16 +138,24 @@ public class Chameleon {
             System.setProperty("java.util.logging.manager", JulLogManager.class.getName());
         }
 
+        long begin = profiler.begin();
         hooks = new HookManager();
         hooks.load();
         hooks.fireInitializing();
+        profiler.end(PROFILE_CATEGORY, "hooks.initializing", begin);
 
-
+        begin = profiler.begin();
         configuration.setInteractiveModeEnabled(false);
         configuration.initialize(null);
+        profiler.end(PROFILE_CATEGORY, "configuration.initialize", begin);
+
+        begin = profiler.begin();
         configuration.initFrameworkConfiguration();
+        profiler.end(PROFILE_CATEGORY, "configuration.framework", begin);
 
+        begin = profiler.begin();
         logger = initializeLoggingSystem(configuration);
+        profiler.end(PROFILE_CATEGORY, "logging", begin);
 
         initializeActivatorList(configuration);
 
@@ -213,36 +242,56 @@ public class Chameleon {
                     "the " + Constants.CHAMELEON_PROPERTIES_FILE + " file.");
         }
 
-        activators.add(new LogActivator(logger));
-        activators.add(new CoreActivator(core, configuration.isInteractiveModeEnabled()));
+        activators.add(new LogActivator(logger, configuration.getInt(Constants.CHAMELEON_LOG_ASYNC_BUFFER_PROPERTY, 0)));
+        // Registered before the bundles are installed, to record the classes they load.
+        activators.add(new ClassPreloader(configuration.getRelativeFile(ClassPreloader.PROFILE_FILE),
+                configuration.getBoolean(Constants.CHAMELEON_CLASSES_RECORD_PROPERTY, false),
+                configuration.getBoolean(Constants.CHAMELEON_CLASSES_PRELOAD_PROPERTY, false),
+                configuration.getBoolean(Constants.CHAMELEON_CLASSES_LIST_PROPERTY, false)
+                        ? configuration.getRelativeFile(ClassPreloader.CLASS_LIST_FILE) : null));
+        int deploymentThreads = configuration.getInt(Constants.CHAMELEON_DEPLOYMENT_THREADS_PROPERTY,
+                BundleInstaller.DEFAULT_THREADS);
+        activators.add(new CoreActivator(core, configuration.isInteractiveModeEnabled(), deploymentThreads));
 
         // The main watcher.
-        DirectoryMonitor monitor = new DirectoryMonitor();
+        DirectoryMonitor monitor = new DirectoryMonitor(
+                configuration.getInt(Constants.CHAMELEON_MONITORING_THREADS_PROPERTY, MonitoringEngine.DEFAULT_THREADS),
+                configuration.getInt(Constants.CHAMELEON_DEPLOYERS_QUEUE_CAPACITY_PROPERTY,
+                        DeployerQueue.DEFAULT_CAPACITY),
+                DeployerQueue.Overflow.parse(configuration.get(Constants.CHAMELEON_DEPLOYERS_QUEUE_OVERFLOW_PROPERTY),
+                        DeployerQueue.Overflow.COALESCE));
         activators.add(monitor);
 
         boolean monitoringRuntime = configuration.getBoolean(Constants.CHAMELEON_RUNTIME_MONITORING_PROPERTY, false);
         boolean monitoringApplication = configuration.getBoolean(Constants.CHAMELEON_APPLICATION_MONITORING_PROPERTY, true);
         int monitoringPeriod = configuration.getInt(Constants.CHAMELEON_MONITORING_PERIOD_PROPERTY, 2000);
+        boolean monitoringNative = configuration.getBoolean(Constants.CHAMELEON_MONITORING_NATIVE_PROPERTY, false);
+        int quietPeriod = configuration.getInt(Constants.CHAMELEON_MONITORING_QUIET_PERIOD_PROPERTY, 0);
         boolean autoRefresh = configuration.getBoolean(Constants.CHAMELEON_AUTO_REFRESH, true);
+        int refreshWindow = configuration.getInt(Constants.CHAMELEON_AUTO_REFRESH_WINDOW, 0);
+        boolean persistManifests = configuration.getBoolean(Constants.CHAMELEON_MANIFEST_CACHE_PERSISTENT_PROPERTY,
+                true);
 
         if (monitoringRuntime) {
-            monitor.add(runtime, monitoringPeriod);
+            monitor.add(runtime, monitoringPeriod, monitoringNative, quietPeriod);
         } else {
             monitor.add(runtime, false);
         }
 
         if (monitoringApplication) {
-            monitor.add(application, monitoringPeriod);
+            monitor.add(application, monitoringPeriod, monitoringNative, quietPeriod);
         } else {
             monitor.add(application, false);
         }
 
         // The deployers
-        activators.add(new BundleDeployer(false, autoRefresh));
+        activators.add(new BundleDeployer(false, autoRefresh, deploymentThreads, refreshWindow,
+                persistManifests));
         activators.add(new ConfigDeployer());
 
         // Stability checker
-        activators.add(new StabilityComputation());
+        activators.add(new StabilityComputation(
+                configuration.getBoolean(Constants.CHAMELEON_STABILITY_PARALLEL_PROPERTY, false)));
     }
 
     /**
@@ -254,8 +303,11 @@ public class Chameleon {
      *                                            correctly.
      */
     public Chameleon start() throws BundleException {
+        long begin = profiler.begin();
         hooks.fireConfigured(manager.configuration());
+        profiler.end(PROFILE_CATEGORY, "hooks.configured", begin);
         manager.start();
+        writeStartupProfile();
         return this;
     }
 
@@ -274,12 +326,30 @@ public class Chameleon {
         }
         Stability stability = context().getService(reference);
 
-        if (! stability.waitForStability()) {
+        long begin = profiler.begin();
+        boolean stable = stability.waitForStability();
+        profiler.end(PROFILE_CATEGORY, "stability", begin);
+        // The startup ends with the stability.
+        profiler.complete();
+        writeStartupProfile();
+        if (! stable) {
             throw new IllegalStateException("Cannot reach stability");
         }
         return this;
     }
 
+    /**
+     * Writes the startup profile reports, if enabled.
+     */
+    private void writeStartupProfile() {
+        ChameleonConfiguration configuration = manager.configuration();
+        if (configuration.getBoolean(Constants.CHAMELEON_STARTUP_PROFILE_PROPERTY, true)) {
+            profiler.write(configuration.getRelativeFile(
+                    configuration.get(Constants.CHAMELEON_STARTUP_PROFILE_FILE_PROPERTY,
+                            Constants.DEFAULT_STARTUP_PROFILE_FILE)));
+        }
+    }
+
     /**
      * Stops the underlying framework.
      *
@@ -290,6 +360,7 @@ public class Chameleon {
      */
     public Chameleon stop() throws BundleException, InterruptedException {
         logger.info("Stopping Chameleon");
+        profiler.complete();
         manager.stop();
         logger.info("Chameleon stopped");
         hooks.fireShuttingDown();
@@ -306,6 +377,17 @@ public class Chameleon {
         return manager.get().getBundleContext();
     }
 
+    /**
+     * Retrieves the profile of the startup of this instance. The profile is also exposed as a
+     * {@link StartupProfile} service.
+     *
+     * @return the startup profile
+     * @since 1.10.8
+     */
+    public StartupProfile profile() {
+        return profiler;
+    }
+
     /**
      * Retrieves the underlying framework.
      * The framework must have been successfully started first.
@@ -23,6 +23,7 @@ import com.google.common.base.Joiner;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.ow2.chameleon.core.utils.JarScanner;
+import org.ow2.chameleon.core.utils.PackageScanCache;
 import org.ow2.chameleon.core.utils.Pckg;
 import org.ow2.chameleon.core.utils.StringUtils;
 
@@ -374,20 +375,26 @@ public class ChameleonConfiguration extends HashMap<String, String> {
         if (libs.isDirectory()) {
             // Retrieve all jar files
             Collection<File> jars = FileUtils.listFiles(libs, new String[]{"jar"}, true);
-            for (File file : jars) {
-                try {
-                    final Set<Pckg> scan = JarScanner.scan(file);
-                    if (scan != null) {
-                        // Check for null before adding.
-                        packages.addAll(scan);
-                    }
-                } catch (IOException e) {
-                    throw new IllegalArgumentException("Cannot extract packages from " + file.getAbsolutePath(), e);
-                }
+            // Unchanged jars are not scanned again when the cache is persistent.
+            PackageScanCache cache = JarScanner.getPackageScanCache();
+            File storage = null;
+            if (getBoolean(Constants.CHAMELEON_LIBS_CACHE_PROPERTY, true)) {
+                storage = new File(baseDirectory.getAbsoluteFile(), Constants.LIBS_CACHE_FILE);
+                cache.load(storage);
+            }
+            long misses = cache.getMissCount();
+            packages.addAll(cache.getPackages(jars, PackageScanCache.DEFAULT_THREADS));
+            if (storage != null && cache.getMissCount() > misses) {
+                cache.save(storage);
             }
         }
 
-        return Joiner.on(',').skipNulls().join(packages);
+        // Sort the clauses, so the result does not depend on the scan order.
+        Set<String> clauses = new TreeSet<String>();
+        for (Pckg pckg : packages) {
+            clauses.add(pckg.toExportClause());
+        }
+        return Joiner.on(',').join(clauses);
     }
 }
 
@@ -84,11 +84,113 @@ public class Constants {
      */
     public static final String CHAMELEON_MONITORING_PERIOD_PROPERTY = "chameleon.monitoring.period";
 
+    /**
+     * The property used to enable the file system notifications (instead of polling) to detect changes in monitored
+     * directories. If the file system does not support notifications, the directories are polled.
+     * Notifications are disabled by default.
+     */
+    public static final String CHAMELEON_MONITORING_NATIVE_PROPERTY = "chameleon.monitoring.native";
+
+    /**
+     * The property used to configure the number of threads shared by all monitored directories.
+     */
+    public static final String CHAMELEON_MONITORING_THREADS_PROPERTY = "chameleon.monitoring.threads";
+
+    /**
+     * The property used to configure the quiet period (in milliseconds) of monitored directories. File events are
+     * forwarded to the deployers once the file has not changed during this period. 0 (the default) disables it.
+     */
+    public static final String CHAMELEON_MONITORING_QUIET_PERIOD_PROPERTY = "chameleon.monitoring.quiet.period";
+
+    /**
+     * The property used to configure the capacity of the event queue of each deployer.
+     */
+    public static final String CHAMELEON_DEPLOYERS_QUEUE_CAPACITY_PROPERTY = "chameleon.deployers.queue.capacity";
+
+    /**
+     * The property used to configure the behavior of a full deployer event queue: {@literal coalesce} (the default)
+     * merges the next events until the deployer has processed an event, {@literal block} waits until the deployer
+     * has processed an event, {@literal discard} drops the event.
+     */
+    public static final String CHAMELEON_DEPLOYERS_QUEUE_OVERFLOW_PROPERTY = "chameleon.deployers.queue.overflow";
+
+    /**
+     * The property used to configure the number of threads used to install and start bundles in parallel.
+     */
+    public static final String CHAMELEON_DEPLOYMENT_THREADS_PROPERTY = "chameleon.deployment.threads";
+
+    /**
+     * The property used to enable the persistence of the manifest cache in the framework storage area.
+     */
+    public static final String CHAMELEON_MANIFEST_CACHE_PERSISTENT_PROPERTY = "chameleon.manifest.cache.persistent";
+
+    /**
+     * The property used to enable the concurrent execution of the stability checkers.
+     */
+    public static final String CHAMELEON_STABILITY_PARALLEL_PROPERTY = "chameleon.stability.parallel";
+
     /**
      * The property used to configure the auto-refresh of bundles after un-installations and updates.
      */
     public static final String CHAMELEON_AUTO_REFRESH = "chameleon.auto.refresh";
 
+    /**
+     * The property used to configure the time (in milliseconds) during which the refresh requests are merged into a
+     * single refresh operation.
+     */
+    public static final String CHAMELEON_AUTO_REFRESH_WINDOW = "chameleon.auto.refresh.window";
+
+    /**
+     * The property used to enable the startup profile reports, written when the framework is started and once the
+     * stability is reached.
+     */
+    public static final String CHAMELEON_STARTUP_PROFILE_PROPERTY = "chameleon.startup.profile";
+
+    /**
+     * The property used to configure the path of the startup profile reports, relative to the base directory and
+     * without extension (a {@code .json} and a {@code .csv} files are written).
+     */
+    public static final String CHAMELEON_STARTUP_PROFILE_FILE_PROPERTY = "chameleon.startup.profile.file";
+
+    /**
+     * The default path of the startup profile reports.
+     */
+    public static final String DEFAULT_STARTUP_PROFILE_FILE = "logs/chameleon-startup";
+
+    /**
+     * The property used to enable the persistence of the packages found in the jars of the {@literal libs}
+     * directory, so unchanged jars are not scanned again on the next execution.
+     */
+    public static final String CHAMELEON_LIBS_CACHE_PROPERTY = "chameleon.libs.cache";
+
+    /**
+     * The file, relative to the base directory, storing the packages found in the jars of the {@literal libs}
+     * directory.
+     */
+    public static final String LIBS_CACHE_FILE = "chameleon-libs.cache";
+
+    /**
+     * The property used to enable the recording of the classes loaded by the bundles until the stability is reached.
+     */
+    public static final String CHAMELEON_CLASSES_RECORD_PROPERTY = "chameleon.classes.record";
+
+    /**
+     * The property used to enable the preloading of the recorded classes, once the stability is reached.
+     */
+    public static final String CHAMELEON_CLASSES_PRELOAD_PROPERTY = "chameleon.classes.preload";
+
+    /**
+     * The property used to enable the generation of the list of the classes loaded from the launcher classpath,
+     * usable to create a class data sharing archive.
+     */
+    public static final String CHAMELEON_CLASSES_LIST_PROPERTY = "chameleon.classes.list";
+
+    /**
+     * The property used to configure the size of the ring buffer through which the OSGi log entries are dispatched
+     * asynchronously. {@literal 0} dispatches the entries synchronously.
+     */
+    public static final String CHAMELEON_LOG_ASYNC_BUFFER_PROPERTY = "chameleon.log.async.buffer";
+
     private Constants() {
         // Avoid direct instantiation
     }
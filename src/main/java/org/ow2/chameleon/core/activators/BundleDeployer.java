@@ -23,11 +23,17 @@ import org.osgi.framework.*;
 import org.osgi.framework.wiring.FrameworkWiring;
 import org.ow2.chameleon.core.services.AbstractDeployer;
 import org.ow2.chameleon.core.services.Deployer;
+import org.ow2.chameleon.core.services.FileSelector;
 import org.ow2.chameleon.core.utils.BundleHelper;
+import org.ow2.chameleon.core.utils.BundleInstaller;
+import org.ow2.chameleon.core.utils.BundleRefresher;
+import org.ow2.chameleon.core.utils.DeploymentIndex;
+import org.ow2.chameleon.core.utils.UnresolvedBundleTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.net.MalformedURLException;
 import java.util.*;
 
 /**
@@ -42,6 +48,22 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
      */
     public static final String REFERENCE_URL_PREFIX = "reference:";
 
+    /**
+     * The name of the deployment index file, stored in the framework storage area.
+     */
+    public static final String INDEX_FILE = "chameleon-deployment.index";
+
+    /**
+     * The name of the manifest cache file, stored in the framework storage area.
+     */
+    public static final String MANIFEST_CACHE_FILE = "chameleon-manifest.cache";
+
+    /**
+     * The selector of the jar files. The bundle detection, opening the jar file, is done in
+     * {@link #accept(java.io.File)} on the selected files only.
+     */
+    private static final FileSelector SELECTOR = FileSelector.extensions("jar");
+
     /**
      * Flag indicating whether we use the {@literal reference://} protocol.
      */
@@ -62,6 +84,42 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
      */
     private BundleContext context;
 
+    /**
+     * The number of threads used to install and start bundles.
+     */
+    private final int threads;
+
+    /**
+     * The installer used to install and start sets of bundles.
+     */
+    private BundleInstaller installer;
+
+    /**
+     * The time (in milliseconds) during which the refresh requests are merged.
+     */
+    private final long refreshWindow;
+
+    /**
+     * Whether the manifest cache is saved in the framework storage area.
+     */
+    private final boolean persistManifests;
+
+    /**
+     * The refresher used after un-installations and updates.
+     */
+    private BundleRefresher refresher;
+
+    /**
+     * The index of the deployed files, persisted with the framework cache. It is disabled when the cache is cleaned
+     * on startup.
+     */
+    private DeploymentIndex index = DeploymentIndex.disabled();
+
+    /**
+     * The bundles that cannot be started, indexed by their requirements.
+     */
+    private final UnresolvedBundleTracker unresolved = new UnresolvedBundleTracker();
+
     /**
      * The logger.
      */
@@ -73,8 +131,54 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
      * @param useReferences a boolean.
      */
     public BundleDeployer(boolean useReferences, boolean autoRefresh) {
+        this(useReferences, autoRefresh, BundleInstaller.DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates a bundle deployer.
+     *
+     * @param useReferences whether the bundles are installed using the {@literal reference:} protocol
+     * @param autoRefresh   whether bundles are refreshed after un-installations and updates
+     * @param threads       the number of threads used to install and start sets of bundles
+     * @since 1.10.8
+     */
+    public BundleDeployer(boolean useReferences, boolean autoRefresh, int threads) {
+        this(useReferences, autoRefresh, threads, 0);
+    }
+
+    /**
+     * Creates a bundle deployer.
+     *
+     * @param useReferences whether the bundles are installed using the {@literal reference:} protocol
+     * @param autoRefresh   whether bundles are refreshed after un-installations and updates
+     * @param threads       the number of threads used to install and start sets of bundles
+     * @param refreshWindow the time (in milliseconds) during which the refresh requests are merged, {@literal 0}
+     *                      to refresh immediately
+     * @since 1.10.8
+     */
+    public BundleDeployer(boolean useReferences, boolean autoRefresh, int threads, long refreshWindow) {
+        this(useReferences, autoRefresh, threads, refreshWindow, false);
+    }
+
+    /**
+     * Creates a bundle deployer.
+     *
+     * @param useReferences    whether the bundles are installed using the {@literal reference:} protocol
+     * @param autoRefresh      whether bundles are refreshed after un-installations and updates
+     * @param threads          the number of threads used to install and start sets of bundles
+     * @param refreshWindow    the time (in milliseconds) during which the refresh requests are merged, {@literal 0}
+     *                         to refresh immediately
+     * @param persistManifests whether the manifest cache is saved in the framework storage area, and reloaded on
+     *                         the next execution
+     * @since 1.10.8
+     */
+    public BundleDeployer(boolean useReferences, boolean autoRefresh, int threads, long refreshWindow,
+                          boolean persistManifests) {
         this.autoRefresh = autoRefresh;
         this.useReference = useReferences;
+        this.threads = threads;
+        this.refreshWindow = refreshWindow;
+        this.persistManifests = persistManifests;
     }
 
     /**
@@ -83,6 +187,30 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
     @Override
     public void start(BundleContext context) {
         this.context = context;
+        synchronized (this) {
+            installer = new BundleInstaller(context, threads);
+            refresher = new BundleRefresher(context, refreshWindow, new Runnable() {
+                @Override
+                public void run() {
+                    // The refreshed bundles may allow other bundles to start.
+                    synchronized (BundleDeployer.this) {
+                        tryToStartAllUnstartedBundles();
+                    }
+                }
+            });
+            if (Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT.equals(
+                    context.getProperty(Constants.FRAMEWORK_STORAGE_CLEAN))) {
+                // The installed bundles are never reused.
+                index = DeploymentIndex.disabled();
+            } else {
+                index = new DeploymentIndex(context.getDataFile(INDEX_FILE));
+                index.load();
+            }
+            File manifests = context.getDataFile(MANIFEST_CACHE_FILE);
+            if (persistManifests && manifests != null) {
+                BundleHelper.getManifestCache().load(manifests);
+            }
+        }
         context.registerService(Deployer.class, this, null);
     }
 
@@ -92,6 +220,26 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
     @Override
     public void stop(BundleContext context) {
         // The services are withdrawn automatically by the framework.
+        if (refresher != null) {
+            refresher.close();
+        }
+        synchronized (this) {
+            index.save();
+        }
+        if (persistManifests) {
+            File storage = context.getDataFile(MANIFEST_CACHE_FILE);
+            if (storage != null) {
+                BundleHelper.getManifestCache().save(storage);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FileSelector getSelector() {
+        return SELECTOR;
     }
 
     /**
@@ -116,14 +264,19 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
                 LOGGER.info("Updating bundle {} - {}", bundle.getSymbolicName(), file.getAbsoluteFile());
                 try {
                     bundle.update();
-                    refresh();
-                    // Then try to start other not started bundles.
-                    tryToStartUnstartedBundles(bundle);
+                    index.put(file, bundle);
+                    refresh(Collections.singleton(bundle));
                     // If the bundle we just update is not started, try to start it.
                     // Obviously, this action is not done on fragment.
                     if (bundle.getState() != Bundle.ACTIVE && !BundleHelper.isFragment(bundle)) {
-                        bundle.start();
+                        try {
+                            bundle.start();
+                        } catch (BundleException e) {
+                            LOGGER.error("Error during the starting of {}", bundle.getSymbolicName(), e);
+                        }
                     }
+                    // Then try to start the bundles waiting for the updated one.
+                    tryToStartUnstartedBundles(bundle);
                 } catch (BundleException e) {
                     LOGGER.error("Error during bundle update {} from {}", bundle.getSymbolicName(),
                             file.getAbsoluteFile(), e);
@@ -135,14 +288,9 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
             } else {
                 LOGGER.info("Installing bundle from {}", file.getAbsoluteFile());
                 try {
-                    Bundle bundle;
-                    if (useReference) {
-                        bundle = context.installBundle(REFERENCE_URL_PREFIX + file.toURI().toURL()
-                                .toExternalForm());
-                    } else {
-                        bundle = context.installBundle(file.toURI().toURL().toExternalForm());
-                    }
+                    Bundle bundle = install(file);
                     bundles.put(file, bundle);
+                    index.put(file, bundle);
                     if (!BundleHelper.isFragment(bundle)) {
                         LOGGER.info("Starting bundle {} - {}", bundle.getSymbolicName(), file.getAbsoluteFile());
                         bundle.start();
@@ -157,25 +305,195 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
     }
 
     /**
-     * Iterates over the set of bundles and try to start unstarted bundles.
+     * Tracks the given bundle if it is not started, and tries to start the unstarted bundles waiting for it.
      * This method is called when holding the monitor lock.
      *
      * @param bundle the installed bundle triggering this attempt.
      */
     private void tryToStartUnstartedBundles(Bundle bundle) {
-        for (Bundle b : bundles.values()) {
-            if (!bundle.equals(b) && b.getState() != Bundle.ACTIVE && !BundleHelper.isFragment(b)) {
-                LOGGER.debug("Trying to start bundle {} after having installed bundle {}", b.getSymbolicName(),
-                        bundle.getSymbolicName());
+        tryToStartUnstartedBundles(Collections.singleton(bundle));
+    }
+
+    /**
+     * Tracks the given bundles if they are not started, and tries to start the unstarted bundles whose requirements
+     * may be satisfied by these bundles. The other unstarted bundles are not started again, as their start would
+     * fail the same way.
+     * This method is called when holding the monitor lock.
+     *
+     * @param installed the installed or updated bundles triggering this attempt, they are not started by this
+     *                  method.
+     */
+    private void tryToStartUnstartedBundles(Collection<Bundle> installed) {
+        for (Bundle b : installed) {
+            unresolved.update(b);
+        }
+        for (Bundle b : unresolved.getCandidates(installed)) {
+            if (!installed.contains(b)) {
+                LOGGER.debug("Trying to start bundle {} after having installed bundles {}", b.getSymbolicName(),
+                        installed);
+                unresolved.start(b);
+            }
+        }
+    }
+
+    /**
+     * Tries to start all the unstarted bundles, for instance after a refresh.
+     * This method is called when holding the monitor lock.
+     */
+    private void tryToStartAllUnstartedBundles() {
+        for (Bundle b : unresolved.getBundles()) {
+            unresolved.start(b);
+        }
+    }
+
+    /**
+     * @return the tracker of the bundles that cannot be started, providing the start attempt metrics.
+     * @since 1.10.8
+     */
+    public UnresolvedBundleTracker getUnresolvedBundles() {
+        return unresolved;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All the changes are applied before starting the bundles: deleted bundles are uninstalled, changed bundles are
+     * updated and new bundles are installed (in parallel). Then, bundles are refreshed (once) if needed, resolved
+     * together, and started in dependency order. Finally, the other unstarted bundles are started if possible.
+     */
+    @Override
+    public void onFileBatch(List<File> created, List<File> changed, List<File> deleted) {
+        LOGGER.debug("File batch received: {} created, {} changed, {} deleted", created.size(), changed.size(),
+                deleted.size());
+
+        synchronized (this) {
+            List<Bundle> toRefresh = new ArrayList<Bundle>();
+            for (File file : deleted) {
+                Bundle bundle = bundles.remove(file);
+                index.remove(file);
+                BundleHelper.getManifestCache().remove(file);
+                if (bundle != null) {
+                    try {
+                        LOGGER.info("Uninstalling bundle {}", bundle.getSymbolicName());
+                        bundle.uninstall();
+                        unresolved.remove(bundle);
+                        toRefresh.add(bundle);
+                    } catch (BundleException e) {
+                        LOGGER.error("Error during the un-installation of {}", bundle.getSymbolicName(), e);
+                    }
+                }
+            }
+
+            List<Bundle> deployed = new ArrayList<Bundle>();
+            Map<File, String> toInstall = new LinkedHashMap<File, String>();
+            List<File> files = new ArrayList<File>(created);
+            files.addAll(changed);
+            for (File file : files) {
+                Bundle bundle = bundles.get(file);
                 try {
-                    b.start();
-                } catch (BundleException e) {
-                    LOGGER.debug("Failed to start bundle {} after having installed bundle {}",
-                            b.getSymbolicName(),
-                            bundle.getSymbolicName(), e);
+                    if (bundle != null) {
+                        LOGGER.info("Updating bundle {} - {}", bundle.getSymbolicName(), file.getAbsoluteFile());
+                        bundle.update();
+                        toRefresh.add(bundle);
+                        index.put(file, bundle);
+                        deployed.add(bundle);
+                    } else {
+                        toInstall.put(file, getLocation(file));
+                    }
+                } catch (Exception e) {
+                    // We catch any exception has it may be runtime exception (IllegalStateException).
+                    LOGGER.error("Error during the deployment of {}", file.getAbsoluteFile(), e);
+                }
+            }
+            deployed.addAll(install(toInstall));
+
+            index.save();
+
+            refresh(toRefresh);
+
+            installer.start(deployed);
+
+            if (!deployed.isEmpty() || !toRefresh.isEmpty()) {
+                tryToStartUnstartedBundles(deployed);
+            }
+        }
+    }
+
+    /**
+     * Gets the bundle installed from the given file during a previous execution, if the framework cache was
+     * retained.
+     * This method is called when holding the monitor lock.
+     *
+     * @param file the file
+     * @return the bundle, {@literal null} if the file is not indexed or if the bundle is not installed anymore.
+     */
+    private Bundle getIndexedBundle(File file) {
+        DeploymentIndex.Entry entry = index.get(file);
+        if (entry == null) {
+            return null;
+        }
+        Bundle bundle = context.getBundle(entry.getBundleId());
+        if (bundle == null || !entry.getLocation().equals(bundle.getLocation())) {
+            index.remove(file);
+            return null;
+        }
+        return bundle;
+    }
+
+    /**
+     * Uninstalls the bundles installed during a previous execution from files deleted since then.
+     * This method is called when holding the monitor lock.
+     *
+     * @return the uninstalled bundles.
+     */
+    private List<Bundle> uninstallBundlesOfDeletedFiles() {
+        List<Bundle> uninstalled = new ArrayList<Bundle>();
+        for (File file : index.getFiles()) {
+            if (!bundles.containsKey(file) && !file.exists()) {
+                Bundle bundle = getIndexedBundle(file);
+                index.remove(file);
+                if (bundle != null) {
+                    try {
+                        LOGGER.info("Uninstalling bundle {}, {} was deleted", bundle.getSymbolicName(),
+                                file.getAbsoluteFile());
+                        bundle.uninstall();
+                        unresolved.remove(bundle);
+                        uninstalled.add(bundle);
+                    } catch (BundleException e) {
+                        LOGGER.error("Error during the un-installation of {}", bundle.getSymbolicName(), e);
+                    }
                 }
             }
         }
+        return uninstalled;
+    }
+
+    /**
+     * Installs the bundle from the given file. If the {@literal reference:} protocol is enabled, the bundle is
+     * installed by reference.
+     *
+     * @param file the file
+     * @return the installed bundle
+     * @throws Exception if the bundle cannot be installed
+     */
+    private Bundle install(File file) throws Exception {
+        return context.installBundle(getLocation(file));
+    }
+
+    /**
+     * Computes the location of the bundle installed from the given file. If the {@literal reference:} protocol is
+     * enabled, the location uses it.
+     *
+     * @param file the file
+     * @return the location
+     * @throws MalformedURLException if the file cannot be converted to an URL
+     */
+    private String getLocation(File file) throws MalformedURLException {
+        if (useReference) {
+            return REFERENCE_URL_PREFIX + file.toURI().toURL().toExternalForm();
+        } else {
+            return file.toURI().toURL().toExternalForm();
+        }
     }
 
     /**
@@ -183,38 +501,75 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
      * <p>
      * It's a good practice to install all bundles and then start them.
      * This method cannot be interrupted.
+     * <p>
+     * When the framework cache is retained from a previous execution, the bundles already installed from unchanged
+     * files are reused, the bundles whose file has changed are updated, and the bundles whose file was deleted are
+     * uninstalled.
      */
     @Override
     public void open(Collection<File> files) {
         List<Bundle> toStart = new ArrayList<Bundle>();
-        for (File file : files) {
-            try {
-                Bundle bundle;
-                // Compute the url. if we use 'reference' prepend 'reference:'
-                if (useReference) {
-                    bundle = context.installBundle(REFERENCE_URL_PREFIX
-                            + file.toURI().toURL().toExternalForm());
-                } else {
-                    bundle = context.installBundle(file.toURI().toURL().toExternalForm());
-                }
-                bundles.put(file, bundle);
-                if (!BundleHelper.isFragment(bundle)) {
+        Map<File, String> toInstall = new LinkedHashMap<File, String>();
+        List<Bundle> toRefresh = new ArrayList<Bundle>();
+        synchronized (this) {
+            for (File file : files) {
+                try {
+                    Bundle bundle = getIndexedBundle(file);
+                    if (bundle == null) {
+                        toInstall.put(file, getLocation(file));
+                        continue;
+                    } else if (index.matches(file)) {
+                        // The entry records the current modification date (and digest if computed).
+                        LOGGER.debug("Reusing bundle {} installed from {}", bundle.getSymbolicName(),
+                                file.getAbsoluteFile());
+                    } else {
+                        LOGGER.info("Updating bundle {} - {}", bundle.getSymbolicName(), file.getAbsoluteFile());
+                        bundle.update();
+                        if (!index.get(file).isUpToDate(file)) {
+                            index.put(file, bundle);
+                        }
+                        toRefresh.add(bundle);
+                    }
+                    bundles.put(file, bundle);
                     toStart.add(bundle);
+                } catch (Exception e) {
+                    // We catch any exception has it may be runtime exception (IllegalStateException).
+                    LOGGER.error("Error during bundle installation of {}", file.getAbsoluteFile(), e);
                 }
-            } catch (Exception e) {
-                // We catch any exception has it may be runtime exception (IllegalStateException).
-                LOGGER.error("Error during bundle installation of {}", file.getAbsoluteFile(), e);
             }
+            toStart.addAll(install(toInstall));
+            toRefresh.addAll(uninstallBundlesOfDeletedFiles());
+            index.save();
         }
 
-        // toStart contains only regular bundles (not the fragments).
-        for (Bundle bundle : toStart) {
-            try {
-                bundle.start();
-            } catch (BundleException e) {
-                LOGGER.error("Error during the starting of {}", bundle.getSymbolicName(), e);
-            }
+        refresh(toRefresh);
+
+        // Fragments are not started.
+        installer.start(toStart);
+
+        synchronized (this) {
+            tryToStartUnstartedBundles(toStart);
+        }
+    }
+
+    /**
+     * Installs the bundles from the given files, in parallel, and registers them.
+     * This method is called when holding the monitor lock.
+     *
+     * @param locations the location of the bundles, by file
+     * @return the installed bundles
+     */
+    private List<Bundle> install(Map<File, String> locations) {
+        List<Bundle> installed = new ArrayList<Bundle>();
+        if (locations.isEmpty()) {
+            return installed;
+        }
+        for (Map.Entry<File, Bundle> entry : installer.install(locations).entrySet()) {
+            bundles.put(entry.getKey(), entry.getValue());
+            index.put(entry.getKey(), entry.getValue());
+            installed.add(entry.getValue());
         }
+        return installed;
     }
 
     /**
@@ -225,32 +580,51 @@ public class BundleDeployer extends AbstractDeployer implements BundleActivator
         Bundle bundle;
         synchronized (this) {
             bundle = bundles.remove(file);
+            index.remove(file);
+            BundleHelper.getManifestCache().remove(file);
         }
 
         if (bundle != null) {
             try {
                 LOGGER.info("Uninstalling bundle {}", bundle.getSymbolicName());
                 bundle.uninstall();
-                refresh();
+                synchronized (this) {
+                    unresolved.remove(bundle);
+                }
+                refresh(Collections.singleton(bundle));
             } catch (BundleException e) {
                 LOGGER.error("Error during the un-installation of {}", bundle.getSymbolicName(), e);
             }
         }
     }
 
+    /**
+     * Refreshes the bundles having pending removal revisions, and their dependents, if the auto-refresh is enabled.
+     */
     public void refresh() {
         if (autoRefresh) {
-            Bundle system = context.getBundle(0l);
-            FrameworkWiring wiring = system.adapt(FrameworkWiring.class);
-            LOGGER.debug("Refreshing bundles to cleanup stale references");
-            wiring.refreshBundles(null, new FrameworkListener() {
-                @Override
-                public void frameworkEvent(FrameworkEvent event) {
-                    if (event.getThrowable() != null) { //NOSONAR
-                        LOGGER.error("An error was detected while refreshing the bundles", event.getThrowable());
-                    }
-                }
-            });
+            refresh(context.getBundle(0l).adapt(FrameworkWiring.class).getRemovalPendingBundles());
         }
     }
+
+    /**
+     * Refreshes the given updated or uninstalled bundles, and their dependents, if the auto-refresh is enabled.
+     * Requests received within the refresh window are merged.
+     *
+     * @param changed the updated or uninstalled bundles
+     * @since 1.10.8
+     */
+    public void refresh(Collection<Bundle> changed) {
+        if (autoRefresh && !changed.isEmpty()) {
+            refresher.refresh(changed);
+        }
+    }
+
+    /**
+     * @return the refresher used by this deployer.
+     * @since 1.10.8
+     */
+    public BundleRefresher getRefresher() {
+        return refresher;
+    }
 }
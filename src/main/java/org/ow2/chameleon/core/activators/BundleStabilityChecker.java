@@ -22,23 +22,34 @@ package org.ow2.chameleon.core.activators;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.ow2.chameleon.core.services.AbstractStabilityChecker;
+import org.ow2.chameleon.core.services.ContextAwareStabilityChecker;
+import org.ow2.chameleon.core.services.StabilityCheckContext;
 import org.ow2.chameleon.core.services.StabilityResult;
 import org.ow2.chameleon.core.utils.BundleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Stability check verifying the bundle state.
  * <p>
  * It fails if at least one bundle does not reach its final state before a timeout. This timeout is impacted by the
- * "time.factor" system property.
+ * "time.factor" system property. When a {@link StabilityEngine} is given, the bundle states are checked again on
+ * bundle events only, instead of periodically.
  */
-public class BundleStabilityChecker extends AbstractStabilityChecker {
+public class BundleStabilityChecker extends AbstractStabilityChecker implements ContextAwareStabilityChecker {
+
+    /**
+     * The name of the checker.
+     */
+    public static final String NAME = "Bundle Stability";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BundleStabilityChecker.class);
 
     private final BundleContext context;
     private final int attempts;
+    private final StabilityEngine engine;
 
     /**
      * Creates a new instance of {@link BundleStabilityChecker}. It uses the default number of attempts.
@@ -58,6 +69,21 @@ public class BundleStabilityChecker extends AbstractStabilityChecker {
     public BundleStabilityChecker(BundleContext context, int max) {
         this.context = context;
         this.attempts = max;
+        this.engine = null;
+    }
+
+    /**
+     * Creates a new instance of {@link BundleStabilityChecker} relying on the bundle events received by the given
+     * engine instead of polling. The timeout is computed from the default number of attempts and grace period.
+     *
+     * @param context the bundle context
+     * @param engine  the stability engine
+     * @since 1.10.8
+     */
+    public BundleStabilityChecker(BundleContext context, StabilityEngine engine) {
+        this.context = context;
+        this.attempts = getDefaultNumberOfAttempts();
+        this.engine = engine;
     }
 
     /**
@@ -67,7 +93,7 @@ public class BundleStabilityChecker extends AbstractStabilityChecker {
      */
     @Override
     public String getName() {
-        return "Bundle Stability";
+        return NAME;
     }
 
     /**
@@ -87,29 +113,62 @@ public class BundleStabilityChecker extends AbstractStabilityChecker {
      */
     @Override
     public StabilityResult check() {
+        return check(new StabilityCheckContext(getDefaultGracePeriodInMillis(), attempts));
+    }
+
+    /**
+     * Tries to reach the stability criteria checked by the current checker, before the deadline of the given
+     * context.
+     *
+     * @param settings the settings of the current computation
+     * @return the stability result
+     * @since 1.10.8
+     */
+    @Override
+    public StabilityResult check(StabilityCheckContext settings) {
+        if (engine != null) {
+            return checkWithEngine(settings.getRemainingTimeInMillis());
+        }
         boolean bundleStability = getBundleStability(context);
         int count = 0;
-        while (!bundleStability && count < attempts) {
+        while (!bundleStability && count < settings.getNumberOfAttempts() && !settings.isExpired()) {
             // Wait first, then increment and then re-check.
-            grace();
+            grace(settings.getGracePeriodInMillis(), TimeUnit.MILLISECONDS);
             count++;
             bundleStability = getBundleStability(context);
         }
 
-        if (count == attempts) {
+        if (!bundleStability) {
             // Bundle stability not reached.
-            // We print the bundle state before returning the unstable result.
-            LOGGER.error("Bundle stability isn't reached after {} tries", attempts);
-            for (Bundle bundle : context.getBundles()) {
-                LOGGER.error("Bundle {} - {} -> {}", bundle.getBundleId(), bundle.getSymbolicName(),
-                        bundle.getState());
-            }
-            return StabilityResult.unstable("Cannot reach the bundle stability");
+            LOGGER.error("Bundle stability isn't reached after {} tries", count);
+            return unstable();
         }
 
         return StabilityResult.stable();
     }
 
+    private StabilityResult checkWithEngine(long timeout) {
+        try {
+            if (engine.awaitBundleStability(timeout)) {
+                return StabilityResult.stable();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return StabilityResult.unstable("Interrupted while waiting for the bundle stability");
+        }
+        LOGGER.error("Bundle stability isn't reached after {} ms", timeout);
+        return unstable();
+    }
+
+    private StabilityResult unstable() {
+        // We print the bundle state before returning the unstable result.
+        for (Bundle bundle : context.getBundles()) {
+            LOGGER.error("Bundle {} - {} -> {}", bundle.getBundleId(), bundle.getSymbolicName(),
+                    bundle.getState());
+        }
+        return StabilityResult.unstable("Cannot reach the bundle stability");
+    }
+
 
     /**
      * checks whether or not bundles have reach their 'final' state. The final state depends on the bundle type.
@@ -0,0 +1,449 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.apache.commons.io.FileUtils;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.hooks.weaving.WeavingHook;
+import org.osgi.framework.hooks.weaving.WovenClass;
+import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+import org.ow2.chameleon.core.services.AbstractStabilityChecker;
+import org.ow2.chameleon.core.services.Stability;
+import org.ow2.chameleon.core.services.StabilityCallback;
+import org.ow2.chameleon.core.services.StabilityChecker;
+import org.ow2.chameleon.core.services.StabilityResult;
+import org.ow2.chameleon.core.utils.BundleHelper;
+import org.ow2.chameleon.core.utils.FrameworkClassLoader;
+import org.ow2.chameleon.core.utils.MonitorThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the classes loaded by the bundles until the stability is reached, and preloads them on the next
+ * executions, once the stability is reached, so they are not loaded lazily by the first requests.
+ * <p>
+ * The classes are recorded with a {@link WeavingHook}, registered only while recording. The profile lists the
+ * classes by bundle symbolic name. The preloading is done by a single background thread, and only loads the
+ * classes (they are not initialized). Optionally, the classes loaded by the {@link FrameworkClassLoader} (the
+ * launcher classpath) are written to a class list usable to create a class data sharing archive
+ * ({@literal -XX:SharedClassListFile}).
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class ClassPreloader implements BundleActivator, WeavingHook,
+        ServiceTrackerCustomizer<Stability, Stability> {
+
+    /**
+     * The name of the class loading profile file.
+     */
+    public static final String PROFILE_FILE = "chameleon-classes.profile";
+
+    /**
+     * The name of the class list file.
+     */
+    public static final String CLASS_LIST_FILE = "chameleon-classes.lst";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassPreloader.class);
+
+    private static final String HEADER = "# Chameleon class loading profile: <bundle symbolic name> <tab> <class>";
+
+    /**
+     * The maximum number of stability computations before giving up.
+     */
+    static final int MAX_STABILITY_COMPUTATIONS = 3;
+
+    private final File profile;
+    private final File classList;
+    private final boolean record;
+    private final boolean preload;
+
+    /**
+     * The recorded classes, by bundle symbolic name.
+     */
+    private final ConcurrentMap<String, Set<String>> recorded = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * The classes to preload, read on start.
+     */
+    private Map<String, Set<String>> toPreload = Collections.emptyMap();
+
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final AtomicInteger preloaded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private BundleContext context;
+    private volatile ServiceRegistration<WeavingHook> registration;
+    private ServiceTracker<Stability, Stability> tracker;
+    private volatile ExecutorService executor;
+    private volatile boolean stopped;
+
+    /**
+     * Creates the class preloader.
+     *
+     * @param profile   the class loading profile file
+     * @param record    whether the classes loaded by the bundles until the stability are recorded to the profile
+     * @param preload   whether the classes listed in the profile are preloaded once the stability is reached
+     * @param classList the class list file written once the stability is reached, {@code null} to disable it
+     */
+    public ClassPreloader(File profile, boolean record, boolean preload, File classList) {
+        this.profile = profile;
+        this.record = record;
+        this.preload = preload;
+        this.classList = classList;
+    }
+
+    /**
+     * Reads the profile, starts the recording, and waits for the stability.
+     *
+     * @param context the bundle context
+     */
+    @Override
+    public void start(BundleContext context) {
+        this.context = context;
+        this.stopped = false;
+        FrameworkClassLoader loader = getFrameworkClassLoader();
+        if (classList == null && loader != null) {
+            loader.stopRecording();
+        }
+        if (!record && !preload && classList == null) {
+            return;
+        }
+        if (preload) {
+            toPreload = read(profile);
+        }
+        if (record) {
+            registration = context.registerService(WeavingHook.class, this, null);
+        }
+        executor = Executors.newSingleThreadExecutor(new MonitorThreadFactory("preload"));
+        tracker = new ServiceTracker<Stability, Stability>(context, Stability.class, this);
+        tracker.open();
+    }
+
+    /**
+     * Stops the recording and the preloading.
+     *
+     * @param context the bundle context
+     */
+    @Override
+    public void stop(BundleContext context) {
+        stopped = true;
+        BundleHelper.unregisterQuietly(registration);
+        registration = null;
+        if (tracker != null) {
+            tracker.close();
+            tracker = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        requested.set(false);
+    }
+
+    /**
+     * Records the woven class, nothing is changed.
+     *
+     * @param wovenClass the class being defined
+     */
+    @Override
+    public void weave(WovenClass wovenClass) {
+        Bundle bundle = wovenClass.getBundleWiring().getBundle();
+        String name = bundle.getSymbolicName();
+        if (name == null) {
+            return;
+        }
+        Set<String> classes = recorded.get(name);
+        if (classes == null) {
+            Set<String> set = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            classes = recorded.putIfAbsent(name, set);
+            if (classes == null) {
+                classes = set;
+            }
+        }
+        classes.add(wovenClass.getClassName());
+    }
+
+    /**
+     * Waits for the stability asynchronously, once the stability service is available.
+     *
+     * @param reference the stability service reference
+     * @return the service
+     */
+    @Override
+    public Stability addingService(ServiceReference<Stability> reference) {
+        Stability stability = context.getService(reference);
+        if (stability != null && requested.compareAndSet(false, true)) {
+            waitForStability(stability, 1);
+        }
+        return stability;
+    }
+
+    @Override
+    public void modifiedService(ServiceReference<Stability> reference, Stability service) {
+        // Nothing to do.
+    }
+
+    @Override
+    public void removedService(ServiceReference<Stability> reference, Stability service) {
+        context.ungetService(reference);
+    }
+
+    /**
+     * Waits for the stability asynchronously. The computation is started again while the platform is not stable,
+     * at most {@link #MAX_STABILITY_COMPUTATIONS} times.
+     *
+     * @param stability   the stability service
+     * @param computation the number of the computation, starting at 1
+     */
+    void waitForStability(final Stability stability, final int computation) {
+        // The default timeout already includes the time factor, it is used as is.
+        stability.waitForStability(AbstractStabilityChecker.getDefaultTimeoutInMillis(), TimeUnit.MILLISECONDS,
+                new StabilityCallback() {
+                    @Override
+                    public void stabilityComputed(boolean stable, Map<StabilityChecker, StabilityResult> results) {
+                        if (stopped) {
+                            return;
+                        }
+                        if (stable) {
+                            onStability();
+                        } else if (computation < MAX_STABILITY_COMPUTATIONS) {
+                            // Try again, the startup is not completed.
+                            waitForStability(stability, computation + 1);
+                        } else {
+                            onInstability(results);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Called when the stability has not been reached: stops the recording without writing the profile nor the class
+     * list, and does not preload the classes.
+     *
+     * @param results the results of the last computation
+     */
+    void onInstability(Map<StabilityChecker, StabilityResult> results) {
+        List<String> reasons = new ArrayList<String>();
+        for (Map.Entry<StabilityChecker, StabilityResult> entry : results.entrySet()) {
+            if (!entry.getValue().isStable) {
+                reasons.add(entry.getKey().getName() + ": " + entry.getValue().reason);
+            }
+        }
+        LOGGER.warn("Stability not reached after {} attempts {}, the class loading profile is not written and the " +
+                "classes are not preloaded", MAX_STABILITY_COMPUTATIONS, reasons);
+        BundleHelper.unregisterQuietly(registration);
+        registration = null;
+        recorded.clear();
+        FrameworkClassLoader loader = getFrameworkClassLoader();
+        if (loader != null) {
+            loader.stopRecording();
+        }
+    }
+
+    /**
+     * Called once the stability is reached: stops the recording, writes the profile and the class list, and
+     * preloads the classes.
+     */
+    void onStability() {
+        if (record) {
+            BundleHelper.unregisterQuietly(registration);
+            registration = null;
+            write(profile, recorded);
+            LOGGER.info("Class loading profile of {} bundles written to {}", recorded.size(),
+                    profile.getAbsolutePath());
+        }
+        FrameworkClassLoader loader = getFrameworkClassLoader();
+        if (classList != null && loader != null) {
+            writeClassList(classList, loader.getLoadedClasses());
+            loader.stopRecording();
+        }
+        ExecutorService pool = executor;
+        if (preload && pool != null && !toPreload.isEmpty()) {
+            final Map<String, Set<String>> classes = toPreload;
+            try {
+                pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        preload(classes);
+                    }
+                });
+            } catch (RejectedExecutionException e) { //NOSONAR
+                // Stopped.
+            }
+        }
+    }
+
+    /**
+     * Loads the given classes from the bundles having the given symbolic names. The classes that cannot be loaded,
+     * or whose bundle is not resolved, are ignored.
+     *
+     * @param classes the classes by bundle symbolic name
+     */
+    void preload(Map<String, Set<String>> classes) {
+        Map<String, Bundle> bundles = new HashMap<String, Bundle>();
+        for (Bundle bundle : context.getBundles()) {
+            if (bundle.getSymbolicName() != null && !bundles.containsKey(bundle.getSymbolicName())
+                    && (bundle.getState() & (Bundle.RESOLVED | Bundle.STARTING | Bundle.ACTIVE)) != 0
+                    && !BundleHelper.isFragment(bundle)) {
+                bundles.put(bundle.getSymbolicName(), bundle);
+            }
+        }
+        long begin = System.currentTimeMillis();
+        for (Map.Entry<String, Set<String>> entry : classes.entrySet()) {
+            Bundle bundle = bundles.get(entry.getKey());
+            if (bundle == null) {
+                continue;
+            }
+            for (String name : entry.getValue()) {
+                if (stopped || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    bundle.loadClass(name);
+                    preloaded.incrementAndGet();
+                } catch (Exception e) { //NOSONAR
+                    failed.incrementAndGet();
+                } catch (LinkageError e) { //NOSONAR
+                    failed.incrementAndGet();
+                }
+            }
+        }
+        LOGGER.info("{} classes preloaded in {} ms ({} failures)", preloaded.get(),
+                System.currentTimeMillis() - begin, failed.get());
+    }
+
+    private FrameworkClassLoader getFrameworkClassLoader() {
+        Bundle system = context.getBundle(0L);
+        if (system != null && system.getClass().getClassLoader() instanceof FrameworkClassLoader) {
+            return (FrameworkClassLoader) system.getClass().getClassLoader();
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of preloaded classes.
+     */
+    public int getPreloadedCount() {
+        return preloaded.get();
+    }
+
+    /**
+     * @return the number of classes that could not be preloaded.
+     */
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return the recorded classes, by bundle symbolic name.
+     */
+    public Map<String, Set<String>> getRecordedClasses() {
+        return Collections.<String, Set<String>>unmodifiableMap(recorded);
+    }
+
+    /**
+     * Reads a class loading profile.
+     *
+     * @param file the file
+     * @return the classes by bundle symbolic name, empty if the file does not exist or cannot be read
+     */
+    static Map<String, Set<String>> read(File file) {
+        Map<String, Set<String>> classes = new LinkedHashMap<String, Set<String>>();
+        if (!file.isFile()) {
+            return classes;
+        }
+        try {
+            for (String line : FileUtils.readLines(file, "UTF-8")) {
+                int tab = line.indexOf('\t');
+                if (line.startsWith("#") || tab <= 0 || tab == line.length() - 1) {
+                    continue;
+                }
+                String name = line.substring(0, tab);
+                Set<String> set = classes.get(name);
+                if (set == null) {
+                    set = new LinkedHashSet<String>();
+                    classes.put(name, set);
+                }
+                set.add(line.substring(tab + 1).trim());
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot read the class loading profile {}", file.getAbsolutePath(), e);
+        }
+        return classes;
+    }
+
+    /**
+     * Writes a class loading profile. The bundles and classes are sorted.
+     *
+     * @param file    the file
+     * @param classes the classes by bundle symbolic name
+     */
+    static void write(File file, Map<String, Set<String>> classes) {
+        List<String> lines = new ArrayList<String>();
+        lines.add(HEADER);
+        for (Map.Entry<String, Set<String>> entry : new TreeMap<String, Set<String>>(classes).entrySet()) {
+            for (String name : new TreeSet<String>(entry.getValue())) {
+                lines.add(entry.getKey() + "\t" + name);
+            }
+        }
+        writeLines(file, lines);
+    }
+
+    /**
+     * Writes a class list, using the format of {@literal -XX:SharedClassListFile} (internal names).
+     *
+     * @param file    the file
+     * @param classes the class names
+     */
+    static void writeClassList(File file, Collection<String> classes) {
+        List<String> lines = new ArrayList<String>();
+        for (String name : new TreeSet<String>(classes)) {
+            lines.add(name.replace('.', '/'));
+        }
+        writeLines(file, lines);
+    }
+
+    private static void writeLines(File file, List<String> lines) {
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            FileUtils.writeLines(tmp, "UTF-8", lines, "\n");
+            FileUtils.deleteQuietly(file);
+            FileUtils.moveFile(tmp, file);
+        } catch (IOException e) {
+            LOGGER.error("Cannot write {}", file.getAbsolutePath(), e);
+        } finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+}
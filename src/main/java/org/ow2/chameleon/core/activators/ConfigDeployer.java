@@ -32,8 +32,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -197,18 +199,55 @@ public class ConfigDeployer extends ExtensionBasedDeployer implements BundleActi
     @Override
     public void onFileDelete(File file) {
         synchronized (this) {
-            Configuration configuration = configurations.remove(file);
-            if (!configuration.equals(UnmanagedConfiguration.INSTANCE)) {
+            deleteConfiguration(file);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The configuration admin service is retrieved only once for the whole batch.
+     */
+    @Override
+    public void onFileBatch(List<File> created, List<File> changed, List<File> deleted) {
+        synchronized (this) {
+            for (File file : deleted) {
+                deleteConfiguration(file);
+            }
+            if (created.isEmpty() && changed.isEmpty()) {
+                return;
+            }
+            ConfigurationAdmin admin = getConfigurationAdmin();
+            List<File> files = new ArrayList<File>(created);
+            files.addAll(changed);
+            for (File file : files) {
                 try {
-                    LOGGER.info("Deleting configuration {}", configuration.getPid());
-                    configuration.delete();
+                    readAndApplyConfiguration(file, admin);
                 } catch (Exception e) {
-                    LOGGER.error("Cannot delete configuration from {}", configuration.getPid(), e);
+                    LOGGER.error("Cannot apply configuration from {}", file.getAbsoluteFile(), e);
                 }
             }
         }
     }
 
+    /**
+     * Deletes the configuration created from the given file.
+     * This method is called when holding the monitor lock.
+     *
+     * @param file the deleted file
+     */
+    private void deleteConfiguration(File file) {
+        Configuration configuration = configurations.remove(file);
+        if (configuration != null && !configuration.equals(UnmanagedConfiguration.INSTANCE)) {
+            try {
+                LOGGER.info("Deleting configuration {}", configuration.getPid());
+                configuration.delete();
+            } catch (Exception e) {
+                LOGGER.error("Cannot delete configuration from {}", configuration.getPid(), e);
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void serviceChanged(ServiceEvent event) {
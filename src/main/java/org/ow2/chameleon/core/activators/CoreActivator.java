@@ -20,18 +20,18 @@
 package org.ow2.chameleon.core.activators;
 
 import org.apache.commons.io.FileUtils;
-import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.BundleException;
 import org.ow2.chameleon.core.utils.BundleHelper;
+import org.ow2.chameleon.core.utils.BundleInstaller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.net.MalformedURLException;
 import java.util.Collection;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Core activator.
@@ -44,6 +44,7 @@ public class CoreActivator implements BundleActivator {
 
     private final boolean interactive;
     private final File directory;
+    private final int threads;
     private static final Logger LOGGER = LoggerFactory.getLogger(CoreActivator.class);
     private BundleContext context;
 
@@ -54,8 +55,21 @@ public class CoreActivator implements BundleActivator {
      * @param interactive flag enabling the interactive mode
      */
     public CoreActivator(File directory, boolean interactive) {
+        this(directory, interactive, BundleInstaller.DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates the core activator.
+     *
+     * @param directory   the core directory
+     * @param interactive flag enabling the interactive mode
+     * @param threads     the number of threads used to install and start the core bundles
+     * @since 1.10.8
+     */
+    public CoreActivator(File directory, boolean interactive, int threads) {
         this.directory = directory;
         this.interactive = interactive;
+        this.threads = threads;
     }
 
     /**
@@ -63,7 +77,7 @@ public class CoreActivator implements BundleActivator {
      */
     public void installBundles() {
         Collection<File> files = FileUtils.listFiles(directory, new String[]{"jar"}, true);
-        List<Bundle> toStart = new ArrayList<Bundle>();
+        Map<File, String> locations = new LinkedHashMap<File, String>();
         for (File file : files) {
             if (BundleHelper.isBundle(file)) {
                 // Skip the interactive shell if disabled
@@ -71,36 +85,17 @@ public class CoreActivator implements BundleActivator {
                     continue;
                 }
 
-                install(toStart, file);
-            }
-        }
-
-        for (Bundle bundle : toStart) {
-            try {
-                LOGGER.debug("Starting bundle {}", bundle.getSymbolicName());
-                bundle.start();
-            } catch (BundleException e) {
-                LOGGER.error("Error when start bundle {}", bundle.getSymbolicName(), e);
+                try {
+                    locations.put(file, "reference:" + file.toURI().toURL().toExternalForm());
+                } catch (MalformedURLException e) {
+                    LOGGER.error("Error when install bundle from {}", file.getAbsolutePath(), e);
+                }
             }
         }
-    }
 
-    /**
-     * Installs the given bundle.
-     *
-     * @param toStart the list to populate if the bundle must be started afterward
-     * @param file    the bundle file
-     */
-    private void install(List<Bundle> toStart, File file) {
-        try {
-            LOGGER.debug("Installing bundle from {}", file.getAbsolutePath());
-            Bundle bundle = context.installBundle("reference:" + file.toURI().toURL().toExternalForm());
-            if (!BundleHelper.isFragment(bundle)) {
-                toStart.add(bundle);
-            }
-        } catch (Exception e) {
-            LOGGER.error("Error when install bundle from {}", file.getAbsolutePath(), e);
-        }
+        // Bundles are installed in parallel, and started in dependency order (fragments are not started).
+        BundleInstaller installer = new BundleInstaller(context, threads);
+        installer.start(installer.install(locations).values());
     }
 
     private boolean isInteractiveShell(File file) {
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.apache.commons.io.FilenameUtils;
+import org.ow2.chameleon.core.services.Deployer;
+import org.ow2.chameleon.core.services.FileSelector;
+import org.ow2.chameleon.core.services.SelectiveDeployer;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * An immutable index of the deployers by selected extension. It retrieves the candidate deployers of a file
+ * without calling {@link Deployer#accept(java.io.File)}: only the deployers selecting the file's extension (or not
+ * restricting the extension) are checked against their {@link FileSelector}.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+final class DeployerIndex {
+
+    /**
+     * The indexed deployers, in registration order.
+     */
+    private final List<Deployer> deployers;
+
+    /**
+     * The position of each deployer in {@link #deployers}.
+     */
+    private final Map<Deployer, Integer> positions = new IdentityHashMap<Deployer, Integer>();
+
+    /**
+     * The selector of each deployer.
+     */
+    private final Map<Deployer, FileSelector> selectors = new IdentityHashMap<Deployer, FileSelector>();
+
+    /**
+     * The deployers restricting the extension, by extension.
+     */
+    private final Map<String, List<Deployer>> byExtension = new HashMap<String, List<Deployer>>();
+
+    /**
+     * The deployers not restricting the extension.
+     */
+    private final List<Deployer> others = new ArrayList<Deployer>();
+
+    /**
+     * Creates the index of the given deployers.
+     *
+     * @param deployers the deployers
+     */
+    DeployerIndex(List<Deployer> deployers) {
+        this.deployers = Collections.unmodifiableList(new ArrayList<Deployer>(deployers));
+        for (Deployer deployer : this.deployers) {
+            FileSelector selector = getSelector(deployer);
+            positions.put(deployer, positions.size());
+            selectors.put(deployer, selector);
+            Set<String> extensions = selector.getExtensions();
+            if (extensions.isEmpty()) {
+                others.add(deployer);
+            } else {
+                for (String extension : extensions) {
+                    List<Deployer> list = byExtension.get(extension);
+                    if (list == null) {
+                        list = new ArrayList<Deployer>();
+                        byExtension.put(extension, list);
+                    }
+                    list.add(deployer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the selector of the given deployer.
+     *
+     * @param deployer the deployer
+     * @return the deployer's selector, {@link FileSelector#ANY} if the deployer does not declare a selector.
+     */
+    static FileSelector getSelector(Deployer deployer) {
+        if (deployer instanceof SelectiveDeployer) {
+            FileSelector selector = ((SelectiveDeployer) deployer).getSelector();
+            if (selector != null) {
+                return selector;
+            }
+        }
+        return FileSelector.ANY;
+    }
+
+    /**
+     * Gets the indexed deployers.
+     *
+     * @return the deployers, in registration order
+     */
+    List<Deployer> getDeployers() {
+        return deployers;
+    }
+
+    /**
+     * Gets the deployers whose selector selects the given file. The deployers must still check the file using
+     * {@link Deployer#accept(java.io.File)}.
+     *
+     * @param file the file
+     * @return the candidate deployers, in registration order
+     */
+    List<Deployer> getCandidates(File file) {
+        List<Deployer> byName = byExtension.get(FilenameUtils.getExtension(file.getName()));
+        if (byName == null) {
+            byName = Collections.emptyList();
+        }
+        List<Deployer> candidates = new ArrayList<Deployer>(byName.size() + others.size());
+        // Merge the two lists, keeping the registration order.
+        int i = 0;
+        int j = 0;
+        while (i < byName.size() || j < others.size()) {
+            Deployer deployer;
+            if (j == others.size()
+                    || (i < byName.size() && positions.get(byName.get(i)) < positions.get(others.get(j)))) {
+                deployer = byName.get(i++);
+            } else {
+                deployer = others.get(j++);
+            }
+            if (selectors.get(deployer).matches(file)) {
+                candidates.add(deployer);
+            }
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.ow2.chameleon.core.utils.MonitorThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The queue of the file events to be delivered to a deployer. Each deployer has its own queue and its own thread,
+ * so a slow deployer neither delays the other deployers nor the monitoring of the directories. The events are
+ * delivered in order.
+ * <p>
+ * The queue is bounded. When it is full, the event is either merged with the next ones and handed over once there
+ * is room ({@link Overflow#COALESCE}, the default), handed over once there is room (blocking the monitoring thread,
+ * {@link Overflow#BLOCK}), or discarded ({@link Overflow#DISCARD}).
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class DeployerQueue {
+
+    /**
+     * The default capacity of the queues.
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * The time (in seconds) after which the thread of an idle queue is released.
+     */
+    private static final long KEEP_ALIVE = 60L;
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeployerQueue.class);
+
+    /**
+     * The behavior of a full queue.
+     */
+    public enum Overflow {
+        /**
+         * Keep the event aside, merge the next events into it, and hand it over once there is room in the queue.
+         * The submitter never waits. Only {@link CoalescingTask}s are kept, the other tasks are discarded.
+         */
+        COALESCE,
+        /**
+         * Wait until there is room in the queue. The submitter (the monitoring thread) is blocked meanwhile.
+         */
+        BLOCK,
+        /**
+         * Discard the event.
+         */
+        DISCARD;
+
+        /**
+         * Parses the given value (case insensitive).
+         *
+         * @param value        the value
+         * @param defaultValue the value returned if the given value is {@literal null} or invalid
+         * @return the overflow policy
+         */
+        public static Overflow parse(String value, Overflow defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) { //NOSONAR
+                LOGGER.warn("Invalid queue overflow policy '{}', using {}", value, defaultValue);
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * A task absorbing the tasks submitted after it when the queue is full.
+     */
+    public interface CoalescingTask extends Runnable {
+
+        /**
+         * Merges the given task, submitted after this one, into this task.
+         *
+         * @param next the next task
+         * @return {@literal true} if the task was merged, {@literal false} if it cannot be merged.
+         */
+        boolean merge(Runnable next);
+    }
+
+    private final String name;
+    private final int capacity;
+    private final Overflow overflow;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * The task kept aside while the queue is full ({@link Overflow#COALESCE}), {@literal null} if none.
+     * Guarded by {@link #backlogLock}.
+     */
+    private CoalescingTask backlog;
+
+    /**
+     * Whether the queue is shutting down, the executor being shut down once the backlog is handed over.
+     * Guarded by {@link #backlogLock}.
+     */
+    private boolean shuttingDown;
+
+    private final Object backlogLock = new Object();
+
+    /**
+     * Creates a queue.
+     *
+     * @param name     the name of the queue, used to name its thread
+     * @param capacity the maximum number of pending events
+     * @param overflow the behavior when the queue is full
+     */
+    public DeployerQueue(String name, int capacity, Overflow overflow) {
+        this.name = name;
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(capacity), new MonitorThreadFactory("deployer-" + name),
+                new OverflowHandler());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Enqueues the given task. When the queue is full and its policy is {@link Overflow#COALESCE}, the task is kept
+     * aside, or merged into the task kept aside.
+     *
+     * @param task the task
+     * @return {@literal true} if the task was enqueued or merged, {@literal false} if it was discarded.
+     */
+    public boolean submit(Runnable task) {
+        if (overflow != Overflow.COALESCE) {
+            return enqueue(task);
+        }
+        synchronized (backlogLock) {
+            if (shuttingDown) {
+                LOGGER.debug("Queue {} is shut down, event ignored", name);
+                return false;
+            }
+            if (backlog != null) {
+                // The queue is still full, the task is merged to keep the events in order.
+                if (backlog.merge(task)) {
+                    coalesced.incrementAndGet();
+                    return true;
+                }
+                return discard(task);
+            }
+            if (enqueue(task)) {
+                return true;
+            }
+            if (executor.isShutdown()) {
+                return false;
+            }
+            if (task instanceof CoalescingTask) {
+                LOGGER.debug("The event queue of {} is full, merging the next events", name);
+                // Counted as submitted when handed over.
+                backlog = (CoalescingTask) task;
+                return true;
+            }
+            return discard(task);
+        }
+    }
+
+    private boolean discard(Runnable task) {
+        discarded.incrementAndGet();
+        LOGGER.warn("The event queue of {} is full ({} events), discarding an event", name, capacity);
+        return false;
+    }
+
+    /**
+     * Hands the backlog over to the executor. Called by the thread of the queue when a task completes, so there is
+     * room in the queue: no other task is enqueued while there is a backlog.
+     */
+    private void handOver() {
+        synchronized (backlogLock) {
+            if (backlog != null && enqueue(backlog)) {
+                backlog = null;
+                if (shuttingDown) {
+                    executor.shutdown();
+                }
+            }
+        }
+    }
+
+    private boolean enqueue(final Runnable task) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) { //NOSONAR
+                        LOGGER.error("Error during the processing of an event by the {} queue", name, e);
+                    } finally {
+                        processed.incrementAndGet();
+                        if (overflow == Overflow.COALESCE) {
+                            handOver();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) { //NOSONAR
+            if (executor.isShutdown()) {
+                LOGGER.debug("Queue {} is shut down, event ignored", name);
+            }
+            return false;
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Stops the queue, after having processed the pending events (waiting at most the given time).
+     *
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return {@literal true} if all the events were processed, {@literal false} otherwise.
+     */
+    public boolean shutdown(long timeout) {
+        synchronized (backlogLock) {
+            shuttingDown = true;
+            if (backlog == null) {
+                executor.shutdown();
+            }
+        }
+        try {
+            return executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops the queue immediately, discarding the pending events.
+     */
+    public void discard() {
+        synchronized (backlogLock) {
+            shuttingDown = true;
+            backlog = null;
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the name of the queue.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the maximum number of pending events.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the behavior of the queue when it is full.
+     *
+     * @return the overflow policy
+     */
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * Gets the number of pending events.
+     *
+     * @return the number of events waiting to be delivered
+     */
+    public int getSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Gets the number of events enqueued since the creation of the queue.
+     *
+     * @return the number of enqueued events
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * Gets the number of events delivered since the creation of the queue.
+     *
+     * @return the number of delivered events
+     */
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /**
+     * Gets the number of events discarded because the queue was full.
+     *
+     * @return the number of discarded events
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    /**
+     * Gets the number of events merged into a previous event because the queue was full.
+     *
+     * @return the number of merged events
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @Override
+    public String toString() {
+        return "DeployerQueue{" + name + ", size=" + getSize() + "/" + capacity + ", processed=" + processed.get()
+                + ", discarded=" + discarded.get() + ", coalesced=" + coalesced.get() + "}";
+    }
+
+    /**
+     * Handles the tasks submitted when the queue is full.
+     */
+    private class OverflowHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Queue " + name + " is shut down");
+            }
+            if (overflow == Overflow.DISCARD) {
+                discarded.incrementAndGet();
+                LOGGER.warn("The event queue of {} is full ({} events), discarding an event", name, capacity);
+                throw new RejectedExecutionException("Queue " + name + " is full");
+            }
+            if (overflow == Overflow.COALESCE) {
+                // Kept aside by the submitter.
+                throw new RejectedExecutionException("Queue " + name + " is full");
+            }
+            LOGGER.debug("The event queue of {} is full, waiting", name);
+            try {
+                executor.getQueue().put(runnable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for room in the queue " + name, e);
+            }
+        }
+    }
+}
@@ -23,7 +23,6 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
-import org.apache.commons.io.monitor.FileAlterationMonitor;
 import org.apache.commons.io.monitor.FileAlterationObserver;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
@@ -31,15 +30,28 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
+import org.ow2.chameleon.core.services.BatchDeployer;
 import org.ow2.chameleon.core.services.Deployer;
+import org.ow2.chameleon.core.services.FileSelector;
+import org.ow2.chameleon.core.services.StartupProfile;
 import org.ow2.chameleon.core.services.Watcher;
-import org.ow2.chameleon.core.utils.MonitorThreadFactory;
+import org.ow2.chameleon.core.services.WatcherOptions;
+import org.ow2.chameleon.core.utils.AlterationMonitor;
+import org.ow2.chameleon.core.utils.DebouncedAlterationListener;
+import org.ow2.chameleon.core.utils.FileDigests;
+import org.ow2.chameleon.core.utils.MonitoringEngine;
+import org.ow2.chameleon.core.utils.NativeAlterationMonitor;
+import org.ow2.chameleon.core.utils.PollingAlterationMonitor;
+import org.ow2.chameleon.core.utils.StartupProfiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -49,22 +61,61 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * @author The OW2 Chameleon Team
  * @version $Id: 1.0.4 $Id
  */
-public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTrackerCustomizer<Deployer, Deployer> {
+public class DirectoryMonitor implements BundleActivator, WatcherOptions, ServiceTrackerCustomizer<Deployer, Deployer> {
 
     /**
      * A logger.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryMonitor.class);
     /**
-     * List of deployers.
+     * The maximum time (in milliseconds) to wait for the delivery of the pending events when stopping.
      */
-    protected final List<Deployer> deployers = new ArrayList<Deployer>();
+    private static final long QUEUE_SHUTDOWN_TIMEOUT = 10000L;
+    /**
+     * List of deployers. The list is a copy-on-write list, so the file events are dispatched to a snapshot of the
+     * deployers without locking.
+     */
+    protected final List<Deployer> deployers = new CopyOnWriteArrayList<Deployer>();
+    /**
+     * The lock of each deployer. It is held while the deployer is opened and while it is notified, so a deployer
+     * never receives file events before having been opened, and is notified by one thread at a time.
+     */
+    private final Map<Deployer, Object> deployerLocks = new IdentityHashMap<Deployer, Object>();
+    /**
+     * The event queue of each deployer.
+     */
+    private final Map<Deployer, DeployerQueue> queues = new IdentityHashMap<Deployer, DeployerQueue>();
+    /**
+     * The capacity of the deployer queues.
+     */
+    private final int queueCapacity;
+    /**
+     * The behavior of the deployer queues when full.
+     */
+    private final DeployerQueue.Overflow queueOverflow;
+    /**
+     * The deployers opened on each directory.
+     */
+    private final ConcurrentMap<File, Set<Deployer>> openedDeployers = new ConcurrentHashMap<File, Set<Deployer>>();
+    /**
+     * The engine running the monitoring of all directories.
+     */
+    private final MonitoringEngine engine;
+    /**
+     * The digests of the monitored files, used to ignore the changes not modifying the file content.
+     */
+    private final FileDigests digests = new FileDigests();
     /**
      * A monitor listening file changes.
      */
-    private Map<File, FileAlterationMonitor> monitors = new LinkedHashMap<File, FileAlterationMonitor>();
+    private Map<File, AlterationMonitor> monitors = new LinkedHashMap<File, AlterationMonitor>();
+    /**
+     * The listener of each monitored directory, guarded by {@link #lock}.
+     */
+    private final Map<File, FileMonitor> listeners = new HashMap<File, FileMonitor>();
     /**
-     * The lock avoiding concurrent modifications of the deployers map.
+     * The lock avoiding concurrent modifications of the monitored directories map. It is never held while calling
+     * the deployers.
      */
     private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     /**
@@ -72,15 +123,89 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
      */
     private ServiceTracker<Deployer, Deployer> tracker;
 
+    /**
+     * The index of the deployers, rebuilt when the deployers change.
+     */
+    private volatile DeployerIndex index;
+
     /**
      * The bundle context.
      */
     private BundleContext context;
 
+    /**
+     * The startup profile, recording the opening of the deployers.
+     */
+    private volatile StartupProfile profile;
+
     /**
      * The service registration.
      */
-    private ServiceRegistration<Watcher> reg;
+    private ServiceRegistration<?> reg;
+
+    /**
+     * Creates a directory monitor using the default number of monitoring threads.
+     */
+    public DirectoryMonitor() {
+        this(MonitoringEngine.DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates a directory monitor.
+     *
+     * @param threads the number of threads shared by all the monitored directories.
+     * @since 1.10.8
+     */
+    public DirectoryMonitor(int threads) {
+        this(threads, DeployerQueue.DEFAULT_CAPACITY, DeployerQueue.Overflow.COALESCE);
+    }
+
+    /**
+     * Creates a directory monitor.
+     *
+     * @param threads       the number of threads shared by all the monitored directories.
+     * @param queueCapacity the capacity of the event queue of each deployer.
+     * @param queueOverflow the behavior of the deployer queues when they are full.
+     * @since 1.10.8
+     */
+    public DirectoryMonitor(int threads, int queueCapacity, DeployerQueue.Overflow queueOverflow) {
+        this.engine = new MonitoringEngine(threads);
+        this.queueCapacity = queueCapacity;
+        this.queueOverflow = queueOverflow;
+    }
+
+    /**
+     * Gets the engine running the monitoring. It gives access to the monitoring metrics.
+     *
+     * @return the monitoring engine
+     * @since 1.10.8
+     */
+    public MonitoringEngine getMonitoringEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the number of file change events that were not forwarded to the deployers because the content of the
+     * file has not changed.
+     *
+     * @return the number of suppressed events
+     * @since 1.10.8
+     */
+    public long getSuppressedEventCount() {
+        return digests.getSuppressedCount();
+    }
+
+    /**
+     * Gets the event queues of the deployers. It gives access to the queue metrics.
+     *
+     * @return a snapshot of the queues, by deployer
+     * @since 1.10.8
+     */
+    public Map<Deployer, DeployerQueue> getDeployerQueues() {
+        synchronized (queues) {
+            return new IdentityHashMap<Deployer, DeployerQueue>(queues);
+        }
+    }
 
     /**
      * Acquires the write lock only and only if the write lock is not already held by the current thread.
@@ -138,6 +263,7 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
     @Override
     public void start(final BundleContext context) throws IOException {
         this.context = context;
+        this.profile = StartupProfiler.getProfile(context);
         LOGGER.info("Starting watcher service configured for {}", monitors.keySet());
         this.tracker = new ServiceTracker<Deployer, Deployer>(context, Deployer.class.getName(), this);
 
@@ -145,9 +271,7 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
         try {
             acquireWriteLockIfNotHeld();
 
-            // Arrives will be blocked until we release the write lock
-            this.tracker.open();
-            for (Map.Entry<File, FileAlterationMonitor> entry : monitors.entrySet()) {
+            for (Map.Entry<File, AlterationMonitor> entry : monitors.entrySet()) {
                 if (entry.getValue() != null) {
                     LOGGER.info("Starting file monitoring for {}", entry.getKey().getName());
                     try {
@@ -159,10 +283,15 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
                     LOGGER.debug("No file monitoring for {}", entry.getKey().getName());
                 }
             }
-            reg = context.registerService(Watcher.class, this, null);
+            reg = context.registerService(new String[]{Watcher.class.getName(), WatcherOptions.class.getName()}, this,
+                    null);
         } finally {
             releaseWriteLockIfHeld();
         }
+
+        // The deployers are opened outside of the lock. Events on the directories are dispatched to a deployer
+        // only once it has been opened.
+        this.tracker.open();
     }
 
     /**
@@ -174,8 +303,9 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
      */
     private List<File> getAcceptedFilesByTheDeployer(Collection<File> files, Deployer deployer) {
         List<File> accepted = new ArrayList<File>();
+        FileSelector selector = DeployerIndex.getSelector(deployer);
         for (File file : files) {
-            if (deployer.accept(file)) {
+            if (selector.matches(file) && deployer.accept(file)) {
                 accepted.add(file);
             }
         }
@@ -190,12 +320,11 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
         // To avoid concurrency, we take the write lock here.
         try {
             acquireWriteLockIfNotHeld();
-            this.tracker.close();
             if (reg != null) {
                 reg.unregister();
                 reg = null;
             }
-            for (Map.Entry<File, FileAlterationMonitor> entry : monitors.entrySet()) {
+            for (Map.Entry<File, AlterationMonitor> entry : monitors.entrySet()) {
                 if (entry.getValue() != null) {
                     LOGGER.debug("Stopping file monitoring of {}", entry.getKey().getAbsolutePath());
                     try {
@@ -211,6 +340,31 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
                 }
             }
             monitors.clear();
+            // The events of the directories are still delivered.
+            listeners.clear();
+        } finally {
+            releaseWriteLockIfHeld();
+        }
+
+        // No more events are detected, deliver the pending ones while the deployers are still tracked. The queues
+        // are drained outside of the lock, as the deployers may call the monitor when handling the events.
+        List<DeployerQueue> pending;
+        synchronized (queues) {
+            pending = new ArrayList<DeployerQueue>(queues.values());
+            queues.clear();
+        }
+        for (DeployerQueue queue : pending) {
+            if (!queue.shutdown(QUEUE_SHUTDOWN_TIMEOUT)) {
+                LOGGER.warn("The events of {} were not all delivered before the timeout", queue.getName());
+            }
+        }
+
+        try {
+            acquireWriteLockIfNotHeld();
+            this.tracker.close();
+            openedDeployers.clear();
+            digests.clear();
+            engine.shutdown();
             this.context = null;
         } finally {
             releaseWriteLockIfHeld();
@@ -228,17 +382,12 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
     @Override
     public Deployer addingService(ServiceReference<Deployer> reference) {
         Deployer deployer = context.getService(reference);
-        try {
-            acquireWriteLockIfNotHeld();
+        // File events dispatched to the deployer wait until it is opened.
+        synchronized (getDeployerLock(deployer)) {
             deployers.add(deployer);
-            for (File directory : monitors.keySet().toArray(new File[monitors.size()])) {
-                Collection<File> files = FileUtils.listFiles(directory, null, true);
-                List<File> accepted = getAcceptedFilesByTheDeployer(files, deployer);
-                LOGGER.info("Opening deployer {} for directory {}.", deployer, directory.getAbsolutePath());
-                deployer.open(accepted);
+            for (File directory : getDirectories()) {
+                open(deployer, directory, FileUtils.listFiles(directory, null, true));
             }
-        } finally {
-            releaseWriteLockIfHeld();
         }
 
         return deployer;
@@ -257,27 +406,129 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
      */
     @Override
     public void removedService(ServiceReference<Deployer> reference, Deployer deployer) {
-        try {
-            acquireWriteLockIfNotHeld();
-            deployers.remove(deployer);
-        } finally {
-            releaseWriteLockIfHeld();
+        deployers.remove(deployer);
+        synchronized (deployerLocks) {
+            deployerLocks.remove(deployer);
+        }
+        DeployerQueue queue;
+        synchronized (queues) {
+            queue = queues.remove(deployer);
+        }
+        if (queue != null) {
+            // The pending events are not delivered to a departing deployer.
+            queue.discard();
+        }
+        for (Set<Deployer> opened : openedDeployers.values()) {
+            opened.remove(deployer);
         }
     }
 
-    private List<Deployer> getDeployersAcceptingFile(File file) {
-        List<Deployer> depl = new ArrayList<Deployer>();
-        try {
-            acquireReadLockIfNotHeld();
-            for (Deployer deployer : deployers) {
-                if (deployer.accept(file)) {
-                    depl.add(deployer);
+    /**
+     * Gets the lock of the given deployer.
+     *
+     * @param deployer the deployer
+     * @return the object to synchronize on
+     */
+    private Object getDeployerLock(Deployer deployer) {
+        synchronized (deployerLocks) {
+            Object lock = deployerLocks.get(deployer);
+            if (lock == null) {
+                lock = new Object();
+                deployerLocks.put(deployer, lock);
+            }
+            return lock;
+        }
+    }
+
+    /**
+     * Gets the set of deployers opened on the given directory.
+     *
+     * @param directory the directory
+     * @return the set of deployers
+     */
+    private Set<Deployer> getOpenedDeployers(File directory) {
+        Set<Deployer> set = openedDeployers.get(directory);
+        if (set == null) {
+            set = Collections.newSetFromMap(new ConcurrentHashMap<Deployer, Boolean>());
+            Set<Deployer> previous = openedDeployers.putIfAbsent(directory, set);
+            if (previous != null) {
+                set = previous;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Gets the event queue of the given deployer.
+     *
+     * @param deployer the deployer
+     * @return the queue, {@literal null} if the deployer has left
+     */
+    private DeployerQueue getDeployerQueue(Deployer deployer) {
+        synchronized (queues) {
+            DeployerQueue queue = queues.get(deployer);
+            if (queue == null) {
+                if (!deployers.contains(deployer)) {
+                    return null;
                 }
+                String name = deployer.getClass().getSimpleName();
+                queue = new DeployerQueue(name.isEmpty() ? deployer.getClass().getName() : name, queueCapacity,
+                        queueOverflow);
+                queues.put(deployer, queue);
             }
+            return queue;
+        }
+    }
+
+    /**
+     * Gets a snapshot of the directories.
+     *
+     * @return the list of directories
+     */
+    private List<File> getDirectories() {
+        try {
+            acquireReadLockIfNotHeld();
+            return new ArrayList<File>(monitors.keySet());
         } finally {
             releaseReadLockIfHeld();
         }
-        return depl;
+    }
+
+    /**
+     * Opens the given deployer on the given directory. This method is called when holding the deployer lock.
+     *
+     * @param deployer  the deployer
+     * @param directory the directory
+     * @param files     the files of the directory
+     */
+    private void open(Deployer deployer, File directory, Collection<File> files) {
+        if (!deployers.contains(deployer) || !getOpenedDeployers(directory).add(deployer)) {
+            // Removed, or already opened on this directory by a concurrent call.
+            return;
+        }
+        List<File> accepted = getAcceptedFilesByTheDeployer(files, deployer);
+        LOGGER.info("Opening deployer {} for directory {}.", deployer, directory.getAbsolutePath());
+        try {
+            long begin = profile.begin();
+            deployer.open(accepted);
+            profile.end("deployer.open", deployer + " - " + directory.getName(), begin);
+        } catch (Exception e) { //NOSONAR
+            LOGGER.error("Error during the opening of {} for directory {}", deployer, directory.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Gets the index of the current deployers. The index is rebuilt when the set of deployers changes.
+     *
+     * @return the index of the deployers
+     */
+    private DeployerIndex getDeployerIndex() {
+        DeployerIndex current = index;
+        if (current == null || !current.getDeployers().equals(deployers)) {
+            current = new DeployerIndex(deployers);
+            index = current;
+        }
+        return current;
     }
 
     /**
@@ -319,7 +570,7 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
                 }
             } else {
                 // Check whether we are monitoring a parent directory
-                for (Map.Entry<File, FileAlterationMonitor> entry : monitors.entrySet()) {
+                for (Map.Entry<File, AlterationMonitor> entry : monitors.entrySet()) {
                     File dir = entry.getKey();
                     if (FilenameUtils.directoryContains(dir.getCanonicalPath(), directory.getCanonicalPath())
                             && entry.getValue() != null) {
@@ -346,6 +597,33 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
      */
     @Override
     public boolean add(File directory, long polling) {
+        return add(directory, polling, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Adds a directory to the watcher. If `polling` is not -1, the directory is monitored,
+     * otherwise only the initial provisioning is done. If `nativeNotifications` is true, the directory is monitored
+     * using the file system notifications, and polled only if these notifications are not supported.
+     */
+    @Override
+    public boolean add(File directory, long polling, boolean nativeNotifications) {
+        return add(directory, polling, nativeNotifications, 0L);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Adds a directory to the watcher. If `polling` is not -1, the directory is monitored,
+     * otherwise only the initial provisioning is done. If `quietPeriod` is greater than 0, the file events are
+     * forwarded to the deployers once the file has settled.
+     */
+    @Override
+    public boolean add(File directory, long polling, boolean nativeNotifications, long quietPeriod) {
+        AlterationMonitor monitor = null;
+        FileMonitor listener = null;
+        boolean started;
         try {
             acquireWriteLockIfNotHeld();
             final int status = isDirectoryAlreadyMonitored(directory);
@@ -369,15 +647,12 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
                 return false;
             }
 
+            // Are we started or not ?
+            started = context != null;
             if (polling == -1L) {
                 // Status = 3 -> add directory.
                 // Disable polling.
                 monitors.put(directory, null);
-                // Are we started or not ?
-                if (context != null) {
-                    openDeployers(directory);
-                }
-                return true;
             } else {
                 if (!directory.isDirectory()) {
                     LOGGER.info("Monitored directory {} not existing - creating directory", directory.getAbsolutePath());
@@ -388,46 +663,76 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
                 // if status is in {2, 3}, set the file alteration monitor
 
                 // We observe all files as deployers will filter out undesirable files.
-                final FileAlterationMonitor monitor = createFileAlterationMonitor(directory, polling);
+                // If we are started, the events are held back until the deployers are opened on the directory.
+                listener = new FileMonitor(directory, !started);
+                monitor = createAlterationMonitor(directory, polling, nativeNotifications, quietPeriod, listener);
+            }
+        } finally {
+            releaseWriteLockIfHeld();
+        }
 
-                // Are we started or not ?
-                if (context != null) {
-                    monitor.start();
-                    openDeployers(directory);
-                }
+        if (!started) {
+            return true;
+        }
 
-                return true;
+        // The deployers are opened outside of the lock.
+        try {
+            if (monitor != null) {
+                monitor.start();
             }
+            openDeployers(directory);
+            return true;
         } catch (Exception e) {
             LOGGER.error("Cannot start the file monitoring on {}", directory, e);
             return false;
         } finally {
-            releaseWriteLockIfHeld();
+            if (listener != null) {
+                listener.opened();
+            }
         }
     }
 
-    private FileAlterationMonitor createFileAlterationMonitor(File directory, long polling) {
+    private AlterationMonitor createAlterationMonitor(File directory, long polling, boolean nativeNotifications,
+                                                      long quietPeriod, FileMonitor listener) {
         FileAlterationObserver observer = new FileAlterationObserver(directory, TrueFileFilter.INSTANCE);
-        observer.addListener(new FileMonitor(directory));
-        LOGGER.debug("Creating file alteration monitor for " + directory.getAbsolutePath() + " with a polling period " +
-                "of " + polling);
-        final FileAlterationMonitor monitor = new FileAlterationMonitor(polling, observer);
-        monitor.setThreadFactory(new MonitorThreadFactory(directory));
+        DebouncedAlterationListener debounced = null;
+        if (quietPeriod > 0) {
+            LOGGER.debug("File events from " + directory.getAbsolutePath() + " are forwarded after a quiet period " +
+                    "of " + quietPeriod);
+            debounced = new DebouncedAlterationListener(engine, quietPeriod, listener);
+            observer.addListener(debounced);
+        } else {
+            observer.addListener(listener);
+        }
+        AlterationMonitor monitor;
+        if (nativeNotifications) {
+            LOGGER.debug("Creating native file alteration monitor for " + directory.getAbsolutePath() + " with a " +
+                    "fallback polling period of " + polling);
+            monitor = new NativeAlterationMonitor(engine, directory, polling, observer);
+        } else {
+            LOGGER.debug("Creating file alteration monitor for " + directory.getAbsolutePath() + " with a polling " +
+                    "period of " + polling);
+            monitor = new PollingAlterationMonitor(engine, directory, polling, observer);
+        }
+        if (debounced != null) {
+            monitor = new DebouncedMonitor(monitor, debounced);
+        }
         monitors.put(directory, monitor);
+        listeners.put(directory, listener);
         return monitor;
     }
 
     /**
-     * Open the deployers on the given directory.
+     * Open the deployers on the given directory. Each deployer is opened while holding its lock.
      *
      * @param directory the directory
      */
     private void openDeployers(File directory) {
         Collection<File> files = FileUtils.listFiles(directory, null, true);
         for (Deployer deployer : deployers) {
-            List<File> accepted = getAcceptedFilesByTheDeployer(files, deployer);
-            LOGGER.info("Opening deployer {} for directory {}.", deployer, directory.getAbsolutePath());
-            deployer.open(accepted);
+            synchronized (getDeployerLock(deployer)) {
+                open(deployer, directory, files);
+            }
         }
     }
 
@@ -438,9 +743,40 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
      */
     @Override
     public boolean removeAndStopIfNeeded(File directory) {
+        boolean locked = lock.isWriteLockedByCurrentThread();
+        if (!remove(directory)) {
+            return false;
+        }
+        if (locked) {
+            // The deployers may call the monitor while being notified, waiting for them could deadlock.
+            return true;
+        }
+        // The events of the directory are not delivered anymore, wait for the deliveries in progress.
+        for (Deployer deployer : deployers) {
+            synchronized (getDeployerLock(deployer)) {
+                LOGGER.debug("Deployer {} not handling the events from {} anymore", deployer, directory);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given directory and stops its monitoring. The events of the directory not delivered yet are
+     * dropped.
+     *
+     * @param directory the directory
+     * @return {@literal true} if the directory was monitored, {@literal false} otherwise.
+     */
+    private boolean remove(File directory) {
         try {
             acquireWriteLockIfNotHeld();
-            FileAlterationMonitor monitor = monitors.remove(directory);
+            AlterationMonitor monitor = monitors.remove(directory);
+            FileMonitor listener = listeners.remove(directory);
+            if (listener != null) {
+                listener.remove();
+            }
+            openedDeployers.remove(directory);
+            digests.removeAll(directory);
             if (monitor != null) {
                 try {
                     monitor.stop();
@@ -459,68 +795,402 @@ public class DirectoryMonitor implements BundleActivator, Watcher, ServiceTracke
         }
     }
 
+    /**
+     * A monitor dropping the pending events of its debounced listener when stopped.
+     */
+    private static class DebouncedMonitor implements AlterationMonitor {
+
+        private final AlterationMonitor monitor;
+        private final DebouncedAlterationListener listener;
+
+        private DebouncedMonitor(AlterationMonitor monitor, DebouncedAlterationListener listener) {
+            this.monitor = monitor;
+            this.listener = listener;
+        }
+
+        @Override
+        public void start() throws Exception {
+            monitor.start();
+        }
+
+        @Override
+        public void stop() throws Exception {
+            try {
+                monitor.stop();
+            } finally {
+                listener.cancel();
+            }
+        }
+    }
+
+    /**
+     * The files created, changed and deleted during a check of a directory.
+     */
+    private static final class Changes {
+
+        private final List<File> created;
+        private final List<File> changed;
+        private final List<File> deleted;
+
+        private Changes(List<File> created, List<File> changed, List<File> deleted) {
+            this.created = created;
+            this.changed = changed;
+            this.deleted = deleted;
+        }
+    }
+
+    /**
+     * Listens the file events of a directory and dispatches them to the deployers. Events detected during a check
+     * of the directory are collected and dispatched together when the check completes: deployers implementing
+     * {@link org.ow2.chameleon.core.services.BatchDeployer} receive all of them at once, while the other deployers
+     * receive them one by one. Change events not modifying the content of the file are ignored. The events are
+     * delivered asynchronously, by the {@link DeployerQueue} of each deployer.
+     */
     private class FileMonitor extends FileAlterationListenerAdaptor {
 
         private final File directory;
 
+        /**
+         * The files created, changed and deleted during the current check, {@literal null} outside a check.
+         * Checks of a directory do not overlap.
+         */
+        private List<File> created;
+        private List<File> changed;
+        private List<File> deleted;
+
+        /**
+         * The changes detected before the deployers were opened on the directory, {@literal null} once they are
+         * opened. Guarded by {@link #gate}.
+         */
+        private List<Changes> pending;
+
+        /**
+         * The lock serializing the dispatching of the changes of this directory.
+         */
+        private final Object gate = new Object();
+
+        /**
+         * Whether the directory has been removed. The events of a removed directory are dropped, including the ones
+         * already queued.
+         */
+        private volatile boolean removed;
+
         /**
          * Creates a new file monitor notified whenever a file from the given directory is created, updated, or deleted.
          *
          * @param directory the directory
+         * @param opened    whether the deployers are already opened on the directory. If not, the changes are held
+         *                  back until {@link #opened()} is called.
          */
-        public FileMonitor(File directory) {
+        public FileMonitor(File directory, boolean opened) {
             this.directory = directory;
+            if (!opened) {
+                pending = new ArrayList<Changes>();
+            }
+        }
+
+        /**
+         * Notifies the monitor that the deployers have been opened on the directory. The changes held back are
+         * dispatched.
+         */
+        public void opened() {
+            synchronized (gate) {
+                List<Changes> changes = pending;
+                pending = null;
+                if (changes != null) {
+                    for (Changes change : changes) {
+                        dispatchToDeployers(change.created, change.changed, change.deleted);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Notifies the monitor that the directory has been removed.
+         */
+        public void remove() {
+            removed = true;
+        }
+
+        @Override
+        public void onStart(FileAlterationObserver observer) {
+            created = new ArrayList<File>();
+            changed = new ArrayList<File>();
+            deleted = new ArrayList<File>();
         }
 
         @Override
         public void onFileCreate(File file) {
             LOGGER.info("File " + file + " created in " + directory);
-            List<Deployer> depl = getDeployersAcceptingFile(file);
-
-            // Callback called outside the protected region.
-            LOGGER.debug("Deployer handling creation of " + file.getName() + " : " + depl);
-            for (Deployer deployer : depl) {
-                try {
-                    deployer.onFileCreate(file);
-                } catch (Exception e) { //NOSONAR
-                    LOGGER.error("Error during the management of {} (creation) by {}",
-                            file.getAbsolutePath(), deployer, e);
-                }
+            // The digest is computed on the first change only.
+            digests.remove(file);
+            if (created == null) {
+                dispatch(Collections.singletonList(file), Collections.<File>emptyList(),
+                        Collections.<File>emptyList());
+            } else {
+                created.add(file);
             }
         }
 
         @Override
         public void onFileChange(File file) {
+            if (!file.exists()) {
+                // Deleted while the directory was checked, the deletion is reported by the next check.
+                LOGGER.debug("File " + file + " from " + directory + " deleted while being checked");
+                return;
+            }
+            if (!digests.hasChanged(file)) {
+                LOGGER.debug("File " + file + " from " + directory + " touched, but its content has not changed");
+                return;
+            }
             LOGGER.info("File " + file + " from " + directory + " changed");
+            if (changed == null) {
+                dispatch(Collections.<File>emptyList(), Collections.singletonList(file),
+                        Collections.<File>emptyList());
+                // Read the file once the change is handed to the deployers, not before.
+                digests.updateIfMissing(file);
+            } else {
+                changed.add(file);
+            }
+        }
 
-            List<Deployer> depl = getDeployersAcceptingFile(file);
+        @Override
+        public void onFileDelete(File file) {
+            LOGGER.info("File " + file + " deleted from " + directory);
+            digests.remove(file);
+            if (deleted == null) {
+                dispatch(Collections.<File>emptyList(), Collections.<File>emptyList(),
+                        Collections.singletonList(file));
+            } else {
+                deleted.add(file);
+            }
+        }
 
-            LOGGER.debug("Deployers handling change in " + file.getName() + " : " + depl);
-            for (Deployer deployer : depl) {
-                try {
-                    deployer.onFileChange(file);
-                } catch (Exception e) { //NOSONAR
-                    LOGGER.error("Error during the management of {} (change) by {}",
-                            file.getAbsolutePath(), deployer, e);
+        @Override
+        public void onStop(FileAlterationObserver observer) {
+            if (created != null && (!created.isEmpty() || !changed.isEmpty() || !deleted.isEmpty())) {
+                dispatch(created, changed, deleted);
+                // Read the changed files once the changes are handed to the deployers, not before.
+                for (File file : changed) {
+                    digests.updateIfMissing(file);
+                }
+            }
+            created = null;
+            changed = null;
+            deleted = null;
+        }
+
+        private void dispatch(List<File> created, List<File> changed, List<File> deleted) {
+            if (removed) {
+                LOGGER.debug("Directory {} removed, the changes are ignored", directory);
+                return;
+            }
+            synchronized (gate) {
+                if (pending != null) {
+                    LOGGER.debug("Deployers not opened yet on {}, holding back the changes", directory);
+                    pending.add(new Changes(created, changed, deleted));
+                } else {
+                    dispatchToDeployers(created, changed, deleted);
+                }
+            }
+        }
+
+        private void dispatchToDeployers(List<File> created, List<File> changed, List<File> deleted) {
+            DeployerIndex deployers = getDeployerIndex();
+            Map<Deployer, List<File>> c = getAcceptedFilesByDeployer(deployers, created);
+            Map<Deployer, List<File>> u = getAcceptedFilesByDeployer(deployers, changed);
+            Map<Deployer, List<File>> d = getAcceptedFilesByDeployer(deployers, deleted);
+
+            // Callbacks called outside the protected region.
+            for (Deployer deployer : deployers.getDeployers()) {
+                if (!c.containsKey(deployer) && !u.containsKey(deployer) && !d.containsKey(deployer)) {
+                    continue;
                 }
+                dispatch(deployer, get(c, deployer), get(u, deployer), get(d, deployer));
+            }
+        }
+
+        /**
+         * Computes the files accepted by each deployer. Only the candidate deployers of a file are asked whether
+         * they accept it.
+         *
+         * @param deployers the deployer index
+         * @param files     the files
+         * @return the accepted files by deployer, deployers accepting no files are not in the map.
+         */
+        private Map<Deployer, List<File>> getAcceptedFilesByDeployer(DeployerIndex deployers, List<File> files) {
+            if (files.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<Deployer, List<File>> accepted = new IdentityHashMap<Deployer, List<File>>();
+            for (File file : files) {
+                for (Deployer deployer : deployers.getCandidates(file)) {
+                    if (deployer.accept(file)) {
+                        List<File> list = accepted.get(deployer);
+                        if (list == null) {
+                            list = new ArrayList<File>();
+                            accepted.put(deployer, list);
+                        }
+                        list.add(file);
+                    }
+                }
+            }
+            return accepted;
+        }
+
+        private List<File> get(Map<Deployer, List<File>> files, Deployer deployer) {
+            List<File> list = files.get(deployer);
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            return list;
+        }
+
+        private void dispatch(Deployer deployer, List<File> c, List<File> u, List<File> d) {
+            // The events are delivered by the queue of the deployer, in order.
+            DeployerQueue queue = getDeployerQueue(deployer);
+            if (queue == null) {
+                LOGGER.debug("Deployer {} has left, events ignored", deployer);
+                return;
+            }
+            queue.submit(new FileEvents(deployer, this, c, u, d));
+        }
+    }
+
+    /**
+     * Delivers file events to a deployer. Called by the queue of the deployer, while holding the deployer lock.
+     *
+     * @param deployer the deployer
+     * @param c        the created files
+     * @param u        the changed files
+     * @param d        the deleted files
+     */
+    private void deliver(Deployer deployer, List<File> c, List<File> u, List<File> d) {
+        if (deployer instanceof BatchDeployer) {
+            LOGGER.debug("Deployer {} handling the creation of {}, the change of {} and the deletion of {}",
+                    deployer, c, u, d);
+            try {
+                ((BatchDeployer) deployer).onFileBatch(c, u, d);
+            } catch (Exception e) { //NOSONAR
+                LOGGER.error("Error during the management of the files {}, {} and {} by {}", c, u, d, deployer, e);
+            }
+        } else {
+            dispatchOneByOne(deployer, c, u, d);
+        }
+    }
+
+    private void dispatchOneByOne(Deployer deployer, List<File> created, List<File> changed,
+                                  List<File> deleted) {
+        for (File file : deleted) {
+            LOGGER.debug("Deployer {} handling deletion of {}", deployer, file.getName());
+            try {
+                deployer.onFileDelete(file);
+            } catch (Exception e) {  //NOSONAR
+                LOGGER.error("Error during the management of {} (deletion) by {}",
+                        file.getAbsolutePath(), deployer, e);
+            }
+        }
+        for (File file : created) {
+            LOGGER.debug("Deployer {} handling creation of {}", deployer, file.getName());
+            try {
+                deployer.onFileCreate(file);
+            } catch (Exception e) { //NOSONAR
+                LOGGER.error("Error during the management of {} (creation) by {}",
+                        file.getAbsolutePath(), deployer, e);
+            }
+        }
+        for (File file : changed) {
+            LOGGER.debug("Deployer {} handling change in {}", deployer, file.getName());
+            try {
+                deployer.onFileChange(file);
+            } catch (Exception e) { //NOSONAR
+                LOGGER.error("Error during the management of {} (change) by {}",
+                        file.getAbsolutePath(), deployer, e);
+            }
+        }
+    }
+
+    /**
+     * The file events to be delivered to a deployer. When the queue of the deployer is full, the next events are
+     * merged file by file, so a file is notified once with its latest state: a file created then changed is only
+     * created, a file created then deleted is not notified, a file changed then deleted is only deleted. The events
+     * of the directories removed in the meantime are dropped.
+     */
+    private final class FileEvents implements DeployerQueue.CoalescingTask {
+
+        private final Deployer deployer;
+        private final Set<File> created;
+        private final Set<File> changed;
+        private final Set<File> deleted;
+        /**
+         * The listener of the directory of each file.
+         */
+        private final Map<File, FileMonitor> sources = new HashMap<File, FileMonitor>();
+
+        private FileEvents(Deployer deployer, FileMonitor source, List<File> created, List<File> changed,
+                           List<File> deleted) {
+            this.deployer = deployer;
+            this.created = new LinkedHashSet<File>(created);
+            this.changed = new LinkedHashSet<File>(changed);
+            this.deleted = new LinkedHashSet<File>(deleted);
+            for (File file : this.created) {
+                sources.put(file, source);
+            }
+            for (File file : this.changed) {
+                sources.put(file, source);
+            }
+            for (File file : this.deleted) {
+                sources.put(file, source);
             }
         }
 
         @Override
-        public void onFileDelete(File file) {
-            LOGGER.info("File " + file + " deleted from " + directory);
+        public boolean merge(Runnable next) {
+            if (!(next instanceof FileEvents) || ((FileEvents) next).deployer != deployer) {
+                return false;
+            }
+            FileEvents events = (FileEvents) next;
+            sources.putAll(events.sources);
+            // In the order of the delivery.
+            for (File file : events.deleted) {
+                if (!created.remove(file)) {
+                    // Known by the deployer.
+                    changed.remove(file);
+                    deleted.add(file);
+                }
+            }
+            created.addAll(events.created);
+            for (File file : events.changed) {
+                if (!created.contains(file)) {
+                    changed.add(file);
+                }
+            }
+            return true;
+        }
 
-            List<Deployer> depl = getDeployersAcceptingFile(file);
+        @Override
+        public void run() {
+            // Wait until the deployer is opened, if it is being opened. The lock fences the removal of a directory.
+            synchronized (getDeployerLock(deployer)) {
+                List<File> c = getFilesFromMonitoredDirectories(created);
+                List<File> u = getFilesFromMonitoredDirectories(changed);
+                List<File> d = getFilesFromMonitoredDirectories(deleted);
+                if (!c.isEmpty() || !u.isEmpty() || !d.isEmpty()) {
+                    deliver(deployer, c, u, d);
+                }
+            }
+        }
 
-            LOGGER.debug("Deployer handling deletion of " + file.getName() + " : " + depl);
-            for (Deployer deployer : depl) {
-                try {
-                    deployer.onFileDelete(file);
-                } catch (Exception e) {  //NOSONAR
-                    LOGGER.error("Error during the management of {} (deletion) by {}",
-                            file.getAbsolutePath(), deployer, e);
+        private List<File> getFilesFromMonitoredDirectories(Set<File> files) {
+            List<File> list = new ArrayList<File>(files.size());
+            for (File file : files) {
+                if (sources.get(file).removed) {
+                    LOGGER.debug("Directory of {} removed, the event is dropped", file);
+                } else {
+                    list.add(file);
                 }
             }
+            return list;
         }
     }
 }
@@ -25,6 +25,9 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.ow2.chameleon.core.services.AbstractStabilityChecker;
+import org.ow2.chameleon.core.services.ContextAwareStabilityChecker;
+import org.ow2.chameleon.core.services.DependentStabilityChecker;
+import org.ow2.chameleon.core.services.StabilityCheckContext;
 import org.ow2.chameleon.core.services.StabilityResult;
 import org.ow2.chameleon.core.utils.BundleHelper;
 import org.slf4j.Logger;
@@ -33,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -41,7 +45,8 @@ import java.util.concurrent.TimeUnit;
  * <p>
  * It checks that there are not service that have appeared or disappeared on a time window.
  */
-public class IPojoProcessingStabilityChecker extends AbstractStabilityChecker {
+public class IPojoProcessingStabilityChecker extends AbstractStabilityChecker
+        implements DependentStabilityChecker, ContextAwareStabilityChecker {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(IPojoProcessingStabilityChecker.class);
 
@@ -61,6 +66,16 @@ public class IPojoProcessingStabilityChecker extends AbstractStabilityChecker {
         return "iPOJO Processing Stability";
     }
 
+    /**
+     * The checker is executed once the bundles have reached their final state.
+     *
+     * @return the bundle stability checker name
+     */
+    @Override
+    public Collection<String> getDependencies() {
+        return Collections.singletonList(BundleStabilityChecker.NAME);
+    }
+
     /**
      * Gets the checker priority. Low priorities are executed first.
      *
@@ -78,30 +93,42 @@ public class IPojoProcessingStabilityChecker extends AbstractStabilityChecker {
      */
     @Override
     public StabilityResult check() {
+        return check(StabilityCheckContext.defaults());
+    }
+
+    /**
+     * Tries to reach the stability criteria checked by the current checker, before the deadline of the given
+     * context.
+     *
+     * @param settings the settings of the current computation
+     * @return the stability result
+     * @since 1.10.8
+     */
+    @Override
+    public StabilityResult check(StabilityCheckContext settings) {
         int count = 0;
-        int attempts = getDefaultNumberOfAttempts();
+        int attempts = settings.getNumberOfAttempts();
+        boolean emptiness = false;
         try {
             Collection<ServiceReference<QueueService>> refs = context.getServiceReferences(QueueService.class, null);
             List<Object> queues = new ArrayList<Object>();
             for (ServiceReference<QueueService> ref : refs) {
                 queues.add(context.getService(ref));
             }
-            boolean emptiness = false;
 
-            while (!emptiness && count < attempts) {
-                emptiness = areAllQueuesEmpty(queues);
-                if (!emptiness) {
-                    grace(attempts, TimeUnit.MILLISECONDS);
-                }
+            emptiness = areAllQueuesEmpty(queues);
+            while (!emptiness && count < attempts && !settings.isExpired()) {
+                grace(settings.getGracePeriodInMillis(), TimeUnit.MILLISECONDS);
                 count++;
+                emptiness = areAllQueuesEmpty(queues);
             }
 
         } catch (InvalidSyntaxException e) { //NOSONAR
             // Cannot happen, filter is null
         }
 
-        if (count == attempts) {
-            LOGGER.error("iPOJO processing queues are not empty after {} tries", attempts);
+        if (!emptiness) {
+            LOGGER.error("iPOJO processing queues are not empty after {} tries", count);
             return StabilityResult.unstable("iPOJO Processing Queues are not empty");
         }
         return StabilityResult.stable();
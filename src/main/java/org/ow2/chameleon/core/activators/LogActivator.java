@@ -24,11 +24,21 @@ import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogListener;
 import org.osgi.service.log.LogReaderService;
 import org.osgi.service.log.LogService;
+import org.ow2.chameleon.core.utils.MonitorThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Starts the logging support.
+ * <p>
+ * The OSGi log entries are dispatched to the Chameleon logger backend, either directly from the thread notifying the
+ * log listeners, or, when a buffer size is given, through a bounded ring buffer consumed by a dedicated thread. In the
+ * latter case, the entries arriving when the buffer is full are dropped (and counted) rather than blocking the
+ * framework.
  *
  * @author The OW2 Chameleon Team
  * @version $Id: 1.0.4 $Id
@@ -36,11 +46,38 @@ import org.slf4j.LoggerFactory;
 public class LogActivator implements LogListener,
         BundleActivator, ServiceListener {
 
+    /**
+     * The maximum number of entries dispatched by the consumer thread in one batch.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * The time given to the consumer thread to dispatch the pending entries when the activator is stopped, in
+     * milliseconds.
+     */
+    private static final long STOP_TIMEOUT = 2000;
+
     /**
      * The Chameleon Logger.
      * The logger instance comes from the Chameleon launcher.
      */
     private final Logger logger; //NOSONAR
+    /**
+     * The loggers, by bundle symbolic name.
+     */
+    private final ConcurrentMap<String, Logger> loggers = new ConcurrentHashMap<String, Logger>();
+    /**
+     * The ring buffer, {@literal null} if the entries are dispatched synchronously.
+     */
+    private final LogRingBuffer buffer;
+    /**
+     * The number of entries dispatched to the logger backend.
+     */
+    private final AtomicLong dispatched = new AtomicLong();
+    /**
+     * The thread consuming the ring buffer.
+     */
+    private Thread consumer;
     /**
      * The Log Service Service Reference.
      */
@@ -51,12 +88,29 @@ public class LogActivator implements LogListener,
     private BundleContext context;
 
     /**
-     * Creates a log activator.
+     * Creates a log activator dispatching the log entries synchronously.
      *
      * @param logger the chameleon logger
      */
     public LogActivator(Logger logger) {
+        this(logger, 0);
+    }
+
+    /**
+     * Creates a log activator.
+     *
+     * @param logger     the chameleon logger
+     * @param bufferSize the size of the ring buffer used to dispatch the log entries asynchronously, {@literal 0} to
+     *                   dispatch them synchronously
+     * @since 1.10.8
+     */
+    public LogActivator(Logger logger, int bufferSize) {
         this.logger = logger;
+        if (bufferSize > 0) {
+            buffer = new LogRingBuffer(bufferSize);
+        } else {
+            buffer = null;
+        }
     }
 
     /**
@@ -78,88 +132,156 @@ public class LogActivator implements LogListener,
         logService = ref;
     }
 
+    /**
+     * @return the number of log entries dropped because the ring buffer was full.
+     * @since 1.10.8
+     */
+    public long getDroppedCount() {
+        if (buffer == null) {
+            return 0;
+        }
+        return buffer.getDroppedCount();
+    }
+
+    /**
+     * @return the number of log entries waiting in the ring buffer.
+     * @since 1.10.8
+     */
+    public int getBacklog() {
+        if (buffer == null) {
+            return 0;
+        }
+        return buffer.getBacklog();
+    }
+
+    /**
+     * @return the number of log entries dispatched to the logger backend.
+     * @since 1.10.8
+     */
+    public long getDispatchedCount() {
+        return dispatched.get();
+    }
+
     /**
      * A message were logged in the log service.
-     * The log entry is dispatched to the Chameleon logger backend.
+     * The log entry is dispatched to the Chameleon logger backend, unless its level is disabled.
      *
      * @param le the log entry
      * @see org.osgi.service.log.LogListener#logged(org.osgi.service.log.LogEntry)
      */
     public void logged(LogEntry le) {
-        String message = le.getMessage();
+        // Use the logger named after the symbolic name of the bundle logging the message.
+        Logger log = getLogger(le.getBundle());
+        int level = le.getLevel();
+        if (!isEnabled(log, level)) {
+            return;
+        }
+
+        // Once the activator is stopped, the buffer is closed and the entries are dispatched synchronously.
+        if (buffer == null || !buffer.offer(log, level, le.getMessage(), le.getException(), le.getServiceReference())) {
+            dispatch(log, level, le.getMessage(), le.getException(), le.getServiceReference());
+        }
+    }
+
+    private Logger getLogger(Bundle bundle) {
+        if (bundle == null || bundle.getSymbolicName() == null) {
+            return this.logger;
+        }
+        String name = bundle.getSymbolicName();
+        Logger log = loggers.get(name);
+        if (log == null) {
+            log = LoggerFactory.getLogger(name);
+            Logger previous = loggers.putIfAbsent(name, log);
+            if (previous != null) {
+                log = previous;
+            }
+        }
+        return log;
+    }
 
-        // Create a new logger based on the symbolic name of the bundle logging the message.
-        Logger log = this.logger;
-        if (le.getBundle() != null) {
-            log = LoggerFactory.getLogger(le.getBundle().getSymbolicName());
+    private static boolean isEnabled(Logger logger, int level) {
+        switch (level) {
+            case LogService.LOG_DEBUG:
+                return logger.isDebugEnabled();
+            case LogService.LOG_INFO:
+                return logger.isInfoEnabled();
+            case LogService.LOG_WARNING:
+                return logger.isWarnEnabled();
+            case LogService.LOG_ERROR:
+                return logger.isErrorEnabled();
+            default:
+                // Cannot happen
+                return false;
         }
+    }
 
-        message = enhanceMessage(le, message);
+    private void dispatch(Logger log, int level, String message, Throwable exception, ServiceReference reference) {
+        String msg = enhanceMessage(reference, message);
 
-        switch (le.getLevel()) {
+        switch (level) {
             case LogService.LOG_DEBUG:
-                debug(le, message, log);
+                debug(exception, msg, log);
                 break;
             case LogService.LOG_INFO:
-                info(le, message, log);
+                info(exception, msg, log);
                 break;
             case LogService.LOG_WARNING:
-                warn(le, message, log);
+                warn(exception, msg, log);
                 break;
             case LogService.LOG_ERROR:
-                error(le, message, log);
+                error(exception, msg, log);
                 break;
             default:
                 // Cannot happen
                 break;
         }
-
+        dispatched.incrementAndGet();
     }
 
-    private void error(LogEntry le, String message, Logger logger) {
-        if (le.getException() != null) {
-            logger.error(message, le.getException());
+    private void error(Throwable exception, String message, Logger logger) {
+        if (exception != null) {
+            logger.error(message, exception);
         } else {
             logger.error(message);
         }
     }
 
-    private void warn(LogEntry le, String message, Logger logger) {
-        if (le.getException() != null) {
-            logger.warn(message, le.getException());
+    private void warn(Throwable exception, String message, Logger logger) {
+        if (exception != null) {
+            logger.warn(message, exception);
         } else {
             logger.warn(message);
         }
     }
 
-    private void info(LogEntry le, String message, Logger logger) {
-        if (le.getException() != null) {
-            logger.info(message, le.getException());
+    private void info(Throwable exception, String message, Logger logger) {
+        if (exception != null) {
+            logger.info(message, exception);
         } else {
             logger.info(message);
         }
     }
 
-    private void debug(LogEntry le, String message, Logger logger) {
-        if (le.getException() != null) {
-            logger.debug(message, le.getException());
+    private void debug(Throwable exception, String message, Logger logger) {
+        if (exception != null) {
+            logger.debug(message, exception);
         } else {
             logger.debug(message);
         }
     }
 
-    private String enhanceMessage(LogEntry le, String message) {
-        if (le.getServiceReference() != null) {
-            if (le.getServiceReference().getProperty(
+    private String enhanceMessage(ServiceReference reference, String message) {
+        if (reference != null) {
+            if (reference.getProperty(
                     Constants.SERVICE_PID) != null) {
                 return message
                         + " [ServicePID="
-                        + le.getServiceReference().getProperty(
+                        + reference.getProperty(
                         Constants.SERVICE_PID) + "]";
             } else {
                 return message
                         + " [ServiceID="
-                        + le.getServiceReference().getProperty(
+                        + reference.getProperty(
                         Constants.SERVICE_ID) + "]";
             }
         } else {
@@ -167,6 +289,29 @@ public class LogActivator implements LogListener,
         }
     }
 
+    /**
+     * Dispatches the entries of the ring buffer until the buffer is closed and empty.
+     */
+    private void consume() {
+        LogRingBuffer.Entry[] batch = LogRingBuffer.newEntries(BATCH_SIZE);
+        try {
+            int count;
+            while ((count = buffer.drainTo(batch, 100)) >= 0) {
+                for (int i = 0; i < count; i++) {
+                    LogRingBuffer.Entry entry = batch[i];
+                    try {
+                        dispatch(entry.logger, entry.level, entry.message, entry.exception, entry.reference);
+                    } catch (RuntimeException e) { //NOSONAR
+                        logger.error("Cannot dispatch a log entry", e);
+                    }
+                    entry.clear();
+                }
+            }
+        } catch (InterruptedException e) {  //NOSONAR
+            logger.warn("The log dispatcher has been interrupted, {} entries are not dispatched", buffer.getBacklog());
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -179,6 +324,17 @@ public class LogActivator implements LogListener,
     public void start(BundleContext bc) throws Exception {
         synchronized (this) {
             context = bc;
+            if (buffer != null && consumer == null) {
+                buffer.open();
+                consumer = new MonitorThreadFactory("log").newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        consume();
+                    }
+                });
+                consumer.setDaemon(true);
+                consumer.start();
+            }
             // Try to get a log reader service
             context.addServiceListener(this, "(" + Constants.OBJECTCLASS + "="
                     + LogReaderService.class.getName() + ")");
@@ -210,6 +366,27 @@ public class LogActivator implements LogListener,
                 }
             }
         }
+        stopConsumer();
+    }
+
+    /**
+     * Stops the consumer thread, once the pending entries are dispatched, or after a bounded wait.
+     */
+    private void stopConsumer() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = consumer;
+            consumer = null;
+        }
+        if (buffer != null) {
+            buffer.close();
+        }
+        if (thread != null) {
+            thread.join(STOP_TIMEOUT);
+            if (thread.isAlive()) {
+                thread.interrupt();
+            }
+        }
     }
 
     /**
@@ -0,0 +1,228 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded ring buffer of log entries, written by the log dispatch threads and read by a single consumer thread.
+ * <p>
+ * The slots are preallocated, and entries are copied in and out, so logging does not allocate. When the buffer is
+ * full, the new entries are dropped and counted: the producers are never blocked. Once closed, the buffer refuses
+ * the new entries, and the consumer stops once the pending ones are consumed.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+final class LogRingBuffer {
+
+    private final Entry[] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * The index of the next entry to read.
+     */
+    private long head;
+
+    /**
+     * The index of the next entry to write.
+     */
+    private long tail;
+
+    /**
+     * Whether the buffer is closed. Guarded by {@link #lock}, so an entry is either added before the buffer is closed
+     * or refused.
+     */
+    private boolean closed;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    /**
+     * Creates a ring buffer.
+     *
+     * @param capacity the number of slots
+     */
+    LogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        slots = newEntries(capacity);
+    }
+
+    /**
+     * Creates an array of preallocated entries.
+     *
+     * @param size the size
+     * @return the array
+     */
+    static Entry[] newEntries(int size) {
+        Entry[] entries = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+        }
+        return entries;
+    }
+
+    /**
+     * Adds an entry, unless the buffer is full (the entry is then dropped and counted) or closed.
+     *
+     * @return {@literal true} if the entry has been added or dropped, {@literal false} if the buffer is closed
+     */
+    boolean offer(Logger logger, int level, String message, Throwable exception, ServiceReference reference) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (tail - head == slots.length) {
+                dropped.incrementAndGet();
+                return true;
+            }
+            slots[(int) (tail % slots.length)].set(logger, level, message, exception, reference);
+            tail++;
+            published.incrementAndGet();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the available entries to the given batch, waiting at most the given time for an entry to be available.
+     *
+     * @param batch   the batch receiving the entries
+     * @param timeout the maximum time to wait in milliseconds
+     * @return the number of entries moved to the batch, {@literal -1} if the buffer is closed and empty
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    int drainTo(Entry[] batch, long timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (tail == head) {
+                if (closed) {
+                    return -1;
+                }
+                if (nanos <= 0) {
+                    return 0;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int count = (int) Math.min(batch.length, tail - head);
+            for (int i = 0; i < count; i++) {
+                Entry slot = slots[(int) (head % slots.length)];
+                batch[i].copy(slot);
+                slot.clear();
+                head++;
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the buffer: the new entries are refused, the pending ones are still consumed.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens the buffer again, after it has been closed.
+     */
+    void open() {
+        lock.lock();
+        try {
+            closed = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of entries waiting to be consumed.
+     */
+    int getBacklog() {
+        lock.lock();
+        try {
+            return (int) (tail - head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of dropped entries.
+     */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of entries added to the buffer.
+     */
+    long getPublishedCount() {
+        return published.get();
+    }
+
+    /**
+     * A log entry, reused.
+     */
+    static final class Entry {
+        Logger logger;
+        int level;
+        String message;
+        Throwable exception;
+        ServiceReference reference;
+
+        void set(Logger logger, int level, String message, Throwable exception, ServiceReference reference) {
+            this.logger = logger;
+            this.level = level;
+            this.message = message;
+            this.exception = exception;
+            this.reference = reference;
+        }
+
+        void copy(Entry other) {
+            set(other.logger, other.level, other.message, other.exception, other.reference);
+        }
+
+        void clear() {
+            set(null, 0, null, null, null);
+        }
+    }
+}
@@ -22,21 +22,31 @@ package org.ow2.chameleon.core.activators;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 import org.ow2.chameleon.core.services.AbstractStabilityChecker;
+import org.ow2.chameleon.core.services.ContextAwareStabilityChecker;
+import org.ow2.chameleon.core.services.DependentStabilityChecker;
+import org.ow2.chameleon.core.services.StabilityCheckContext;
 import org.ow2.chameleon.core.services.StabilityResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Stability check verifying that we reach stability in term of services.
  * <p>
- * It checks that there are not service that have appeared or disappeared on a time window.
+ * It checks that there are not service that have appeared or disappeared on a time window. When a
+ * {@link StabilityEngine} is given, the service events are used instead of counting the services repeatedly.
  */
-public class ServiceStabilityChecker extends AbstractStabilityChecker {
+public class ServiceStabilityChecker extends AbstractStabilityChecker
+        implements DependentStabilityChecker, ContextAwareStabilityChecker {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServiceStabilityChecker.class);
 
     private final BundleContext context;
     private final int attempts;
+    private final StabilityEngine engine;
 
     public ServiceStabilityChecker(BundleContext context) {
         this(context, getDefaultNumberOfAttempts());
@@ -45,6 +55,23 @@ public class ServiceStabilityChecker extends AbstractStabilityChecker {
     public ServiceStabilityChecker(BundleContext context, int maxAttempt) {
         this.context = context;
         this.attempts = maxAttempt;
+        this.engine = null;
+    }
+
+    /**
+     * Creates a new instance of {@link ServiceStabilityChecker} relying on the service events received by the given
+     * engine instead of polling: the stability is reached once no service has been registered or unregistered
+     * during the quiet period (see {@link #getDefaultQuietPeriodInMillis()}), or during the grace period of the
+     * check if it is shorter.
+     *
+     * @param context the bundle context
+     * @param engine  the stability engine
+     * @since 1.10.8
+     */
+    public ServiceStabilityChecker(BundleContext context, StabilityEngine engine) {
+        this.context = context;
+        this.attempts = getDefaultNumberOfAttempts();
+        this.engine = engine;
     }
 
     /**
@@ -57,6 +84,16 @@ public class ServiceStabilityChecker extends AbstractStabilityChecker {
         return "Service Stability";
     }
 
+    /**
+     * The checker is executed once the bundles have reached their final state.
+     *
+     * @return the bundle stability checker name
+     */
+    @Override
+    public Collection<String> getDependencies() {
+        return Collections.singletonList(BundleStabilityChecker.NAME);
+    }
+
     /**
      * Gets the checker priority. Low priorities are executed first.
      *
@@ -74,17 +111,33 @@ public class ServiceStabilityChecker extends AbstractStabilityChecker {
      */
     @Override
     public StabilityResult check() {
+        return check(new StabilityCheckContext(getDefaultGracePeriodInMillis(), attempts));
+    }
+
+    /**
+     * Tries to reach the stability criteria checked by the current checker, before the deadline of the given
+     * context.
+     *
+     * @param settings the settings of the current computation
+     * @return the stability result
+     * @since 1.10.8
+     */
+    @Override
+    public StabilityResult check(StabilityCheckContext settings) {
+        if (engine != null) {
+            return checkWithEngine(settings.getRemainingTimeInMillis(), settings.getGracePeriodInMillis());
+        }
         boolean serviceStability = false;
         int count = 0;
         int count1 = 0;
         int count2 = 0;
-        while (!serviceStability && count < attempts) {
+        while (!serviceStability && count < settings.getNumberOfAttempts() && !settings.isExpired()) {
             try {
                 // We use the getAllServiceReferences method to ignore classloading issues. Anyway, we are not using
                 // the service, just counting them.
                 ServiceReference[] refs = context.getAllServiceReferences(null, null);
                 count1 = refs.length;
-                grace();
+                grace(settings.getGracePeriodInMillis(), TimeUnit.MILLISECONDS);
                 refs = context.getAllServiceReferences(null, null);
                 count2 = refs.length;
                 serviceStability = count1 == count2;
@@ -96,10 +149,27 @@ public class ServiceStabilityChecker extends AbstractStabilityChecker {
             count++;
         }
 
-        if (count == attempts) {
-            LOGGER.error("Service stability has not been reached after {} tries ({} != {})", attempts, count1, count2);
+        if (!serviceStability) {
+            LOGGER.error("Service stability has not been reached after {} tries ({} != {})", count, count1, count2);
             return StabilityResult.unstable("Cannot reach the service stability");
         }
         return StabilityResult.stable();
     }
+
+    private StabilityResult checkWithEngine(long timeout, long grace) {
+        // A short check (such as isStable) cannot wait for a full quiet period, the grace period is used instead, as
+        // the polling check compares the number of services over a grace period.
+        long quiet = Math.min(getDefaultQuietPeriodInMillis(), grace) * getTimeFactor();
+        try {
+            if (engine.awaitServiceStability(quiet, timeout)) {
+                return StabilityResult.stable();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return StabilityResult.unstable("Interrupted while waiting for the service stability");
+        }
+        LOGGER.error("Service stability has not been reached after {} ms ({} service events received)", timeout,
+                engine.getServiceEventCount());
+        return StabilityResult.unstable("Cannot reach the service stability");
+    }
 }
@@ -20,22 +20,92 @@
 package org.ow2.chameleon.core.activators;
 
 import org.osgi.framework.*;
-import org.ow2.chameleon.core.services.AbstractStabilityChecker;
+import org.osgi.util.tracker.ServiceTracker;
+import org.ow2.chameleon.core.services.ContextAwareStabilityChecker;
+import org.ow2.chameleon.core.services.DependentStabilityChecker;
 import org.ow2.chameleon.core.services.Stability;
+import org.ow2.chameleon.core.services.StabilityCallback;
+import org.ow2.chameleon.core.services.StabilityCheckContext;
 import org.ow2.chameleon.core.services.StabilityChecker;
 import org.ow2.chameleon.core.services.StabilityResult;
+import org.ow2.chameleon.core.services.StartupProfile;
 import org.ow2.chameleon.core.utils.BundleHelper;
+import org.ow2.chameleon.core.utils.MonitorThreadFactory;
+import org.ow2.chameleon.core.utils.StartupProfiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Activator exposing the {@link Stability} service.
  */
 public class StabilityComputation implements BundleActivator, Stability {
 
+    /**
+     * The number of threads computing the stability asynchronously.
+     */
+    private static final int ASYNC_THREADS = 2;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StabilityComputation.class);
 
     private BundleContext context;
     private ServiceRegistration<Stability> reg;
+    private StabilityEngine engine;
+
+    /**
+     * The startup profile, recording the execution of the checkers.
+     */
+    private volatile StartupProfile profile;
+
+    /**
+     * Whether the checkers are executed concurrently.
+     */
+    private final boolean parallel;
+
+    /**
+     * The core checkers, created on start.
+     */
+    private final List<StabilityChecker> coreCheckers = new CopyOnWriteArrayList<StabilityChecker>();
+
+    /**
+     * The tracker of the {@link StabilityChecker} services.
+     */
+    private volatile ServiceTracker<StabilityChecker, StabilityChecker> tracker;
+
+    /**
+     * The threads executing the checkers concurrently, created on start if the concurrent execution is enabled.
+     */
+    private volatile ExecutorService checkerExecutor;
+
+    /**
+     * The threads computing the stability asynchronously, they are stopped when idle.
+     */
+    private volatile ThreadPoolExecutor executor;
+
+    /**
+     * Completes the asynchronous computations still queued when their deadline expires.
+     */
+    private volatile ScheduledThreadPoolExecutor timer;
+
+    /**
+     * Creates the stability computation, executing the checkers one after the other.
+     */
+    public StabilityComputation() {
+        this(false);
+    }
+
+    /**
+     * Creates the stability computation.
+     *
+     * @param parallel whether the checkers are executed concurrently, against a single deadline
+     * @since 1.10.8
+     */
+    public StabilityComputation(boolean parallel) {
+        this.parallel = parallel;
+    }
 
     /**
      * Stores the bundle context, and expose the stability service.
@@ -43,6 +113,27 @@ public class StabilityComputation implements BundleActivator, Stability {
     @Override
     public void start(BundleContext context) throws Exception {
         this.context = context;
+        this.profile = StartupProfiler.getProfile(context);
+        this.engine = new StabilityEngine(context);
+        this.engine.open();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new MonitorThreadFactory("stability"));
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        ScheduledThreadPoolExecutor expirations = new ScheduledThreadPoolExecutor(1,
+                new MonitorThreadFactory("stability-timeout"));
+        expirations.setKeepAliveTime(60, TimeUnit.SECONDS);
+        expirations.allowCoreThreadTimeOut(true);
+        expirations.setRemoveOnCancelPolicy(true);
+        this.timer = expirations;
+        if (parallel) {
+            this.checkerExecutor = Executors.newCachedThreadPool(new MonitorThreadFactory("stability-checks"));
+        }
+        coreCheckers.add(new BundleStabilityChecker(context, engine));
+        coreCheckers.add(new ServiceStabilityChecker(context, engine));
+        coreCheckers.add(new IPojoProcessingStabilityChecker(context));
+        this.tracker = new ServiceTracker<StabilityChecker, StabilityChecker>(context, StabilityChecker.class, null);
+        this.tracker.open();
         this.reg = context.registerService(Stability.class, this, null);
     }
 
@@ -51,34 +142,55 @@ public class StabilityComputation implements BundleActivator, Stability {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
-        this.context = null;
         BundleHelper.unregisterQuietly(reg);
+        if (tracker != null) {
+            // Releases the checker services.
+            tracker.close();
+            tracker = null;
+        }
+        coreCheckers.clear();
+        if (executor != null) {
+            // The computations that have not started will never complete.
+            for (Runnable task : executor.shutdownNow()) {
+                if (task instanceof Future) {
+                    ((Future<?>) task).cancel(false);
+                }
+            }
+            executor = null;
+        }
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+        if (checkerExecutor != null) {
+            checkerExecutor.shutdownNow();
+            checkerExecutor = null;
+        }
+        if (engine != null) {
+            engine.close();
+            engine = null;
+        }
+        this.context = null;
     }
 
-    private Set<StabilityChecker> getCheckers() {
-        Collection<ServiceReference<StabilityChecker>> references;
-
-        try {
-            references = context.getServiceReferences(StabilityChecker.class, null);
-        } catch (InvalidSyntaxException e) { //NOSONAR cannot happen, the filter is null
-            // Ignored
-            references = Collections.emptyList();
+    /**
+     * Gets the checkers, sorted by priority. The core checkers are created once, the other checkers are tracked.
+     *
+     * @return the checkers
+     */
+    private List<StabilityChecker> getCheckers() {
+        List<StabilityChecker> checkers = new ArrayList<StabilityChecker>(coreCheckers);
+        ServiceTracker<StabilityChecker, StabilityChecker> current = tracker;
+        if (current != null) {
+            checkers.addAll(current.getTracked().values());
         }
-
-        Set<StabilityChecker> checkers = new TreeSet<StabilityChecker>(new Comparator<StabilityChecker>() {
+        // The sort is stable, the core checkers stay first on equal priorities.
+        Collections.sort(checkers, new Comparator<StabilityChecker>() {
             @Override
             public int compare(StabilityChecker o1, StabilityChecker o2) {
                 return ((Integer) o1.getPriority()).compareTo(o2.getPriority());
             }
         });
-        for (ServiceReference<StabilityChecker> ref : references) {
-            checkers.add(context.getService(ref));
-        }
-
-        checkers.add(new BundleStabilityChecker(context));
-        checkers.add(new ServiceStabilityChecker(context));
-        checkers.add(new IPojoProcessingStabilityChecker(context));
-
         return checkers;
     }
 
@@ -89,35 +201,10 @@ public class StabilityComputation implements BundleActivator, Stability {
      */
     @Override
     public boolean isStable() {
-        // Configure the grace period and number of attempt to "small" values to reduce the blocking time
-        final long originalGraceTimeInMillis = Long.getLong(AbstractStabilityChecker.STABILITY_GRACE, -1l);
-        final int originalNumberOfAttempts = Integer.getInteger(AbstractStabilityChecker.STABILITY_ATTEMPTS, -1);
-
-        try {
-
-            // 3 milliseconds
-            System.setProperty(AbstractStabilityChecker.STABILITY_GRACE, "3");
-            // 3 attempts maximum
-            System.setProperty(AbstractStabilityChecker.STABILITY_ATTEMPTS, "3");
-            // So, the maximum sleep time should not be greater than 3 * 3 = 9ms per check.
-
-            return waitForStability();
-
-        } finally {
-            // Cleanup...
-            if (originalGraceTimeInMillis != -1) {
-                System.setProperty(AbstractStabilityChecker.STABILITY_GRACE, Long.toString(originalGraceTimeInMillis));
-            } else {
-                System.clearProperty(AbstractStabilityChecker.STABILITY_GRACE);
-            }
-
-            if (originalNumberOfAttempts != -1) {
-                System.setProperty(AbstractStabilityChecker.STABILITY_ATTEMPTS,
-                        Integer.toString(originalNumberOfAttempts));
-            } else {
-                System.clearProperty(AbstractStabilityChecker.STABILITY_ATTEMPTS);
-            }
-        }
+        // Configure the grace period and number of attempt to "small" values to reduce the blocking time, for this
+        // computation only.
+        // So, the maximum sleep time should not be greater than 3 * 3 = 9ms per check.
+        return isStable(getStabilityResult(new StabilityCheckContext(3, 3), false));
     }
 
     /**
@@ -128,7 +215,10 @@ public class StabilityComputation implements BundleActivator, Stability {
      */
     @Override
     public boolean waitForStability() {
-        Map<StabilityChecker, StabilityResult> results = getStabilityResult();
+        return isStable(getStabilityResult());
+    }
+
+    private static boolean isStable(Map<StabilityChecker, StabilityResult> results) {
         for (StabilityResult result : results.values()) {
             if (!result.isStable) {
                 return false;
@@ -138,24 +228,234 @@ public class StabilityComputation implements BundleActivator, Stability {
     }
 
     /**
-     * Checks and retrieve the individual stability check result.
+     * Waits for the stability asynchronously, on the stability computation threads. The deadline is computed when
+     * this method is called: a computation still queued behind other computations when it expires completes with
+     * {@code false}, without executing the checkers.
+     *
+     * @param timeout  the maximum time the computation waits for the stability criteria
+     * @param unit     the unit of the timeout
+     * @param callback the callback notified with the results, may be {@code null}
+     * @return a future completed with whether or not the stability has been reached
+     * @throws IllegalStateException if the stability service is stopped
+     */
+    @Override
+    public Future<Boolean> waitForStability(long timeout, TimeUnit unit, StabilityCallback callback) {
+        ExecutorService current = executor;
+        ScheduledExecutorService expirations = timer;
+        if (current == null || expirations == null) {
+            throw new IllegalStateException("The stability service is stopped");
+        }
+        final AsyncComputation computation = new AsyncComputation(StabilityCheckContext.withTimeout(timeout, unit),
+                callback);
+        computation.expiration = expirations.schedule(new Runnable() {
+            @Override
+            public void run() {
+                computation.expire();
+            }
+        }, computation.context.getRemainingTimeInMillis(), TimeUnit.MILLISECONDS);
+        current.execute(computation);
+        return computation;
+    }
+
+    /**
+     * Checks and retrieve the individual stability check result. Depending on the configuration, the checkers are
+     * executed one after the other in priority order, or concurrently.
      *
      * @return the results. The returned map is ordered.
      */
     @Override
     public Map<StabilityChecker, StabilityResult> getStabilityResult() {
-        Set<StabilityChecker> checkers = getCheckers();
+        return getStabilityResult(StabilityCheckContext.defaults(), false);
+    }
+
+    /**
+     * Executes the checkers with the given settings.
+     *
+     * @param context the settings of the computation
+     * @param shared  whether the deadline of the context applies to the whole computation, or to each check when
+     *                they are executed one after the other
+     * @return the results, ordered
+     */
+    Map<StabilityChecker, StabilityResult> getStabilityResult(StabilityCheckContext context, boolean shared) {
+        List<StabilityChecker> checkers = getCheckers();
+        ExecutorService pool = checkerExecutor;
+        if (parallel && pool != null) {
+            return getStabilityResultConcurrently(checkers, pool, context);
+        }
         Map<StabilityChecker, StabilityResult> results = new LinkedHashMap<StabilityChecker, StabilityResult>();
         boolean hasNotBeenReached = false;
         for (StabilityChecker checker : checkers) {
             if (hasNotBeenReached) {
                 results.put(checker, StabilityResult.notAvailable());
             } else {
-                StabilityResult sr = checker.check();
+                StabilityResult sr = check(checker, shared ? context : context.renew());
                 results.put(checker, sr);
                 hasNotBeenReached = !sr.isStable;
             }
         }
         return results;
     }
+
+    /**
+     * Executes the checkers concurrently, against the deadline of the given context. A
+     * checker implementing {@link DependentStabilityChecker} waits for the checkers it depends on, if they are
+     * executed before it in the priority order. It is not executed if one of them fails.
+     *
+     * @param checkers the checkers sorted by priority
+     * @param pool     the executor
+     * @param context  the settings of the computation
+     * @return the results, ordered
+     */
+    private Map<StabilityChecker, StabilityResult> getStabilityResultConcurrently(List<StabilityChecker> checkers,
+                                                                                  ExecutorService pool,
+                                                                                  final StabilityCheckContext context) {
+        Map<String, Future<StabilityResult>> byName = new HashMap<String, Future<StabilityResult>>();
+        Map<StabilityChecker, Future<StabilityResult>> futures =
+                new LinkedHashMap<StabilityChecker, Future<StabilityResult>>();
+        for (final StabilityChecker checker : checkers) {
+            final List<Future<StabilityResult>> dependencies = new ArrayList<Future<StabilityResult>>();
+            if (checker instanceof DependentStabilityChecker) {
+                for (String name : ((DependentStabilityChecker) checker).getDependencies()) {
+                    Future<StabilityResult> dependency = byName.get(name);
+                    if (dependency != null) {
+                        dependencies.add(dependency);
+                    }
+                }
+            }
+            Future<StabilityResult> future = pool.submit(new Callable<StabilityResult>() {
+                @Override
+                public StabilityResult call() throws Exception {
+                    for (Future<StabilityResult> dependency : dependencies) {
+                        if (!dependency.get(context.getRemainingTimeInMillis(), TimeUnit.MILLISECONDS).isStable) {
+                            return StabilityResult.notAvailable();
+                        }
+                    }
+                    return check(checker, context);
+                }
+            });
+            futures.put(checker, future);
+            if (!byName.containsKey(checker.getName())) {
+                byName.put(checker.getName(), future);
+            }
+        }
+
+        Map<StabilityChecker, StabilityResult> results = new LinkedHashMap<StabilityChecker, StabilityResult>();
+        for (Map.Entry<StabilityChecker, Future<StabilityResult>> entry : futures.entrySet()) {
+            results.put(entry.getKey(), getResult(entry.getValue(), context));
+        }
+        return results;
+    }
+
+    private StabilityResult check(StabilityChecker checker, StabilityCheckContext context) {
+        StartupProfile current = profile;
+        if (current == null) {
+            return execute(checker, context);
+        }
+        long begin = current.begin();
+        try {
+            return execute(checker, context);
+        } finally {
+            current.end("stability.check", checker.getName(), begin);
+        }
+    }
+
+    private static StabilityResult execute(StabilityChecker checker, StabilityCheckContext context) {
+        if (checker instanceof ContextAwareStabilityChecker) {
+            return ((ContextAwareStabilityChecker) checker).check(context);
+        }
+        return checker.check();
+    }
+
+    private static StabilityResult getResult(Future<StabilityResult> future, StabilityCheckContext context) {
+        try {
+            // Give the checkers a grace period after the deadline to report their own result.
+            return future.get(context.getRemainingTimeInMillis() + context.getGracePeriodInMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return StabilityResult.unstable("Interrupted while waiting for the stability", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                // Timeout while waiting for a dependency.
+                return StabilityResult.notAvailable();
+            }
+            return StabilityResult.unstable("The stability check has thrown an exception", e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return StabilityResult.unstable("The stability check did not complete in time", e);
+        }
+    }
+
+    private static void notifyCallback(StabilityCallback callback, boolean stable,
+                                       Map<StabilityChecker, StabilityResult> results) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.stabilityComputed(stable, results);
+        } catch (RuntimeException e) { //NOSONAR
+            LOGGER.error("Error while notifying the stability callback {}", callback, e);
+        }
+    }
+
+    /**
+     * An asynchronous computation. It is completed either by a computation thread, or by the timer if its deadline
+     * expires before a computation thread picks it.
+     */
+    private final class AsyncComputation extends FutureTask<Boolean> {
+
+        private final StabilityCheckContext context;
+        private final StabilityCallback callback;
+        private final AtomicBoolean started;
+        private volatile Future<?> expiration;
+
+        AsyncComputation(final StabilityCheckContext context, final StabilityCallback callback) {
+            this(context, callback, new AtomicBoolean());
+        }
+
+        private AsyncComputation(final StabilityCheckContext context, final StabilityCallback callback,
+                                 final AtomicBoolean started) {
+            super(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    if (!started.compareAndSet(false, true)) {
+                        // Expired while queued.
+                        return false;
+                    }
+                    Map<StabilityChecker, StabilityResult> results = getStabilityResult(context, true);
+                    boolean stable = isStable(results);
+                    notifyCallback(callback, stable, results);
+                    return stable;
+                }
+            });
+            this.context = context;
+            this.callback = callback;
+            this.started = started;
+        }
+
+        /**
+         * Completes the computation with {@code false} if no computation thread has picked it yet.
+         */
+        void expire() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            Map<StabilityChecker, StabilityResult> results = new LinkedHashMap<StabilityChecker, StabilityResult>();
+            for (StabilityChecker checker : getCheckers()) {
+                results.put(checker, StabilityResult.notAvailable());
+            }
+            LOGGER.warn("The stability computation did not start before its deadline ({})", context);
+            notifyCallback(callback, false, results);
+            set(false);
+        }
+
+        @Override
+        protected void done() {
+            Future<?> current = expiration;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.osgi.framework.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects the stability from the bundle and service events, instead of polling the framework.
+ * <p>
+ * The engine records the time of the last service registration or un-registration, and counts the bundle events.
+ * The service stability is reached once no service has been registered or unregistered during a quiet period. The
+ * bundle stability is checked again only when a bundle event is received. While nobody waits for the stability,
+ * handling an event costs an atomic update.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class StabilityEngine implements SynchronousBundleListener, ServiceListener {
+
+    private final BundleContext context;
+
+    /**
+     * The monitor used to wake up the threads waiting for a bundle event.
+     */
+    private final Object lock = new Object();
+
+    private final AtomicLong bundleEvents = new AtomicLong();
+    private final AtomicLong serviceEvents = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * The {@link System#nanoTime()} of the last service registration or un-registration.
+     */
+    private volatile long lastServiceEvent = System.nanoTime();
+
+    /**
+     * Creates the stability engine.
+     *
+     * @param context the bundle context
+     */
+    public StabilityEngine(BundleContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Starts listening to the bundle and service events.
+     */
+    public void open() {
+        lastServiceEvent = System.nanoTime();
+        context.addBundleListener(this);
+        context.addServiceListener(this);
+    }
+
+    /**
+     * Stops listening to the events.
+     */
+    public void close() {
+        try {
+            context.removeServiceListener(this);
+            context.removeBundleListener(this);
+        } catch (IllegalStateException e) { //NOSONAR
+            // The context is no more valid, the listeners are already removed.
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        bundleEvents.incrementAndGet();
+        if (waiters.get() > 0) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Modifications of service properties do not change the set of services, and are ignored.
+     */
+    @Override
+    public void serviceChanged(ServiceEvent event) {
+        if (event.getType() != ServiceEvent.MODIFIED) {
+            lastServiceEvent = System.nanoTime();
+            serviceEvents.incrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until every bundle has reached its final state (see
+     * {@link BundleStabilityChecker#getBundleStability(BundleContext)}). The bundle states are checked again each
+     * time a bundle event is received.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return {@literal true} if the bundle stability is reached, {@literal false} if the timeout is reached.
+     * @throws InterruptedException if the caller thread is interrupted
+     */
+    public boolean awaitBundleStability(long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                long seen = bundleEvents.get();
+                if (BundleStabilityChecker.getBundleStability(context)) {
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                synchronized (lock) {
+                    // Do not wait if an event was received during the check.
+                    if (bundleEvents.get() == seen) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until no service has been registered or unregistered during the given quiet period.
+     *
+     * @param quietPeriod the quiet period in milliseconds
+     * @param timeout     the maximum time to wait in milliseconds
+     * @return {@literal true} if the service stability is reached, {@literal false} if the timeout is reached.
+     * @throws InterruptedException if the caller thread is interrupted
+     */
+    public boolean awaitServiceStability(long quietPeriod, long timeout) throws InterruptedException {
+        long quiet = TimeUnit.MILLISECONDS.toNanos(quietPeriod);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            long now = System.nanoTime();
+            long quietEnd = lastServiceEvent + quiet;
+            if (now - quietEnd >= 0) {
+                return true;
+            }
+            if (now - deadline >= 0) {
+                return false;
+            }
+            // Sleep until the end of the quiet period, the next events only push it further.
+            TimeUnit.NANOSECONDS.sleep(Math.min(quietEnd - now, deadline - now));
+        }
+    }
+
+    /**
+     * @return the number of bundle events received.
+     */
+    public long getBundleEventCount() {
+        return bundleEvents.get();
+    }
+
+    /**
+     * @return the number of service registrations and un-registrations received.
+     */
+    public long getServiceEventCount() {
+        return serviceEvents.get();
+    }
+}
@@ -21,6 +21,7 @@ package org.ow2.chameleon.core.services;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * A default implementation of the deployer.
@@ -28,9 +29,35 @@ import java.util.Collection;
  * @author The OW2 Chameleon Team
  * @version $Id: 1.0.4 $Id
  */
-public abstract class AbstractDeployer implements Deployer {
+public abstract class AbstractDeployer implements BatchDeployer, SelectiveDeployer {
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This default implementation selects all files, so {@link #accept(java.io.File)} is called on every file.
+     */
+    @Override
+    public FileSelector getSelector() {
+        return FileSelector.ANY;
+    }
+
+    /**
+     * Checks whether the class of the given deployer overrides the {@link #accept(java.io.File)} method of the given
+     * base class. The selector of the base class is then not valid for the deployer, as it may accept other files.
+     *
+     * @param deployer the deployer
+     * @param base     the class providing the selector
+     * @return {@literal true} if a sub-class of the base class overrides {@literal accept}
+     */
+    static boolean overridesAccept(Deployer deployer, Class<?> base) {
+        try {
+            return deployer.getClass().getMethod("accept", File.class).getDeclaringClass() != base;
+        } catch (NoSuchMethodException e) { //NOSONAR
+            return true;
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void onFileCreate(File file) {
@@ -49,6 +76,26 @@ public abstract class AbstractDeployer implements Deployer {
         //Do nothing
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This default implementation calls {@link #onFileDelete(java.io.File)} for each deleted file, then
+     * {@link #onFileCreate(java.io.File)} for each new file and {@link #onFileChange(java.io.File)} for each
+     * updated file.
+     */
+    @Override
+    public void onFileBatch(List<File> created, List<File> changed, List<File> deleted) {
+        for (File file : deleted) {
+            onFileDelete(file);
+        }
+        for (File file : created) {
+            onFileCreate(file);
+        }
+        for (File file : changed) {
+            onFileChange(file);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void open(Collection<File> files) {
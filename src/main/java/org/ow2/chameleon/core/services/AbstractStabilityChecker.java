@@ -41,6 +41,12 @@ public abstract class AbstractStabilityChecker implements StabilityChecker {
      */
     public static final String STABILITY_ATTEMPTS = "stability.attempts";
 
+    /**
+     * The system property to configure the quiet period in milliseconds: the service stability is reached once no
+     * service has been registered or unregistered during this period.
+     */
+    public static final String STABILITY_QUIET = "stability.quiet";
+
     /**
      * Retrieves the current time factor if set. The time factor is configure using the `time.factor` system property.
      *
@@ -70,6 +76,28 @@ public abstract class AbstractStabilityChecker implements StabilityChecker {
         return Integer.getInteger(STABILITY_ATTEMPTS, 500);
     }
 
+    /**
+     * Retrieves the default quiet period (in millis). The default value is set using the `stability.quiet` system
+     * property. the default value is 100 ms.
+     *
+     * @return the default quiet period.
+     * @since 1.10.8
+     */
+    public static long getDefaultQuietPeriodInMillis() {
+        return Long.getLong(STABILITY_QUIET, 100l);
+    }
+
+    /**
+     * Retrieves the maximum time (in millis) to wait for the stability: the default number of attempts times the
+     * default grace period, multiplied by the time factor.
+     *
+     * @return the default timeout.
+     * @since 1.10.8
+     */
+    public static long getDefaultTimeoutInMillis() {
+        return getDefaultNumberOfAttempts() * getDefaultGracePeriodInMillis() * getTimeFactor();
+    }
+
     /**
      * Block the caller thread for the default grace period.
      */
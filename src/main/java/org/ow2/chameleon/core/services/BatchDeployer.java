@@ -0,0 +1,50 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * An optional extension of {@link org.ow2.chameleon.core.services.Deployer} receiving all the changes detected
+ * during a check of a monitored directory at once. Deployers implementing this interface are notified with
+ * {@link #onFileBatch(java.util.List, java.util.List, java.util.List)} instead of the per-file callbacks, so they can
+ * process many files in a single operation.
+ * <p>
+ * {@link org.ow2.chameleon.core.services.AbstractDeployer} implements this interface by calling the per-file
+ * callbacks.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public interface BatchDeployer extends Deployer {
+
+    /**
+     * Callback called with all the accepted files created, updated and deleted during a check of a monitored
+     * directory. A file appears in only one of the lists. At least one of the lists is not empty.
+     *
+     * @param created the new files
+     * @param changed the updated files
+     * @param deleted the deleted files
+     */
+    void onFileBatch(List<File> created, List<File> changed, List<File> deleted);
+
+}
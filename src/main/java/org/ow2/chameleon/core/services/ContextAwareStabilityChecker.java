@@ -0,0 +1,44 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+/**
+ * A {@link StabilityChecker} receiving the settings of the current computation, instead of relying on the defaults.
+ * <p>
+ * The stability service calls {@link #check(StabilityCheckContext)} on these checkers. The check must give up once
+ * the deadline of the context has expired. The {@link #check()} method is used when the checker is called directly,
+ * it uses the default settings.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public interface ContextAwareStabilityChecker extends StabilityChecker {
+
+    /**
+     * Tries to reach the stability criteria checked by the current checker, before the deadline of the given
+     * context.
+     *
+     * @param context the settings of the current computation
+     * @return the stability result
+     */
+    StabilityResult check(StabilityCheckContext context);
+
+}
@@ -0,0 +1,44 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import java.util.Collection;
+
+/**
+ * A {@link StabilityChecker} depending on other checkers.
+ * <p>
+ * When the checkers are executed concurrently, a checker is executed once the checkers it depends on have reached
+ * their stability criteria. If one of them fails, the checker is not executed. Only the dependencies on checkers
+ * executed before the current one in the priority order are considered.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public interface DependentStabilityChecker extends StabilityChecker {
+
+    /**
+     * Gets the names of the checkers that must reach their stability before this checker is executed.
+     *
+     * @return the names of the checkers (as returned by {@link #getName()}), must not be {@code null}
+     */
+    Collection<String> getDependencies();
+
+}
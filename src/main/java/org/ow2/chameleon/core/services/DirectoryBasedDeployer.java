@@ -37,6 +37,12 @@ public class DirectoryBasedDeployer extends AbstractDeployer {
 
     private final File directory;
 
+    /**
+     * The selector of the files from the directory, {@literal null} if the directory is not set or if a sub-class
+     * overrides {@link #accept(java.io.File)}.
+     */
+    private final FileSelector selector;
+
     /**
      * A logger.
      */
@@ -49,6 +55,21 @@ public class DirectoryBasedDeployer extends AbstractDeployer {
      */
     public DirectoryBasedDeployer(File directory) {
         this.directory = directory;
+        if (directory == null || overridesAccept(this, DirectoryBasedDeployer.class)) {
+            this.selector = null;
+        } else {
+            this.selector = FileSelector.directory(directory);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public FileSelector getSelector() {
+        if (selector == null) {
+            // Let accept decide (or fail).
+            return FileSelector.ANY;
+        }
+        return selector;
     }
 
     /** {@inheritDoc} */
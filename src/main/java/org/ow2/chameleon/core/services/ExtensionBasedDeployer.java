@@ -39,6 +39,12 @@ public class ExtensionBasedDeployer extends AbstractDeployer {
      */
     private final List<String> extensions;
 
+    /**
+     * The selector of the files having one of the managed extensions, or {@link FileSelector#ANY} if a sub-class
+     * overrides {@link #accept(java.io.File)}.
+     */
+    private final FileSelector selector;
+
     /**
      * Creates a new extension-based deployer.
      *
@@ -64,6 +70,12 @@ public class ExtensionBasedDeployer extends AbstractDeployer {
      */
     public ExtensionBasedDeployer(List<String> extensions) {
         this.extensions = ImmutableList.copyOf(extensions);
+        if (overridesAccept(this, ExtensionBasedDeployer.class)) {
+            // The sub-class may accept other files.
+            this.selector = FileSelector.ANY;
+        } else {
+            this.selector = FileSelector.extensions(this.extensions);
+        }
     }
 
     /**
@@ -75,6 +87,14 @@ public class ExtensionBasedDeployer extends AbstractDeployer {
         return extensions;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FileSelector getSelector() {
+        return selector;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A cheap and static description of the files a deployer may accept: a set of extensions, a set of file name
+ * patterns (globs, using {@literal *} and {@literal ?}) and a directory scope. The selector only accesses the file
+ * system to resolve the canonical path of a file outside of its directory scope (so a file reached through a
+ * symbolic link is selected), so it can be evaluated on every file. The {@link org.ow2.chameleon.core.activators.DirectoryMonitor}
+ * indexes the deployers by extension, and calls {@link Deployer#accept(java.io.File)} only on the files selected by
+ * the deployer's selector.
+ * <p>
+ * A selector is a necessary condition: it must select all the files the deployer accepts, but may select files
+ * the deployer does not accept. Criteria are combined with a logical AND. Selectors are immutable.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public final class FileSelector {
+
+    /**
+     * The selector selecting all files.
+     */
+    public static final FileSelector ANY = new FileSelector(ImmutableSet.<String>of(), ImmutableList.<String>of(),
+            ImmutableList.<String>of());
+
+    /**
+     * The selected extensions, empty if the extension does not matter.
+     */
+    private final Set<String> extensions;
+
+    /**
+     * The selected file name patterns, empty if the name does not matter.
+     */
+    private final List<String> globs;
+
+    /**
+     * The paths of the directory scope (absolute and canonical paths, followed by the separator), empty if the
+     * location does not matter.
+     */
+    private final List<String> directories;
+
+    private FileSelector(Set<String> extensions, List<String> globs, List<String> directories) {
+        this.extensions = extensions;
+        this.globs = globs;
+        this.directories = directories;
+    }
+
+    /**
+     * Creates a selector selecting the files having one of the given extensions.
+     *
+     * @param extensions the extensions (without the dot)
+     * @return the selector
+     */
+    public static FileSelector extensions(String... extensions) {
+        return extensions(Arrays.asList(extensions));
+    }
+
+    /**
+     * Creates a selector selecting the files having one of the given extensions.
+     *
+     * @param extensions the extensions (without the dot)
+     * @return the selector
+     */
+    public static FileSelector extensions(Collection<String> extensions) {
+        return ANY.withExtensions(extensions);
+    }
+
+    /**
+     * Creates a selector selecting the files whose name matches one of the given patterns.
+     *
+     * @param globs the patterns, such as {@literal *.xml} or {@literal config-?.json}
+     * @return the selector
+     */
+    public static FileSelector globs(String... globs) {
+        return new FileSelector(ImmutableSet.<String>of(), ImmutableList.copyOf(globs), ImmutableList.<String>of());
+    }
+
+    /**
+     * Creates a selector selecting the files contained in the given directory (or its sub-directories).
+     *
+     * @param directory the directory
+     * @return the selector
+     */
+    public static FileSelector directory(File directory) {
+        return ANY.in(directory);
+    }
+
+    /**
+     * Creates a selector restricting this selector to the given extensions.
+     *
+     * @param extensions the extensions (without the dot)
+     * @return the new selector
+     */
+    public FileSelector withExtensions(Collection<String> extensions) {
+        return new FileSelector(ImmutableSet.copyOf(extensions), globs, directories);
+    }
+
+    /**
+     * Creates a selector restricting this selector to the files contained in the given directory (or its
+     * sub-directories).
+     *
+     * @param directory the directory
+     * @return the new selector
+     */
+    public FileSelector in(File directory) {
+        ImmutableList.Builder<String> paths = ImmutableList.builder();
+        String absolute = FilenameUtils.normalizeNoEndSeparator(directory.getAbsolutePath()) + File.separator;
+        paths.add(absolute);
+        try {
+            String canonical = directory.getCanonicalPath() + File.separator;
+            if (!canonical.equals(absolute)) {
+                paths.add(canonical);
+            }
+        } catch (IOException e) { //NOSONAR
+            // Use the absolute path only.
+        }
+        return new FileSelector(extensions, globs, paths.build());
+    }
+
+    /**
+     * Gets the selected extensions.
+     *
+     * @return the extensions, empty if the selector does not restrict the extension
+     */
+    public Set<String> getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Checks whether the given file is selected. This method only accesses the file system when the absolute path
+     * of the file is not in the directory scope, to check its canonical path.
+     *
+     * @param file the file
+     * @return {@literal true} if the file is selected, {@literal false} otherwise
+     */
+    public boolean matches(File file) {
+        String name = file.getName();
+        if (!extensions.isEmpty() && !extensions.contains(FilenameUtils.getExtension(name))) {
+            return false;
+        }
+        if (!globs.isEmpty() && !matchesOneOf(name, globs)) {
+            return false;
+        }
+        if (!directories.isEmpty()) {
+            String path = FilenameUtils.normalize(file.getAbsolutePath());
+            if (path == null) {
+                // Cannot normalize the path, let the deployer decide.
+                return true;
+            }
+            if (startsWithOneOf(path, directories)) {
+                return true;
+            }
+            try {
+                // The file may be reached through a symbolic link, as the deployers compare canonical paths.
+                return startsWithOneOf(file.getCanonicalPath(), directories);
+            } catch (IOException e) { //NOSONAR
+                // Cannot resolve the path, let the deployer decide.
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWithOneOf(String path, List<String> directories) {
+        for (String directory : directories) {
+            if (path.startsWith(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesOneOf(String name, List<String> globs) {
+        for (String glob : globs) {
+            if (FilenameUtils.wildcardMatch(name, glob)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "FileSelector{extensions=" + extensions + ", globs=" + globs + ", directories=" + directories + "}";
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+/**
+ * An optional extension of {@link org.ow2.chameleon.core.services.Deployer} declaring a
+ * {@link org.ow2.chameleon.core.services.FileSelector}. The directory monitor uses the selector to find the
+ * candidate deployers of a file without calling {@link #accept(java.io.File)} on every deployer. The
+ * {@link #accept(java.io.File)} method is still called on the selected files, as a final check.
+ * <p>
+ * {@link org.ow2.chameleon.core.services.AbstractDeployer} implements this interface and selects all files.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public interface SelectiveDeployer extends Deployer {
+
+    /**
+     * Gets the selector describing the files this deployer may accept. The selector must not change during the
+     * lifetime of the deployer service.
+     *
+     * @return the selector, {@link org.ow2.chameleon.core.services.FileSelector#ANY} to consider all files.
+     */
+    FileSelector getSelector();
+
+}
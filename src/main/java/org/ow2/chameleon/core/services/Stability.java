@@ -20,6 +20,8 @@
 package org.ow2.chameleon.core.services;
 
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An interface to check the stability of the running application.
@@ -31,7 +33,8 @@ import java.util.Map;
  * The stability service is implemented by Chameleon itself, but is made to be extended so the application can
  * contribute {@link org.ow2.chameleon.core.services.StabilityChecker} to extend the stability computation.
  * <p>
- * Be aware that stability computation is blocking the caller thread.
+ * Be aware that stability computation is blocking the caller thread, except when using
+ * {@link #waitForStability(long, TimeUnit, StabilityCallback)}.
  *
  * @author The OW2 Chameleon Team
  * @version $Id: 1.0.5 $Id
@@ -62,4 +65,19 @@ public interface Stability {
      */
     Map<StabilityChecker, StabilityResult> getStabilityResult();
 
+    /**
+     * Waits for the stability asynchronously. This method does not block the caller thread: the stability is
+     * computed by a thread managed by the stability service. The timeout is a deadline for the whole computation,
+     * starting when this method is called, and applies only to this computation: it does not change the settings
+     * used by other callers. It is not multiplied by the time factor. If the computation has not started when the
+     * deadline expires, the future completes with {@code false} and the callback receives "not run" results.
+     *
+     * @param timeout  the maximum time the computation waits for the stability criteria
+     * @param unit     the unit of the timeout
+     * @param callback the callback notified with the results, may be {@code null}
+     * @return a future completed with whether or not the stability has been reached
+     * @since 1.10.8
+     */
+    Future<Boolean> waitForStability(long timeout, TimeUnit unit, StabilityCallback callback);
+
 }
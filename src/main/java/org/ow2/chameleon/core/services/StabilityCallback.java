@@ -0,0 +1,42 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import java.util.Map;
+
+/**
+ * Callback notified when an asynchronous stability computation completes.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @see Stability#waitForStability(long, java.util.concurrent.TimeUnit, StabilityCallback)
+ * @since 1.10.8
+ */
+public interface StabilityCallback {
+
+    /**
+     * Called once the stability computation completes, from a thread managed by the stability service.
+     *
+     * @param stable  whether the stability has been reached
+     * @param results the individual stability check results, ordered
+     */
+    void stabilityComputed(boolean stable, Map<StabilityChecker, StabilityResult> results);
+
+}
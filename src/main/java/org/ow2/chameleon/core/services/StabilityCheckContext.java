@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The settings of a stability check: the grace period and number of attempts used by the checkers polling their
+ * stability criteria, and the deadline after which the check must give up.
+ * <p>
+ * The context is created by the stability service for each computation, and given to the checkers implementing
+ * {@link ContextAwareStabilityChecker}. It is immutable, so it can be shared by checks executed concurrently.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public final class StabilityCheckContext {
+
+    private final long grace;
+    private final int attempts;
+    private final long timeout;
+    private final long deadline;
+
+    /**
+     * Creates a context whose deadline is the given number of attempts times the grace period (multiplied by the
+     * time factor) from now.
+     *
+     * @param grace    the grace period in milliseconds
+     * @param attempts the number of attempts
+     */
+    public StabilityCheckContext(long grace, int attempts) {
+        this(grace, attempts, attempts * grace * AbstractStabilityChecker.getTimeFactor());
+    }
+
+    private StabilityCheckContext(long grace, int attempts, long timeout) {
+        this.grace = grace;
+        this.attempts = attempts;
+        this.timeout = timeout;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    /**
+     * Creates a context using the default grace period and number of attempts (see
+     * {@link AbstractStabilityChecker#getDefaultGracePeriodInMillis()} and
+     * {@link AbstractStabilityChecker#getDefaultNumberOfAttempts()}).
+     *
+     * @return the context
+     */
+    public static StabilityCheckContext defaults() {
+        return new StabilityCheckContext(AbstractStabilityChecker.getDefaultGracePeriodInMillis(),
+                AbstractStabilityChecker.getDefaultNumberOfAttempts());
+    }
+
+    /**
+     * Creates a context expiring after the given timeout. The timeout is explicit, so it is used as is: unlike the
+     * default timeout, it is not multiplied by the time factor. The grace period is the default one, unless the
+     * timeout is shorter.
+     *
+     * @param timeout the timeout
+     * @param unit    the unit of the timeout
+     * @return the context
+     */
+    public static StabilityCheckContext withTimeout(long timeout, TimeUnit unit) {
+        long millis = unit.toMillis(timeout);
+        long grace = Math.max(1, Math.min(AbstractStabilityChecker.getDefaultGracePeriodInMillis(), millis));
+        int attempts = (int) Math.max(1, Math.min(Integer.MAX_VALUE, millis / grace));
+        return new StabilityCheckContext(grace, attempts, millis);
+    }
+
+    /**
+     * Creates a context with the same settings, whose deadline starts now.
+     *
+     * @return the new context
+     */
+    public StabilityCheckContext renew() {
+        return new StabilityCheckContext(grace, attempts, timeout);
+    }
+
+    /**
+     * @return the grace period in milliseconds.
+     */
+    public long getGracePeriodInMillis() {
+        return grace;
+    }
+
+    /**
+     * @return the maximum number of attempts.
+     */
+    public int getNumberOfAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the time left before the deadline in milliseconds, 0 if the deadline has expired.
+     */
+    public long getRemainingTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, deadline - System.nanoTime()));
+    }
+
+    /**
+     * @return whether the deadline has expired.
+     */
+    public boolean isExpired() {
+        return deadline - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StabilityCheckContext{grace=" + grace + ", attempts=" + attempts + ", timeout=" + timeout + "}";
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+/**
+ * A phase recorded by the {@link StartupProfile}.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class StartupPhase {
+
+    /**
+     * The category, such as {@code bundle.install} or {@code deployer.open}.
+     */
+    public final String category;
+
+    /**
+     * The name of the phase within its category (bundle location, deployer...).
+     */
+    public final String name;
+
+    /**
+     * The name of the thread that has executed the phase.
+     */
+    public final String thread;
+
+    /**
+     * The start of the phase, in nanoseconds since the beginning of the startup.
+     */
+    public final long start;
+
+    /**
+     * The duration of the phase, in nanoseconds.
+     */
+    public final long duration;
+
+    /**
+     * Creates a phase.
+     *
+     * @param category the category
+     * @param name     the name
+     * @param thread   the name of the thread
+     * @param start    the start, in nanoseconds since the beginning of the startup
+     * @param duration the duration in nanoseconds
+     */
+    public StartupPhase(String category, String name, String thread, long start, long duration) {
+        this.category = category;
+        this.name = name;
+        this.thread = thread;
+        this.start = start;
+        this.duration = duration;
+    }
+
+    @Override
+    public String toString() {
+        return category + " " + name + " : " + duration / 1000000.0 + " ms";
+    }
+}
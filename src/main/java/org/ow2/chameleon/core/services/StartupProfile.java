@@ -0,0 +1,73 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import java.util.List;
+
+/**
+ * Service recording the time spent in the different phases of the Chameleon startup (framework creation,
+ * activators, bundle installations and starts, deployers, stability checks...).
+ * <p>
+ * Phases are measured as follows:
+ * <pre>
+ * long begin = profile.begin();
+ * ...
+ * profile.end("deployer.open", deployer.toString(), begin);
+ * </pre>
+ * The recording stops once the startup is completed, so the profile does not grow after the boot.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public interface StartupProfile {
+
+    /**
+     * Starts the measure of a phase.
+     *
+     * @return the begin time to give to {@link #end(String, String, long)}, in nanoseconds
+     */
+    long begin();
+
+    /**
+     * Ends the measure of a phase, and records it if the startup is not completed.
+     *
+     * @param category the category of the phase, such as {@code bundle.start}
+     * @param name     the name of the phase within its category
+     * @param begin    the value returned by {@link #begin()}
+     */
+    void end(String category, String name, long begin);
+
+    /**
+     * @return the phases recorded so far, sorted by start time.
+     */
+    List<StartupPhase> getPhases();
+
+    /**
+     * @return the time at which the startup began, in milliseconds since the epoch.
+     */
+    long getStartTime();
+
+    /**
+     * @return {@code true} if the startup is completed, and so the recording stopped.
+     */
+    boolean isCompleted();
+
+}
@@ -0,0 +1,64 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import java.io.File;
+
+/**
+ * A {@link Watcher} letting configure the monitoring of the added directories.
+ * <p>
+ * These options are not part of the {@link Watcher} interface, so the existing implementations of this interface are
+ * not broken. The Chameleon directory monitor is registered under both interfaces.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public interface WatcherOptions extends Watcher {
+
+    /**
+     * Adds a directory to the watcher. If `polling` is not -1, the directory is monitored,
+     * otherwise only the initial provisioning is done. If `nativeNotifications` is true, the monitoring relies on the
+     * file system notifications instead of polling the directory. If the file system does not support
+     * notifications, the directory is polled using the given period.
+     *
+     * @param directory           the directory
+     * @param polling             the polling period in ms, -1 to disable the watch.
+     * @param nativeNotifications {@literal true} to use the file system notifications.
+     * @return {@literal true} if the directory was added, {@literal false} otherwise.
+     */
+    public boolean add(File directory, long polling, boolean nativeNotifications);
+
+    /**
+     * Adds a directory to the watcher. If `polling` is not -1, the directory is monitored,
+     * otherwise only the initial provisioning is done. If `nativeNotifications` is true, the monitoring relies on the
+     * file system notifications instead of polling the directory. If `quietPeriod` is greater than 0, file events
+     * are held back until the file has not changed for this period, and the events received in the meantime are
+     * merged, so deployers are notified once the file is completely written.
+     *
+     * @param directory           the directory
+     * @param polling             the polling period in ms, -1 to disable the watch.
+     * @param nativeNotifications {@literal true} to use the file system notifications.
+     * @param quietPeriod         the quiet period in ms, 0 to notify the deployers immediately.
+     * @return {@literal true} if the directory was added, {@literal false} otherwise.
+     */
+    public boolean add(File directory, long polling, boolean nativeNotifications, long quietPeriod);
+
+}
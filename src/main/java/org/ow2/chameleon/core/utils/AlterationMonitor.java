@@ -0,0 +1,45 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+/**
+ * Monitors a directory and notifies its observers when files are created, changed or deleted.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public interface AlterationMonitor {
+
+    /**
+     * Starts the monitoring.
+     *
+     * @throws Exception if the monitoring cannot be started, or is already started.
+     */
+    void start() throws Exception;
+
+    /**
+     * Stops the monitoring.
+     *
+     * @throws Exception if the monitoring cannot be stopped, or is not started.
+     */
+    void stop() throws Exception;
+
+}
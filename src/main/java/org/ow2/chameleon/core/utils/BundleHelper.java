@@ -25,12 +25,11 @@ import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceRegistration;
 import org.slf4j.LoggerFactory;
 
-import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Dictionary;
-import java.util.jar.JarFile;
+import java.util.Map;
 import java.util.jar.Manifest;
 
 /**
@@ -46,15 +45,54 @@ public final class BundleHelper {
      */
     public static final String MANIFEST = "META-INF/MANIFEST.MF";
 
+    /**
+     * The cache of the manifests of the jar files.
+     */
+    private static final ManifestCache MANIFESTS = new ManifestCache();
+
     private BundleHelper() {
         // Avoid direct instantiation
     }
 
+    /**
+     * Gets the cache of the manifests of the jar files, shared by all the checks made by this class.
+     *
+     * @return the manifest cache
+     * @since 1.10.8
+     */
+    public static ManifestCache getManifestCache() {
+        return MANIFESTS;
+    }
+
+    /**
+     * Gets the main manifest headers of the given jar file, from the manifest cache.
+     *
+     * @param file the jar file
+     * @return the headers, {@literal null} if the file cannot be read or does not contain a manifest
+     * @since 1.10.8
+     */
+    public static Map<String, String> getHeaders(File file) {
+        return MANIFESTS.getHeaders(file);
+    }
+
+    /**
+     * Checks whether the given jar file is a fragment, from the manifest cache.
+     *
+     * @param file the jar file
+     * @return {@literal true} if the file is a fragment, {@literal false} otherwise.
+     * @since 1.10.8
+     */
+    public static boolean isFragment(File file) {
+        Map<String, String> headers = MANIFESTS.getHeaders(file);
+        return headers != null && headers.get(Constants.FRAGMENT_HOST) != null;
+    }
+
     /**
      * Checks whether the given file is a bundle or not.
      * The check is based on the {@literal Bundle-ManifestVersion} header.
      * If the file is a directory this method checks if the directory is an exploded bundle.
-     * If the file is a jar file, it checks the manifest.
+     * If the file is a jar file, it checks the manifest. The manifest of jar files is read once, and cached until
+     * the file changes.
      *
      * @param file the file.
      * @return {@literal true} if it's a bundle, {@literal false} otherwise.
@@ -62,28 +100,10 @@ public final class BundleHelper {
     public static boolean isBundle(File file) {
 
         if (file.isFile() && file.getName().endsWith(".jar")) {
-            JarFile jar = null;
-            try {
-                jar = new JarFile(file);
-                return jar.getManifest() != null && jar.getManifest().getMainAttributes() != null
-                        && jar.getManifest().getMainAttributes().getValue(Constants.BUNDLE_SYMBOLICNAME) != null;
-                // We check the symbolic name because it's the only mandatory header
-                // see http://wiki.osgi.org/wiki/Bundle-SymbolicName.
-            } catch (IOException e) {
-                LoggerFactory.getLogger(BundleHelper.class).error("Cannot check if the file {} is a bundle, " +
-                        "cannot open it", file.getName(), e);
-                return false;
-            } finally {
-                final JarFile finalJar = jar;
-                IOUtils.closeQuietly(new Closeable() {
-                    @Override
-                    public void close() throws IOException {
-                        if (finalJar != null) {
-                            finalJar.close();
-                        }
-                    }
-                });
-            }
+            // We check the symbolic name because it's the only mandatory header
+            // see http://wiki.osgi.org/wiki/Bundle-SymbolicName.
+            Map<String, String> headers = MANIFESTS.getHeaders(file);
+            return headers != null && headers.get(Constants.BUNDLE_SYMBOLICNAME) != null;
         }
 
         return isExplodedBundle(file);
@@ -0,0 +1,375 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.wiring.FrameworkWiring;
+import org.ow2.chameleon.core.services.StartupProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Installs and starts sets of bundles.
+ * <p>
+ * Bundles are resolved together once installed. By default, bundles are installed and started sequentially, in
+ * the given order. When several threads are configured, bundles are installed in parallel, and started in
+ * dependency order: a bundle is started once the bundles it depends on ({@literal Import-Package} and
+ * {@literal Require-Bundle} headers) are started. Bundles that do not depend on each other are started in
+ * parallel. The number of threads is bounded.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class BundleInstaller {
+
+    /**
+     * The default number of threads used to install and start bundles: bundles are deployed sequentially, as the
+     * bundle activators may rely on their start order.
+     */
+    public static final int DEFAULT_THREADS = 1;
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BundleInstaller.class);
+
+    private final BundleContext context;
+    private final int threads;
+    private final StartupProfile profile;
+
+    /**
+     * Creates a bundle installer.
+     *
+     * @param context the bundle context used to install the bundles
+     * @param threads the maximum number of threads installing or starting bundles concurrently
+     */
+    public BundleInstaller(BundleContext context, int threads) {
+        this.context = context;
+        this.threads = Math.max(1, threads);
+        this.profile = StartupProfiler.getProfile(context);
+    }
+
+    /**
+     * Installs the bundles from the given locations, in parallel. Errors are logged.
+     *
+     * @param locations the location of the bundle to install, by file
+     * @return the installed bundles, by file, in the order of the given map. The files whose bundle cannot be
+     * installed are not in the map.
+     */
+    public Map<File, Bundle> install(final Map<File, String> locations) {
+        Map<File, Bundle> installed = new LinkedHashMap<File, Bundle>();
+        Map<File, Future<Bundle>> results = new LinkedHashMap<File, Future<Bundle>>();
+        ExecutorService executor = createExecutor(locations.size());
+        try {
+            for (final Map.Entry<File, String> entry : locations.entrySet()) {
+                results.put(entry.getKey(), executor.submit(new Callable<Bundle>() {
+                    @Override
+                    public Bundle call() throws Exception {
+                        LOGGER.info("Installing bundle from {}", entry.getKey().getAbsoluteFile());
+                        long begin = profile.begin();
+                        Bundle bundle = context.installBundle(entry.getValue());
+                        profile.end("bundle.install", entry.getValue(), begin);
+                        return bundle;
+                    }
+                }));
+            }
+            for (Map.Entry<File, Future<Bundle>> result : results.entrySet()) {
+                try {
+                    installed.put(result.getKey(), result.getValue().get());
+                } catch (ExecutionException e) {
+                    LOGGER.error("Error during bundle installation of {}", result.getKey().getAbsoluteFile(),
+                            e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted during the installation of the bundles");
+        } finally {
+            executor.shutdown();
+        }
+        return installed;
+    }
+
+    /**
+     * Resolves the given bundles together, and starts them: in the given order if the bundles are deployed
+     * sequentially, in dependency order otherwise. Fragments are not started. Errors are logged.
+     *
+     * @param bundles the bundles
+     */
+    public void start(Collection<Bundle> bundles) {
+        if (bundles.isEmpty()) {
+            return;
+        }
+        long begin = profile.begin();
+        context.getBundle(0L).adapt(FrameworkWiring.class).resolveBundles(bundles);
+        profile.end("bundle.resolve", bundles.size() + " bundles", begin);
+
+        if (threads == 1) {
+            for (Bundle bundle : bundles) {
+                if (!BundleHelper.isFragment(bundle)) {
+                    start(bundle);
+                }
+            }
+            return;
+        }
+
+        List<List<Bundle>> levels = getStartOrder(bundles);
+        ExecutorService executor = createExecutor(bundles.size());
+        try {
+            for (List<Bundle> level : levels) {
+                List<Future<?>> results = new ArrayList<Future<?>>();
+                for (final Bundle bundle : level) {
+                    results.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            start(bundle);
+                        }
+                    }));
+                }
+                // Wait for the level to be started before starting the next one.
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted during the starting of the bundles");
+        } catch (ExecutionException e) {
+            // Cannot happen, start catches the exceptions.
+            LOGGER.error("Error during the starting of the bundles", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void start(Bundle bundle) {
+        if (bundle.getState() == Bundle.ACTIVE || bundle.getState() == Bundle.UNINSTALLED) {
+            return;
+        }
+        try {
+            LOGGER.info("Starting bundle {} - {}", bundle.getSymbolicName(), bundle.getLocation());
+            long begin = profile.begin();
+            bundle.start();
+            profile.end("bundle.start", bundle.getSymbolicName(), begin);
+        } catch (BundleException e) {
+            LOGGER.error("Error during the starting of {}", bundle.getSymbolicName(), e);
+        } catch (RuntimeException e) { //NOSONAR
+            LOGGER.error("Error during the starting of {}", bundle.getSymbolicName(), e);
+        }
+    }
+
+    private ExecutorService createExecutor(int tasks) {
+        int size = Math.min(threads, tasks);
+        if (size <= 1) {
+            return new CallerRunsExecutor();
+        }
+        return Executors.newFixedThreadPool(size, new MonitorThreadFactory("deployment"));
+    }
+
+    /**
+     * Computes the order in which the given bundles must be started. The bundles are split into levels: the
+     * bundles of a level only depend on bundles from the previous levels (or bundles not contained in the given
+     * collection), so the bundles of a level can be started concurrently. Dependency cycles are broken by starting
+     * one of the bundles of the cycle first. Fragments are excluded.
+     *
+     * @param bundles the bundles
+     * @return the levels, in start order
+     */
+    public static List<List<Bundle>> getStartOrder(Collection<Bundle> bundles) {
+        List<Bundle> toStart = new ArrayList<Bundle>();
+        Map<String, Bundle> exporters = new HashMap<String, Bundle>();
+        Map<String, Bundle> names = new HashMap<String, Bundle>();
+        for (Bundle bundle : bundles) {
+            if (BundleHelper.isFragment(bundle)) {
+                continue;
+            }
+            toStart.add(bundle);
+            for (String pkg : parseHeader(bundle.getHeaders().get(Constants.EXPORT_PACKAGE))) {
+                if (!exporters.containsKey(pkg)) {
+                    exporters.put(pkg, bundle);
+                }
+            }
+            if (bundle.getSymbolicName() != null) {
+                names.put(bundle.getSymbolicName(), bundle);
+            }
+        }
+
+        // Compute the providers of each bundle.
+        Map<Bundle, Set<Bundle>> providers = new LinkedHashMap<Bundle, Set<Bundle>>();
+        for (Bundle bundle : toStart) {
+            Set<Bundle> set = new HashSet<Bundle>();
+            for (String pkg : parseHeader(bundle.getHeaders().get(Constants.IMPORT_PACKAGE))) {
+                Bundle provider = exporters.get(pkg);
+                if (provider != null && provider != bundle) {
+                    set.add(provider);
+                }
+            }
+            for (String name : parseHeader(bundle.getHeaders().get(Constants.REQUIRE_BUNDLE))) {
+                Bundle provider = names.get(name);
+                if (provider != null && provider != bundle) {
+                    set.add(provider);
+                }
+            }
+            providers.put(bundle, set);
+        }
+
+        List<List<Bundle>> levels = new ArrayList<List<Bundle>>();
+        Set<Bundle> placed = new HashSet<Bundle>();
+        while (placed.size() < providers.size()) {
+            List<Bundle> level = new ArrayList<Bundle>();
+            for (Map.Entry<Bundle, Set<Bundle>> entry : providers.entrySet()) {
+                if (!placed.contains(entry.getKey()) && placed.containsAll(entry.getValue())) {
+                    level.add(entry.getKey());
+                }
+            }
+            if (level.isEmpty()) {
+                // Cycle, break it by starting the first remaining bundle alone.
+                for (Bundle bundle : providers.keySet()) {
+                    if (!placed.contains(bundle)) {
+                        levels.add(Collections.singletonList(bundle));
+                        placed.add(bundle);
+                        break;
+                    }
+                }
+            } else {
+                levels.add(level);
+                placed.addAll(level);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Parses an OSGi manifest header, and returns the paths (package names or symbolic names) of its clauses.
+     * Attributes and directives are ignored.
+     *
+     * @param header the header value, may be {@literal null}
+     * @return the list of paths, empty if the header is {@literal null}
+     */
+    public static List<String> parseHeader(String header) {
+        return parseHeader(header, false);
+    }
+
+    /**
+     * Parses an OSGi manifest header, and returns the paths (package names or symbolic names) of its clauses.
+     * Attributes and directives are ignored.
+     *
+     * @param header       the header value, may be {@literal null}
+     * @param skipOptional whether the clauses with the {@literal resolution:=optional} directive are skipped
+     * @return the list of paths, empty if the header is {@literal null}
+     */
+    public static List<String> parseHeader(String header, boolean skipOptional) {
+        List<String> paths = new ArrayList<String>();
+        if (header == null) {
+            return paths;
+        }
+        boolean quoted = false;
+        boolean parameters = false;
+        boolean optional = false;
+        List<String> clause = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= header.length(); i++) {
+            char c = i == header.length() ? ',' : header.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (quoted) {
+                current.append(c);
+                continue;
+            }
+            if (c == ',' || c == ';') {
+                String token = current.toString().trim();
+                if (!parameters && !token.isEmpty() && token.indexOf('=') == -1) {
+                    clause.add(token);
+                } else if (token.indexOf('=') != -1) {
+                    // Once a parameter is found, the remaining tokens of the clause are parameters.
+                    parameters = true;
+                    optional = optional || isOptional(token);
+                }
+                current.setLength(0);
+                if (c == ',') {
+                    if (!skipOptional || !optional) {
+                        paths.addAll(clause);
+                    }
+                    clause.clear();
+                    parameters = false;
+                    optional = false;
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        return paths;
+    }
+
+    private static boolean isOptional(String parameter) {
+        String[] segments = parameter.split(":=", 2);
+        return segments.length == 2
+                && Constants.RESOLUTION_DIRECTIVE.equals(segments[0].trim())
+                && Constants.RESOLUTION_OPTIONAL.equals(segments[1].trim().replace("\"", ""));
+    }
+
+    /**
+     * An executor running the tasks in the calling thread.
+     */
+    private static class CallerRunsExecutor extends AbstractExecutorService {
+
+        private volatile boolean shutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
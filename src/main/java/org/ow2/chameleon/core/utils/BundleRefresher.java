@@ -0,0 +1,222 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.wiring.FrameworkWiring;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refreshes the bundles impacted by updates and un-installations.
+ * <p>
+ * Only the updated or uninstalled bundles still having a pending removal revision are refreshed, with their
+ * dependency closure: the other bundles of the framework are not restarted. Refresh requests received within the
+ * configured window are merged into a single refresh operation. The refreshes are always executed by a background
+ * thread, so the callers (holding the deployer locks) never wait for the end of a refresh. When the window is
+ * {@literal 0}, the refresh is executed as soon as possible, merging the requests received while a refresh is in
+ * progress. Once the {@link FrameworkEvent#PACKAGES_REFRESHED} event is received, the callback given to the
+ * constructor is called from the background thread (to retry the starts for instance).
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class BundleRefresher {
+
+    /**
+     * The maximum time (in milliseconds) waiting for the end of a refresh.
+     */
+    public static final long REFRESH_TIMEOUT = 30000;
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BundleRefresher.class);
+
+    private final BundleContext context;
+    private final long window;
+    private final Runnable callback;
+
+    /**
+     * The bundles waiting for the next refresh, accessed when holding the refresher lock.
+     */
+    private final Set<Bundle> pending = new LinkedHashSet<Bundle>();
+
+    /**
+     * The executor running the deferred refreshes, created lazily.
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Whether a deferred refresh is scheduled.
+     */
+    private boolean scheduled;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger refreshes = new AtomicInteger();
+
+    /**
+     * Creates a bundle refresher.
+     *
+     * @param context  the bundle context
+     * @param window   the time (in milliseconds) during which the refresh requests are merged, {@literal 0} to
+     *                 refresh as soon as possible
+     * @param callback the callback called after a refresh, may be {@literal null}
+     */
+    public BundleRefresher(BundleContext context, long window, Runnable callback) {
+        this.context = context;
+        this.window = Math.max(0, window);
+        this.callback = callback;
+    }
+
+    /**
+     * Requests the refresh of the given bundles (and their dependents). This method does not wait for the refresh.
+     *
+     * @param bundles the updated or uninstalled bundles
+     */
+    public void refresh(Collection<Bundle> bundles) {
+        if (bundles.isEmpty()) {
+            return;
+        }
+        requests.incrementAndGet();
+        synchronized (this) {
+            pending.addAll(bundles);
+            if (!scheduled) {
+                if (executor == null) {
+                    executor = Executors.newSingleThreadScheduledExecutor(new MonitorThreadFactory("refresh"));
+                }
+                scheduled = true;
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (flush()) {
+                            runCallback();
+                        }
+                    }
+                }, window, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void runCallback() {
+        if (callback != null) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) { //NOSONAR
+                LOGGER.error("Error while executing the post-refresh callback", e);
+            }
+        }
+    }
+
+    /**
+     * Refreshes the pending bundles, and waits for the end of the refresh. This method is called by the background
+     * thread.
+     *
+     * @return {@literal true} if bundles were refreshed, {@literal false} otherwise.
+     */
+    private boolean flush() {
+        Set<Bundle> requested;
+        synchronized (this) {
+            requested = new LinkedHashSet<Bundle>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+        if (requested.isEmpty()) {
+            return false;
+        }
+
+        try {
+            FrameworkWiring wiring = context.getBundle(0L).adapt(FrameworkWiring.class);
+            // Bundles without removal pending revisions do not need to be refreshed.
+            Collection<Bundle> removalPending = wiring.getRemovalPendingBundles();
+            requested.retainAll(removalPending);
+            if (requested.isEmpty()) {
+                LOGGER.debug("No bundle to refresh");
+                return false;
+            }
+
+            Collection<Bundle> closure = wiring.getDependencyClosure(requested);
+            LOGGER.debug("Refreshing {} bundles to cleanup stale references of {}", closure.size(), requested);
+            final CountDownLatch latch = new CountDownLatch(1);
+            wiring.refreshBundles(closure, new FrameworkListener() {
+                @Override
+                public void frameworkEvent(FrameworkEvent event) {
+                    if (event.getThrowable() != null) { //NOSONAR
+                        LOGGER.error("An error was detected while refreshing the bundles", event.getThrowable());
+                    }
+                    if (event.getType() == FrameworkEvent.PACKAGES_REFRESHED) {
+                        latch.countDown();
+                    }
+                }
+            });
+            refreshes.incrementAndGet();
+            if (!latch.await(REFRESH_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("The refresh of {} did not complete within {} ms", requested, REFRESH_TIMEOUT);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for the end of the refresh");
+            return false;
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Cannot refresh the bundles - the framework is either stopping or restarting");
+            LOGGER.debug("Invalid bundle context", e);
+            return false;
+        }
+    }
+
+    /**
+     * Stops the refresher. The pending refresh requests are discarded.
+     */
+    public void close() {
+        ScheduledExecutorService toShutdown;
+        synchronized (this) {
+            pending.clear();
+            scheduled = false;
+            toShutdown = executor;
+            executor = null;
+        }
+        if (toShutdown != null) {
+            toShutdown.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of refresh requests received.
+     */
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of refresh operations executed.
+     */
+    public int getRefreshCount() {
+        return refreshes.get();
+    }
+}
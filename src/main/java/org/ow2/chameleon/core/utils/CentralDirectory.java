@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Walks the central directory of a zip archive, using positional reads. Nothing is decompressed.
+ * <p>
+ * The end of central directory record is located first, then the central directory is read by windows. Zip64
+ * archives are not supported, a {@link UnsupportedArchiveException} is thrown. The offsets are read as they are, so
+ * archives with prepended data (launch scripts, self-extracting stubs) are reported as invalid. In both cases, the
+ * callers fall back to the JDK classes.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+final class CentralDirectory {
+
+    static final int CEN_SIZE = 46;
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+
+    /**
+     * The size of the window used to scan the central directory.
+     */
+    private static final int WINDOW_SIZE = 16 * 1024;
+
+    private CentralDirectory() {
+        // Avoid direct instantiation
+    }
+
+    /**
+     * Visits the entries of the central directory.
+     */
+    interface Visitor {
+        /**
+         * Visits an entry.
+         *
+         * @param buffer     the buffer containing the entry header, followed by the name
+         * @param base       the index of the entry header in the buffer
+         * @param nameLength the length of the name, starting at {@code base + CEN_SIZE}
+         * @return {@literal true} to stop the walk
+         * @throws IOException if the entry cannot be processed
+         */
+        boolean visit(ByteBuffer buffer, int base, int nameLength) throws IOException;
+    }
+
+    /**
+     * Walks the central directory of the archive read from the given channel, until the visitor stops the walk.
+     *
+     * @param channel the channel
+     * @param visitor the visitor
+     * @throws IOException if the archive is invalid, {@link UnsupportedArchiveException} if it is a zip64 archive
+     */
+    static void walk(FileChannel channel, Visitor visitor) throws IOException {
+        long length = channel.size();
+        if (length < EOCD_SIZE) {
+            throw new IOException("Not a zip archive");
+        }
+
+        // Find the end of central directory record, followed by a comment of at most 64K.
+        int tailSize = (int) Math.min(length, EOCD_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = read(channel, length - tailSize, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd == -1) {
+            throw new IOException("Not a zip archive, end of central directory not found");
+        }
+        int entries = tail.getShort(eocd + 10) & 0xFFFF;
+        long size = tail.getInt(eocd + 12) & ZIP64_MAGIC;
+        long offset = tail.getInt(eocd + 16) & ZIP64_MAGIC;
+        if (entries == 0xFFFF || size == ZIP64_MAGIC || offset == ZIP64_MAGIC) {
+            throw new UnsupportedArchiveException();
+        }
+        if (offset + size > length) {
+            throw new IOException("Invalid central directory");
+        }
+
+        long position = offset;
+        long end = offset + size;
+        ByteBuffer window = null;
+        long windowStart = 0;
+        while (position + CEN_SIZE <= end) {
+            if (window == null || position + CEN_SIZE > windowStart + window.limit()) {
+                windowStart = position;
+                window = read(channel, position, (int) Math.min(WINDOW_SIZE, end - position));
+            }
+            int base = (int) (position - windowStart);
+            if (window.getInt(base) != CEN_SIGNATURE) {
+                throw new IOException("Invalid central directory entry");
+            }
+            int nameLength = window.getShort(base + 28) & 0xFFFF;
+            int extraLength = window.getShort(base + 30) & 0xFFFF;
+            int commentLength = window.getShort(base + 32) & 0xFFFF;
+            if (base + CEN_SIZE + nameLength > window.limit()) {
+                // The name crosses the end of the window, read it again from this entry.
+                windowStart = position;
+                window = read(channel, position, (int) Math.min(Math.max(WINDOW_SIZE, CEN_SIZE + nameLength),
+                        end - position));
+                base = 0;
+            }
+            if (visitor.visit(window, base, nameLength)) {
+                return;
+            }
+            position += CEN_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    /**
+     * Reads {@code length} bytes (less if the end of the channel is reached) from the given position.
+     *
+     * @param channel  the channel
+     * @param position the position
+     * @param length   the number of bytes
+     * @return the buffer, in little endian order, ready to be read
+     * @throws IOException if the channel cannot be read
+     */
+    static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Thrown when the archive uses zip features this reader does not support.
+     */
+    static class UnsupportedArchiveException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+}
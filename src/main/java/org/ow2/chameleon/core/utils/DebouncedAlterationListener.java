@@ -0,0 +1,355 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.monitor.FileAlterationListener;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link org.apache.commons.io.monitor.FileAlterationListener} holding file events back until the file has settled.
+ * <p>
+ * Events received for the same file during the quiet period are merged: a creation followed by changes is a
+ * creation, a creation followed by a deletion is dropped, a deletion followed by a creation is a change... Once no
+ * event has been received for the quiet period, the size and last modification date of the file are checked again:
+ * if they have changed, the file is still being written, and the event is postponed by another quiet period.
+ * So, the wrapped listener receives one event per settled file.
+ * <p>
+ * Events are forwarded from a task executed by the {@link org.ow2.chameleon.core.utils.MonitoringEngine}. Events
+ * forwarded together are surrounded by calls to {@code onStart} and {@code onStop}. Directory events are
+ * forwarded immediately.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class DebouncedAlterationListener implements FileAlterationListener, Runnable {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DebouncedAlterationListener.class);
+
+    /**
+     * Event kinds.
+     */
+    private static final int CREATE = 0;
+    private static final int CHANGE = 1;
+    private static final int DELETE = 2;
+
+    /**
+     * The engine executing the flush task.
+     */
+    private final MonitoringEngine engine;
+
+    /**
+     * The quiet period in milliseconds.
+     */
+    private final long quietPeriod;
+
+    /**
+     * The wrapped listener.
+     */
+    private final FileAlterationListener listener;
+
+    /**
+     * The pending events by file, in reception order.
+     */
+    private final Map<File, Pending> pending = new LinkedHashMap<File, Pending>();
+
+    /**
+     * A lock serializing the forwarding of the events.
+     */
+    private final Object forwarding = new Object();
+
+    /**
+     * The observer, received from {@code onStart}.
+     */
+    private FileAlterationObserver observer;
+
+    /**
+     * The scheduled flush task, {@code null} if none.
+     */
+    private ScheduledFuture<?> flush;
+
+    /**
+     * Creates a new debounced listener.
+     *
+     * @param engine      the engine executing the flush task
+     * @param quietPeriod the quiet period in milliseconds
+     * @param listener    the wrapped listener
+     */
+    public DebouncedAlterationListener(MonitoringEngine engine, long quietPeriod, FileAlterationListener listener) {
+        this.engine = engine;
+        this.quietPeriod = quietPeriod;
+        this.listener = listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void onStart(FileAlterationObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onDirectoryCreate(File directory) {
+        listener.onDirectoryCreate(directory);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onDirectoryChange(File directory) {
+        listener.onDirectoryChange(directory);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onDirectoryDelete(File directory) {
+        listener.onDirectoryDelete(directory);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onFileCreate(File file) {
+        record(file, CREATE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onFileChange(File file) {
+        record(file, CHANGE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onFileDelete(File file) {
+        record(file, DELETE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onStop(FileAlterationObserver observer) {
+        // Events are forwarded by the flush task.
+    }
+
+    /**
+     * Drops the pending events and cancels the flush task. Must be called when the monitoring stops.
+     */
+    public synchronized void cancel() {
+        if (!pending.isEmpty()) {
+            LOGGER.debug("Dropping {} pending file events", pending.size());
+            pending.clear();
+        }
+        if (flush != null) {
+            flush.cancel(false);
+            flush = null;
+        }
+    }
+
+    /**
+     * Gets the number of files having unsettled events.
+     *
+     * @return the number of pending files
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Merges the event into the pending events of the file.
+     *
+     * @param file the file
+     * @param kind the kind of event
+     */
+    private synchronized void record(File file, int kind) {
+        Pending event = pending.get(file);
+        if (event == null) {
+            pending.put(file, new Pending(file, kind));
+        } else {
+            int merged = merge(event.kind, kind);
+            if (merged == -1) {
+                // Created and deleted, nothing happened.
+                pending.remove(file);
+            } else {
+                event.kind = merged;
+                event.touch();
+            }
+        }
+        scheduleFlush(quietPeriod);
+    }
+
+    /**
+     * Merges two consecutive events.
+     *
+     * @param previous the kind of the first event
+     * @param next     the kind of the second event
+     * @return the kind of the merged event, {@literal -1} if the events cancel each other.
+     */
+    static int merge(int previous, int next) {
+        if (previous == CREATE) {
+            return next == DELETE ? -1 : CREATE;
+        }
+        if (previous == DELETE) {
+            // Re-created (or changed, which should not happen), it's a change of the file.
+            return next == DELETE ? DELETE : CHANGE;
+        }
+        // Previous is a change.
+        return next;
+    }
+
+    private void scheduleFlush(long delay) {
+        if (flush == null) {
+            try {
+                flush = engine.delay(this, delay);
+            } catch (RejectedExecutionException e) { //NOSONAR the engine is stopping.
+                LOGGER.debug("Cannot schedule the file events forwarding, the monitoring is stopping");
+            }
+        }
+    }
+
+    /**
+     * Forwards the settled events.
+     */
+    @Override
+    public void run() {
+        synchronized (forwarding) {
+            List<Pending> settled = new ArrayList<Pending>();
+            FileAlterationObserver current;
+            synchronized (this) {
+                flush = null;
+                current = observer;
+                long now = System.nanoTime();
+                long next = Long.MAX_VALUE;
+                Iterator<Pending> iterator = pending.values().iterator();
+                while (iterator.hasNext()) {
+                    Pending event = iterator.next();
+                    if (event.isSettled(now)) {
+                        settled.add(event);
+                        iterator.remove();
+                    } else {
+                        next = Math.min(next, event.deadline);
+                    }
+                }
+                if (next != Long.MAX_VALUE) {
+                    scheduleFlush(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(next - now)));
+                }
+            }
+
+            if (!settled.isEmpty()) {
+                forward(current, settled);
+            }
+        }
+    }
+
+    private void forward(FileAlterationObserver current, List<Pending> settled) {
+        try {
+            listener.onStart(current);
+            for (Pending event : settled) {
+                switch (event.kind) {
+                    case CREATE:
+                        listener.onFileCreate(event.file);
+                        break;
+                    case CHANGE:
+                        listener.onFileChange(event.file);
+                        break;
+                    default:
+                        listener.onFileDelete(event.file);
+                        break;
+                }
+            }
+            listener.onStop(current);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while forwarding the file events", e);
+        }
+    }
+
+    /**
+     * A pending event.
+     */
+    private class Pending {
+
+        private final File file;
+        private int kind;
+        private long length;
+        private long modified;
+        private long deadline;
+
+        private Pending(File file, int kind) {
+            this.file = file;
+            this.kind = kind;
+            touch();
+        }
+
+        /**
+         * Records the current state of the file and postpones the deadline.
+         */
+        private void touch() {
+            length = file.length();
+            modified = file.lastModified();
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(quietPeriod);
+        }
+
+        /**
+         * Checks whether the file has settled. If the quiet period is over but the file has been modified, the
+         * deadline is postponed.
+         *
+         * @param now the current time in nanoseconds
+         * @return {@literal true} if the event can be forwarded
+         */
+        private boolean isSettled(long now) {
+            if (now < deadline) {
+                return false;
+            }
+            if (kind == DELETE) {
+                return true;
+            }
+            if (!file.isFile() || file.length() != length || file.lastModified() != modified) {
+                // Still being written, or about to be reported as deleted.
+                touch();
+                return false;
+            }
+            return true;
+        }
+    }
+}
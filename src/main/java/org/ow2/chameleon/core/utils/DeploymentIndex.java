@@ -0,0 +1,322 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The index of the files deployed as bundles. For each file, it stores the size and last modification date of the
+ * file, and the id and location of the installed bundle. The digest of the file content is only computed when the
+ * file is suspected to have changed (same size, different modification date), and kept to recognize the files
+ * rewritten with the same content.
+ * <p>
+ * The index is persisted in the framework storage area, so it lives as long as the framework cache. When the cache
+ * is retained between two executions (i.e. {@literal org.osgi.framework.storage.clean} is not
+ * {@literal onFirstInit}), it lets the deployer reuse the already installed bundles whose file has not changed.
+ * Otherwise, the {@link #disabled()} index is used.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class DeploymentIndex {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeploymentIndex.class);
+
+    /**
+     * The separator of the entry fields.
+     */
+    private static final String SEPARATOR = ",";
+
+    /**
+     * The file storing the index, {@literal null} if the index is not persisted.
+     */
+    private final File storage;
+
+    /**
+     * Whether the index records the files.
+     */
+    private final boolean enabled;
+
+    /**
+     * The entries, by absolute file path.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    /**
+     * Whether the entries have changed since the last save.
+     */
+    private boolean dirty;
+
+    /**
+     * Creates an index.
+     *
+     * @param storage the file storing the index, {@literal null} to keep the index in memory only.
+     */
+    public DeploymentIndex(File storage) {
+        this(storage, true);
+    }
+
+    private DeploymentIndex(File storage, boolean enabled) {
+        this.storage = storage;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Creates an index recording nothing, used when the framework cache is not retained between two executions.
+     *
+     * @return the disabled index
+     */
+    public static DeploymentIndex disabled() {
+        return new DeploymentIndex(null, false);
+    }
+
+    /**
+     * Loads the index from its storage file. Invalid entries are ignored.
+     */
+    public synchronized void load() {
+        entries.clear();
+        dirty = false;
+        if (storage == null || !storage.isFile()) {
+            return;
+        }
+        Properties properties = new Properties();
+        InputStream stream = null;
+        try {
+            stream = new FileInputStream(storage);
+            properties.load(stream);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read the deployment index {}, ignoring it", storage.getAbsolutePath(), e);
+            return;
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+        for (String path : properties.stringPropertyNames()) {
+            Entry entry = Entry.parse(properties.getProperty(path));
+            if (entry == null) {
+                LOGGER.debug("Ignoring invalid entry of the deployment index for {}", path);
+            } else {
+                entries.put(path, entry);
+            }
+        }
+        LOGGER.debug("{} entries loaded from the deployment index {}", entries.size(), storage.getAbsolutePath());
+    }
+
+    /**
+     * Writes the index to its storage file, if it has changed since the last save. The file is replaced atomically
+     * (when supported by the file system).
+     */
+    public synchronized void save() {
+        if (storage == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        Properties properties = new Properties();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        File tmp = new File(storage.getParentFile(), storage.getName() + ".tmp");
+        OutputStream stream = null;
+        try {
+            FileUtils.forceMkdir(storage.getParentFile());
+            stream = new FileOutputStream(tmp);
+            properties.store(stream, "Chameleon deployment index");
+            stream.close();
+            stream = null;
+            if (!tmp.renameTo(storage)) {
+                FileUtils.deleteQuietly(storage);
+                FileUtils.moveFile(tmp, storage);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write the deployment index {}", storage.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Gets the entry of the given file.
+     *
+     * @param file the file
+     * @return the entry, {@literal null} if the file is not indexed
+     */
+    public synchronized Entry get(File file) {
+        return entries.get(file.getAbsolutePath());
+    }
+
+    /**
+     * Indexes the given file, deployed as the given bundle. Only the size and last modification date of the file
+     * are recorded, the file is not read.
+     *
+     * @param file   the file
+     * @param bundle the bundle
+     */
+    public synchronized void put(File file, Bundle bundle) {
+        if (!enabled) {
+            return;
+        }
+        entries.put(file.getAbsolutePath(), new Entry(file.length(), file.lastModified(), null,
+                bundle.getBundleId(), bundle.getLocation()));
+        dirty = true;
+    }
+
+    /**
+     * Removes the given file from the index.
+     *
+     * @param file the file
+     */
+    public synchronized void remove(File file) {
+        if (entries.remove(file.getAbsolutePath()) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Checks whether the given file is the file indexed for it. The file is unchanged if its size and last
+     * modification date are unchanged. If only the date has changed, the digest of the file is computed (outside of
+     * the index lock), and compared to the digest recorded by a previous check, if any. The entry is then updated
+     * with the current date and digest, so the file is not read again until it changes.
+     *
+     * @param file the file
+     * @return {@literal true} if the file has not changed since it was indexed, {@literal false} otherwise
+     * (including when the file is not indexed).
+     */
+    public boolean matches(File file) {
+        Entry entry = get(file);
+        if (entry == null || file.length() != entry.size) {
+            return false;
+        }
+        if (entry.isUpToDate(file)) {
+            return true;
+        }
+        String digest;
+        try {
+            digest = toHex(FileDigests.digest(file));
+        } catch (IOException e) {
+            LOGGER.debug("Cannot compute the digest of {}", file.getAbsolutePath(), e);
+            return false;
+        }
+        synchronized (this) {
+            if (entries.get(file.getAbsolutePath()) == entry) {
+                entries.put(file.getAbsolutePath(), new Entry(file.length(), file.lastModified(), digest,
+                        entry.bundleId, entry.location));
+                dirty = true;
+            }
+        }
+        return digest.equals(entry.digest);
+    }
+
+    /**
+     * Gets the indexed files.
+     *
+     * @return the set of indexed files
+     */
+    public synchronized Set<File> getFiles() {
+        Set<File> files = new LinkedHashSet<File>();
+        for (String path : entries.keySet()) {
+            files.add(new File(path));
+        }
+        return files;
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * An entry of the index.
+     */
+    public static final class Entry {
+
+        private final long size;
+        private final long lastModified;
+        /**
+         * The digest of the content, {@literal null} if not computed.
+         */
+        private final String digest;
+        private final long bundleId;
+        private final String location;
+
+        Entry(long size, long lastModified, String digest, long bundleId, String location) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+            this.bundleId = bundleId;
+            this.location = location;
+        }
+
+        /**
+         * Parses an entry. The location is the last field as it may contain the separator.
+         *
+         * @param value the serialized entry
+         * @return the entry, {@literal null} if the value is invalid
+         */
+        static Entry parse(String value) {
+            String[] fields = value.split(SEPARATOR, 5);
+            if (fields.length != 5) {
+                return null;
+            }
+            try {
+                return new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        fields[2].isEmpty() ? null : fields[2], Long.parseLong(fields[3]), fields[4]);
+            } catch (NumberFormatException e) { //NOSONAR
+                return null;
+            }
+        }
+
+        public long getBundleId() {
+            return bundleId;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        /**
+         * Checks whether the size and last modification date of the given file are the indexed ones.
+         *
+         * @param file the file
+         * @return {@literal true} if the size and last modification date are unchanged, {@literal false} otherwise.
+         */
+        public boolean isUpToDate(File file) {
+            return file.length() == size && file.lastModified() == lastModified;
+        }
+
+        @Override
+        public String toString() {
+            return size + SEPARATOR + lastModified + SEPARATOR + (digest == null ? "" : digest) + SEPARATOR
+                    + bundleId + SEPARATOR + location;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a digest of the content of the monitored files, to detect change events that do not change the content
+ * (a {@literal touch}, a synchronization tool rewriting identical files...).
+ * <p>
+ * The digests are computed lazily, so starting the monitoring does not read the monitored files. A change of an
+ * unknown file, or changing the size of the file, is reported without reading the file: the digest is computed with
+ * {@link #update(File)} once the change has been dispatched. Only the changes keeping the size of a known file read
+ * it before being reported. Files are read as a stream, so large files are never loaded in memory.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class FileDigests {
+
+    /**
+     * The digest algorithm.
+     */
+    public static final String ALGORITHM = "SHA-1";
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileDigests.class);
+
+    /**
+     * The size of the read buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The digests of the known files.
+     */
+    private final ConcurrentMap<File, Entry> digests = new ConcurrentHashMap<File, Entry>();
+
+    /**
+     * The number of suppressed change events.
+     */
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * Computes and stores the digest of the given file.
+     *
+     * @param file the file
+     */
+    public void update(File file) {
+        try {
+            long length = file.length();
+            digests.put(file, new Entry(length, digest(file)));
+        } catch (IOException e) {
+            LOGGER.debug("Cannot compute the digest of {}", file.getAbsolutePath(), e);
+            digests.remove(file);
+        }
+    }
+
+    /**
+     * Computes and stores the digest of the given file, unless it is already known.
+     *
+     * @param file the file
+     */
+    public void updateIfMissing(File file) {
+        if (!digests.containsKey(file)) {
+            update(file);
+        }
+    }
+
+    /**
+     * Checks whether the content of the given file has changed since its last digest. If the file is unknown or
+     * its size has changed, the file is not read: its digest is forgotten, and must be computed with
+     * {@link #update(File)}. Otherwise, the new digest is computed and stored. If the content has not changed, the
+     * event is counted as suppressed.
+     *
+     * @param file the file
+     * @return {@literal false} if the content is identical to the last known content, {@literal true} otherwise
+     * (including when the file was unknown or cannot be read).
+     */
+    public boolean hasChanged(File file) {
+        long length = file.length();
+        Entry previous = digests.get(file);
+        if (previous == null || previous.length != length) {
+            digests.remove(file);
+            return true;
+        }
+        byte[] digest;
+        try {
+            digest = digest(file);
+        } catch (IOException e) {
+            LOGGER.debug("Cannot compute the digest of {}", file.getAbsolutePath(), e);
+            digests.remove(file);
+            return true;
+        }
+        digests.put(file, new Entry(length, digest));
+        if (Arrays.equals(previous.digest, digest)) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the digest of the given file.
+     *
+     * @param file the file
+     */
+    public void remove(File file) {
+        digests.remove(file);
+    }
+
+    /**
+     * Forgets the digests of all the files contained in the given directory.
+     *
+     * @param directory the directory
+     */
+    public void removeAll(File directory) {
+        String prefix = directory.getAbsolutePath() + File.separator;
+        Iterator<File> iterator = digests.keySet().iterator();
+        while (iterator.hasNext()) {
+            File file = iterator.next();
+            if (file.getAbsolutePath().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Forgets all the digests.
+     */
+    public void clear() {
+        digests.clear();
+    }
+
+    /**
+     * Gets the number of files having a digest.
+     *
+     * @return the number of known files
+     */
+    public int size() {
+        return digests.size();
+    }
+
+    /**
+     * Gets the number of change events suppressed because the content of the file has not changed.
+     *
+     * @return the number of suppressed events
+     */
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    /**
+     * Computes the digest of the given file.
+     *
+     * @param file the file
+     * @return the digest
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] digest(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The " + ALGORITHM + " algorithm is not available", e);
+        }
+        InputStream stream = null;
+        try {
+            stream = new FileInputStream(file);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * The digest of a file, and the size of the file when it was computed.
+     */
+    private static final class Entry {
+        private final long length;
+        private final byte[] digest;
+
+        private Entry(long length, byte[] digest) {
+            this.length = length;
+            this.digest = digest;
+        }
+    }
+}
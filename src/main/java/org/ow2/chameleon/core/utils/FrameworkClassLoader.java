@@ -31,10 +31,10 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The classloader responsible to load the framework classes and providing access to the classes and resources from
@@ -43,9 +43,16 @@ import java.util.Map;
  * <p>
  * The Framework is loaded in a different classloader to access the jar contained in the 'libs' directory.
  * Notice that the framework jar must be in the Chameleon's classpath.
+ * <p>
+ * The packages contained in the 'libs' jars are indexed once (see {@link JarScanner#getPackageScanCache()}), so
+ * the lookup of a class from another package does not search the 'libs' jars. The classloader is parallel capable.
  */
 public final class FrameworkClassLoader extends URLClassLoader {
 
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
     /**
      * The set of packages that need to be defined by the classloader (and not loaded by the parent).
      */
@@ -56,7 +63,27 @@ public final class FrameworkClassLoader extends URLClassLoader {
     /**
      * The set of defined classes.
      */
-    private Map<String, Class> classes = new HashMap<String, Class>();
+    private final ConcurrentMap<String, Class> classes = new ConcurrentHashMap<String, Class>();
+
+    /**
+     * The packages contained in the jars of the 'libs' directory.
+     */
+    private final Set<String> packages;
+
+    /**
+     * The number of class loadings served by the 'libs' jars.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of class loadings not served by the 'libs' jars.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The names of the loaded classes, {@code null} once the recording is stopped.
+     */
+    private volatile Set<String> loaded = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     /**
      * A classloader limited to the jars contained in the 'libs' directory. This classloader is used to ensure the
@@ -66,6 +93,31 @@ public final class FrameworkClassLoader extends URLClassLoader {
      */
     protected final URLClassLoader libsClassLoader;
 
+    /**
+     * A classloader searching the jars of the 'libs' directory only for the classes of the indexed packages.
+     */
+    private static final class LibsClassLoader extends URLClassLoader {
+
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        private final FrameworkClassLoader index;
+
+        private LibsClassLoader(URL[] urls, ClassLoader parent, FrameworkClassLoader index) {
+            super(urls, parent);
+            this.index = index;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (!index.isIndexed(name)) {
+                throw new ClassNotFoundException(name);
+            }
+            return super.findClass(name);
+        }
+    }
+
     /**
      * Gets an instance of {@link org.ow2.chameleon.core.utils.FrameworkClassLoader}.
      *
@@ -111,6 +163,7 @@ public final class FrameworkClassLoader extends URLClassLoader {
      */
     private FrameworkClassLoader(File basedir, String librariesParentPolicy) {
         super(jars(new File(basedir.getAbsoluteFile(), "libs")), FrameworkClassLoader.class.getClassLoader());
+        packages = index(new File(basedir.getAbsoluteFile(), "libs"));
 
         ClassLoader parent = null;
         if (librariesParentPolicy == null || "system".equalsIgnoreCase(librariesParentPolicy)) {
@@ -124,8 +177,104 @@ public final class FrameworkClassLoader extends URLClassLoader {
                     " supported: {system, application and parent}");
         }
 
-        libsClassLoader = new URLClassLoader(jars(new File(basedir.getAbsoluteFile(), "libs")),
-                parent);
+        libsClassLoader = new LibsClassLoader(getURLs(), parent, this);
+    }
+
+    /**
+     * Computes the set of packages contained in the jars of the given directory.
+     *
+     * @param dir the directory
+     * @return the set of package names
+     */
+    private static Set<String> index(File dir) {
+        Set<String> names = new HashSet<String>();
+        if (dir.isDirectory()) {
+            Collection<Set<Pckg>> scans = JarScanner.getPackageScanCache().getPackagesByJar(
+                    FileUtils.listFiles(dir, new String[]{"jar"}, true), PackageScanCache.DEFAULT_THREADS).values();
+            for (Set<Pckg> scan : scans) {
+                for (Pckg pckg : scan) {
+                    names.add(pckg.name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Checks whether the given class may be contained in the jars of the 'libs' directory, i.e. its package is
+     * indexed. Classes from the default package are not indexed, so they are always searched.
+     *
+     * @param name the class name
+     * @return {@code true} if the class may be contained in a 'libs' jar
+     */
+    private boolean isIndexed(String name) {
+        int index = name.lastIndexOf('.');
+        return index == -1 || packages.contains(name.substring(0, index));
+    }
+
+    /**
+     * Searches the class in the jars of the 'libs' directory, only if its package is indexed.
+     *
+     * @param name the class name
+     * @return the class
+     * @throws ClassNotFoundException if the class is not contained in the 'libs' jars
+     */
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        if (!isIndexed(name)) {
+            throw new ClassNotFoundException(name);
+        }
+        return super.findClass(name);
+    }
+
+    /**
+     * @return the number of classes loaded from the 'libs' jars. The framework classes defined by this classloader are
+     * not counted.
+     * @since 1.10.8
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of classes not loaded from the 'libs' jars (loaded from the parent classloaders, or not
+     * found), whether the jars have been searched or skipped as the package is not indexed. The framework classes
+     * defined by this classloader are not counted.
+     * @since 1.10.8
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of packages contained in the 'libs' jars.
+     * @since 1.10.8
+     */
+    public int getIndexedPackageCount() {
+        return packages.size();
+    }
+
+    /**
+     * Gets the names of the classes loaded through this classloader since its creation.
+     *
+     * @return the class names, empty once the recording is stopped
+     * @since 1.10.8
+     */
+    public Set<String> getLoadedClasses() {
+        Set<String> names = loaded;
+        if (names == null) {
+            return Collections.emptySet();
+        }
+        return new TreeSet<String>(names);
+    }
+
+    /**
+     * Stops recording the names of the loaded classes, and releases them.
+     *
+     * @since 1.10.8
+     */
+    public void stopRecording() {
+        loaded = null;
     }
 
 
@@ -163,32 +312,63 @@ public final class FrameworkClassLoader extends URLClassLoader {
      */
     @Override
     public Class loadClass(String name) throws ClassNotFoundException {
-        if (classes.containsKey(name)) {
-            return classes.get(name);
+        Class c = doLoadClass(name);
+        Set<String> names = loaded;
+        if (names != null) {
+            names.add(name);
+        }
+        return c;
+    }
+
+    private Class doLoadClass(String name) throws ClassNotFoundException {
+        Class defined = classes.get(name);
+        if (defined != null) {
+            return defined;
         }
 
         if (hasToBeDefined(name)) {
-            try {
-                byte[] bytes = getByteCode(name);
-                if (bytes.length != 0) {
-                    Class c = defineClass(name, bytes, 0, bytes.length, FrameworkClassLoader.class.getProtectionDomain());
-                    classes.put(name, c);
-                    return c;
+            synchronized (getClassLoadingLock(name)) {
+                // Defined by a concurrent call.
+                defined = classes.get(name);
+                if (defined != null) {
+                    return defined;
+                }
+                try {
+                    byte[] bytes = getByteCode(name);
+                    if (bytes.length != 0) {
+                        Class c = defineClass(name, bytes, 0, bytes.length,
+                                FrameworkClassLoader.class.getProtectionDomain());
+                        classes.put(name, c);
+                        return c;
+                    }
+                } catch (IOException e) { //NOSONAR
+                    // Do nothing, we are going to try with the parent classloader.
                 }
-            } catch (IOException e) { //NOSONAR
-                // Do nothing, we are going to try with the parent classloader.
             }
         }
 
         // We need to ensure that classes are loaded from libs first, to avoid conflicts with the classpath.
+        Class c;
         try {
-            return libsClassLoader.loadClass(name);
+            c = libsClassLoader.loadClass(name);
         } catch (ClassNotFoundException e) {
             // Cannot be found with the lib classloader, just delegate to parent.
-            // Yes, the same classes will be analyzed than the previous attempt, but in the right order.
-            // Indeed, the url class loader delegates to the parent first, and then checks its own content.
-            return super.loadClass(name);
+            // The url class loader delegates to the parent first, and then checks its own content, only if the
+            // package of the class is contained in the 'libs' jars.
+            try {
+                c = super.loadClass(name);
+            } catch (ClassNotFoundException notFound) {
+                misses.incrementAndGet();
+                throw notFound;
+            }
+        }
+        ClassLoader loader = c.getClassLoader();
+        if (loader == libsClassLoader || loader == this) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
         }
+        return c;
     }
 
 
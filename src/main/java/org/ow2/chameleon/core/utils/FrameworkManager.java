@@ -24,6 +24,7 @@ import org.osgi.framework.launch.Framework;
 import org.ow2.chameleon.core.Chameleon;
 import org.ow2.chameleon.core.ChameleonConfiguration;
 import org.ow2.chameleon.core.Constants;
+import org.ow2.chameleon.core.services.StartupProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +46,12 @@ public class FrameworkManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(FrameworkManager.class);
     private final ChameleonConfiguration configuration;
     private final Chameleon chameleon;
+    private final StartupProfile profile;
+
+    /**
+     * The category of the startup phases recorded by the manager.
+     */
+    private static final String PROFILE_CATEGORY = "framework";
 
     /**
      * Creates the framework manager.
@@ -56,7 +63,10 @@ public class FrameworkManager {
     public FrameworkManager(Chameleon chameleon, ChameleonConfiguration configuration) throws IOException {
         this.configuration = configuration;
         this.chameleon = chameleon;
+        this.profile = chameleon.profile();
+        long begin = profile.begin();
         framework = FrameworkUtil.create(configuration.getBaseDirectory(), configuration);
+        profile.end(PROFILE_CATEGORY, "create", begin);
     }
 
     /**
@@ -86,7 +96,10 @@ public class FrameworkManager {
      *                                            correctly.
      */
     public Framework start() throws BundleException {
+        long begin = profile.begin();
         framework.init();
+        profile.end(PROFILE_CATEGORY, "init", begin);
+        framework.getBundleContext().registerService(StartupProfile.class, profile, null);
 
         if (configuration.isInteractiveModeEnabled()) {
             // The interactive mode is enabled, to avoid issue during the stopping sequence we listen for a specific
@@ -110,11 +123,15 @@ public class FrameworkManager {
             }
         }
 
+        begin = profile.begin();
         framework.start();
+        profile.end(PROFILE_CATEGORY, "start", begin);
 
         for (BundleActivator activator : activators) {
             try {
+                begin = profile.begin();
                 activator.start(framework.getBundleContext());
+                profile.end("activator.start", activator.getClass().getSimpleName(), begin);
             } catch (Exception e) {
                 LOGGER.error("Cannot start internal activator : {}", activator, e);
                 throw new BundleException("Cannot start internal activator : " + activator + " : " + e.getMessage(),
@@ -21,11 +21,17 @@ package org.ow2.chameleon.core.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +40,11 @@ import java.util.regex.Pattern;
  */
 public class JarScanner {
 
+    /**
+     * The cache of the packages found in the jar files.
+     */
+    private static final PackageScanCache PACKAGES = new PackageScanCache();
+
     /**
      * A regex that extract the version from a file name.
      * The group 1 contains the extracted version number without classifier or SNAPSHOT.
@@ -41,6 +52,17 @@ public class JarScanner {
     static final Pattern FUZZY_VERSION = Pattern.compile(".*-(\\d+)(\\.(\\d+)(\\.(\\d+))?)?([^a-zA-Z0-9](.*))?.jar",
             Pattern.DOTALL);
 
+    /**
+     * Gets the cache of the packages found in the jar files, shared by the scan of the {@literal libs} directory and
+     * the {@link FrameworkClassLoader}.
+     *
+     * @return the cache
+     * @since 1.10.8
+     */
+    public static PackageScanCache getPackageScanCache() {
+        return PACKAGES;
+    }
+
     /**
      * Guesses the version of the jar file based on naming rules.
      *
@@ -132,9 +154,13 @@ public class JarScanner {
      * If the given file's name does not end with {@literal .jar}, {@code null} is returned.
      * <p>
      * This methods also try to guess the version of the jar file. If it can't be guesses, {@literal 0.0.0} is used.
+     * <p>
+     * Only the names of the entries are read, from the central directory of the archive (see
+     * {@link CentralDirectory}). Nothing is decompressed and the file is closed when this method returns. The
+     * archives the central directory reader cannot handle are read with {@link ZipFile}.
      *
      * @param jarFile the file to scan
-     * @return the set of packages to be exported
+     * @return the set of packages to be exported, sorted by name
      * @throws IOException if the file cannot be read
      */
     public static Set<Pckg> scan(File jarFile) throws IOException {
@@ -149,9 +175,112 @@ public class JarScanner {
             version = "0.0.0";
         }
 
-        JarFile jar = new JarFile(jarFile);
+        Set<String> names = new TreeSet<String>();
+        RandomAccessFile raf = new RandomAccessFile(jarFile, "r");
+        try {
+            CentralDirectory.walk(raf.getChannel(), new PackageCollector(names));
+        } catch (IOException e) { //NOSONAR
+            // Zip64 archive, or archive the fast path cannot read (such as a jar prefixed by a launch script).
+            names.clear();
+            scanWithZipFile(jarFile, names);
+        } finally {
+            raf.close();
+        }
+
+        Set<Pckg> packages = new LinkedHashSet<Pckg>();
+        for (String name : names) {
+            packages.add(new Pckg(name, version));
+        }
+        return packages;
+    }
+
+    private static void scanWithZipFile(File file, Set<String> names) throws IOException {
+        ZipFile zip = new ZipFile(file);
+        try {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = getPackageName(entries.nextElement().getName());
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+        } finally {
+            zip.close();
+        }
+    }
 
-        return scan(jar, version);
+    /**
+     * Computes the name of the package containing the given entry.
+     *
+     * @param entry the entry name
+     * @return the package name, {@code null} for directories, the default package and the "META-INF" directory.
+     */
+    static String getPackageName(String entry) {
+        int index = entry.lastIndexOf('/');
+        if (index <= 0 || index == entry.length() - 1) {
+            return null;
+        }
+        return getPackageNameOfDirectory(entry.substring(0, index));
+    }
+
+    private static String getPackageNameOfDirectory(String directory) {
+        if (directory.startsWith("META-INF")) {
+            return null;
+        }
+        return directory.replace('/', '.');
+    }
+
+    /**
+     * Collects the package names from the central directory. Only the directory part of the names is decoded, and
+     * only when it differs from the directory of the previous entry (entries of a package are usually contiguous).
+     */
+    private static final class PackageCollector implements CentralDirectory.Visitor {
+        private final Set<String> names;
+        private byte[] previous = new byte[0];
+
+        private PackageCollector(Set<String> names) {
+            this.names = names;
+        }
+
+        @Override
+        public boolean visit(ByteBuffer buffer, int base, int nameLength) throws IOException {
+            int start = base + CentralDirectory.CEN_SIZE;
+            if (nameLength == 0 || buffer.get(start + nameLength - 1) == '/') {
+                // Directory entry.
+                return false;
+            }
+            int slash = -1;
+            for (int i = nameLength - 1; i >= 0; i--) {
+                if (buffer.get(start + i) == '/') {
+                    slash = i;
+                    break;
+                }
+            }
+            if (slash <= 0 || isSameDirectory(buffer, start, slash)) {
+                return false;
+            }
+            previous = new byte[slash];
+            for (int i = 0; i < slash; i++) {
+                previous[i] = buffer.get(start + i);
+            }
+            String name = getPackageNameOfDirectory(new String(previous, "UTF-8"));
+            if (name != null) {
+                names.add(name);
+            }
+            return false;
+        }
+
+        private boolean isSameDirectory(ByteBuffer buffer, int start, int length) {
+            if (length != previous.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(start + i) != previous[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
     /**
@@ -0,0 +1,268 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of the main manifest headers of jar files.
+ * <p>
+ * Entries are keyed by the canonical path of the file, and are valid as long as the size and the last modification
+ * date of the file are unchanged. Jar files without manifest are also cached, so they are not opened again. The
+ * manifests are read with the {@link ManifestReader}. The cache can be saved to a file and reloaded on the next
+ * execution.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class ManifestCache {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManifestCache.class);
+
+    /**
+     * The version of the storage format.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Gets the main headers of the manifest of the given jar file, reading the file only if it is not in the cache
+     * or if it has changed.
+     *
+     * @param file the jar file
+     * @return the headers (unmodifiable), {@literal null} if the file does not exist, cannot be read or does not
+     * contain a manifest
+     */
+    public Map<String, String> getHeaders(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        String key = getKey(file);
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            hits.incrementAndGet();
+            return entry.headers;
+        }
+        misses.incrementAndGet();
+        Map<String, String> headers;
+        try {
+            headers = ManifestReader.read(file);
+        } catch (IOException e) {
+            LOGGER.error("Cannot read the manifest of {}", file.getName(), e);
+            // Do not cache the failure, the file may be being copied.
+            entries.remove(key);
+            return null;
+        }
+        entries.put(key, new Entry(size, lastModified, headers));
+        return headers;
+    }
+
+    private static String getKey(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) { //NOSONAR
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Removes the entry of the given file.
+     *
+     * @param file the file
+     */
+    public void remove(File file) {
+        entries.remove(getKey(file));
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups served from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups reading the file.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Loads the entries stored in the given file. Entries already in the cache are kept. Errors are logged, and the
+     * invalid content is ignored.
+     *
+     * @param storage the file
+     */
+    public void load(File storage) {
+        if (!storage.isFile()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(storage)));
+            if (in.readInt() != FORMAT_VERSION) {
+                LOGGER.info("Ignoring the manifest cache {}, unsupported format", storage.getAbsolutePath());
+                return;
+            }
+            Map<String, Entry> loaded = new HashMap<String, Entry>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int headerCount = in.readInt();
+                Map<String, String> headers = null;
+                if (headerCount >= 0) {
+                    // The header names are case-insensitive.
+                    headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+                    for (int j = 0; j < headerCount; j++) {
+                        headers.put(readString(in), readString(in));
+                    }
+                    headers = Collections.unmodifiableMap(headers);
+                }
+                loaded.put(key, new Entry(size, lastModified, headers));
+            }
+            for (Map.Entry<String, Entry> entry : loaded.entrySet()) {
+                entries.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            LOGGER.debug("{} manifests loaded from {}", loaded.size(), storage.getAbsolutePath());
+        } catch (IOException e) {
+            LOGGER.error("Cannot load the manifest cache from {}", storage.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Saves the entries to the given file. The entries of the files that do not exist anymore are not saved. The
+     * content is written to a temporary file first, renamed once complete.
+     *
+     * @param storage the file
+     */
+    public void save(File storage) {
+        File tmp = new File(storage.getAbsolutePath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            FileUtils.forceMkdir(storage.getAbsoluteFile().getParentFile());
+            Map<String, Entry> toSave = new HashMap<String, Entry>();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (new File(entry.getKey()).isFile()) {
+                    toSave.put(entry.getKey(), entry.getValue());
+                }
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(toSave.size());
+            for (Map.Entry<String, Entry> entry : toSave.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().lastModified);
+                Map<String, String> headers = entry.getValue().headers;
+                if (headers == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(headers.size());
+                    for (Map.Entry<String, String> header : headers.entrySet()) {
+                        writeString(out, header.getKey());
+                        writeString(out, header.getValue());
+                    }
+                }
+            }
+            out.close();
+            out = null;
+            FileUtils.deleteQuietly(storage);
+            FileUtils.moveFile(tmp, storage);
+        } catch (IOException e) {
+            LOGGER.error("Cannot save the manifest cache to {}", storage.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Writes a string without the 64K limit of {@link DataOutputStream#writeUTF(String)}, as some headers (such as
+     * {@literal Export-Package} with {@literal uses} directives) can be large.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * A cache entry.
+     */
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final Map<String, String> headers;
+
+        private Entry(long size, long lastModified, Map<String, String> headers) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.headers = headers;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the main attributes of the manifest of a jar file, without opening it as a {@link JarFile}.
+ * <p>
+ * {@link JarFile} parses the whole central directory of the archive, and may verify its signature. This reader
+ * scans the central directory (see {@link CentralDirectory}) until the {@literal META-INF/MANIFEST.MF} entry is
+ * found, and reads this entry only. The manifest is usually the first
+ * entry of the archive. Only the main section of the manifest is parsed. Archives this reader does not support
+ * (zip64 archives, unsupported compression methods) are read with {@link JarFile}.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public final class ManifestReader {
+
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int LOC_SIZE = 30;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final long ZIP64_MAGIC = CentralDirectory.ZIP64_MAGIC;
+
+    private ManifestReader() {
+        // Avoid direct instantiation
+    }
+
+    /**
+     * Reads the main attributes of the manifest of the given jar file.
+     *
+     * @param file the jar file
+     * @return the main attributes (unmodifiable, with case-insensitive names), {@literal null} if the file does not contain a manifest
+     * @throws IOException if the file cannot be read or is not a valid archive
+     */
+    public static Map<String, String> read(File file) throws IOException {
+        byte[] manifest;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            manifest = readManifestEntry(raf.getChannel());
+        } catch (IOException e) { //NOSONAR
+            // Zip64 archive, or archive the fast path cannot read (such as a jar prefixed by a launch script). The
+            // JDK reader supports them, and reports the archives that are really invalid.
+            return readWithJarFile(file);
+        } finally {
+            raf.close();
+        }
+        if (manifest == null) {
+            return null;
+        }
+        return parseMainAttributes(manifest);
+    }
+
+    /**
+     * Finds and reads the content of the manifest entry.
+     *
+     * @return the uncompressed content of the entry, {@literal null} if the archive does not contain a manifest
+     */
+    private static byte[] readManifestEntry(final FileChannel channel) throws IOException {
+        final byte[][] result = new byte[1][];
+        CentralDirectory.walk(channel, new CentralDirectory.Visitor() {
+            @Override
+            public boolean visit(ByteBuffer window, int base, int nameLength) throws IOException {
+                if (!isManifest(window, base + CentralDirectory.CEN_SIZE, nameLength)) {
+                    return false;
+                }
+                int flags = window.getShort(base + 8) & 0xFFFF;
+                int method = window.getShort(base + 10) & 0xFFFF;
+                long compressed = window.getInt(base + 20) & ZIP64_MAGIC;
+                long uncompressed = window.getInt(base + 24) & ZIP64_MAGIC;
+                long local = window.getInt(base + 42) & ZIP64_MAGIC;
+                if ((flags & 1) != 0 || (method != STORED && method != DEFLATED)
+                        || compressed == ZIP64_MAGIC || uncompressed == ZIP64_MAGIC || local == ZIP64_MAGIC) {
+                    // Encrypted, unsupported compression or zip64 entry.
+                    throw new CentralDirectory.UnsupportedArchiveException();
+                }
+                result[0] = readEntry(channel, local, method, (int) compressed, (int) uncompressed);
+                return true;
+            }
+        });
+        return result[0];
+    }
+
+    private static boolean isManifest(ByteBuffer buffer, int index, int length) {
+        if (length != JarFile.MANIFEST_NAME.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = (char) (buffer.get(index + i) & 0xFF);
+            if (Character.toUpperCase(c) != JarFile.MANIFEST_NAME.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] readEntry(FileChannel channel, long local, int method, int compressed, int uncompressed)
+            throws IOException {
+        ByteBuffer header = CentralDirectory.read(channel, local, LOC_SIZE);
+        if (header.limit() < LOC_SIZE || header.getInt(0) != LOC_SIGNATURE) {
+            throw new IOException("Invalid local file header");
+        }
+        long data = local + LOC_SIZE + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+        ByteBuffer content = CentralDirectory.read(channel, data, compressed);
+        if (content.limit() < compressed) {
+            throw new IOException("Truncated manifest entry");
+        }
+        byte[] bytes = new byte[compressed];
+        content.get(bytes);
+        if (method == STORED) {
+            return bytes;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes);
+            byte[] result = new byte[uncompressed];
+            int count = 0;
+            while (count < uncompressed && !inflater.finished()) {
+                int n = inflater.inflate(result, count, uncompressed - count);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += n;
+            }
+            if (count != uncompressed) {
+                throw new IOException("Invalid manifest entry");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid manifest entry", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Parses the main section of the manifest, ending at the first empty line.
+     */
+    private static Map<String, String> parseMainAttributes(byte[] manifest) throws IOException {
+        int length = manifest.length;
+        for (int i = 0; i < manifest.length; i++) {
+            if (isEmptyLine(manifest, i)) {
+                length = i;
+                break;
+            }
+        }
+        // Manifest requires the last line to be terminated.
+        byte[] main = new byte[length + 1];
+        System.arraycopy(manifest, 0, main, 0, length);
+        main[length] = '\n';
+        return toMap(new Manifest(new ByteArrayInputStream(main)));
+    }
+
+    private static boolean isEmptyLine(byte[] content, int index) {
+        // An empty line starts with a line terminator directly following another one.
+        if (index == 0) {
+            return false;
+        }
+        byte previous = content[index - 1];
+        byte current = content[index];
+        if (previous == '\n') {
+            return current == '\n' || current == '\r';
+        }
+        return previous == '\r' && current == '\r';
+    }
+
+    private static Map<String, String> readWithJarFile(File file) throws IOException {
+        JarFile jar = new JarFile(file, false);
+        try {
+            Manifest manifest = jar.getManifest();
+            return manifest == null ? null : toMap(manifest);
+        } finally {
+            jar.close();
+        }
+    }
+
+    /**
+     * Copies the main attributes of the manifest. The header names are case-insensitive, as in the manifest.
+     */
+    private static Map<String, String> toMap(Manifest manifest) {
+        Map<String, String> headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<Object, Object> attribute : manifest.getMainAttributes().entrySet()) {
+            headers.put(((Attributes.Name) attribute.getKey()).toString(), (String) attribute.getValue());
+        }
+        return Collections.unmodifiableMap(headers);
+    }
+}
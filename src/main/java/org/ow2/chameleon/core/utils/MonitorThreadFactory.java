@@ -47,7 +47,17 @@ public class MonitorThreadFactory implements ThreadFactory {
      * @param directory a {@link java.io.File} object.
      */
     public MonitorThreadFactory(File directory) {
-        this.name = PREFIX + directory.getName();
+        this(directory.getName());
+    }
+
+    /**
+     * Creates a monitor thread factory.
+     *
+     * @param name the suffix of the thread name.
+     * @since 1.10.8
+     */
+    public MonitorThreadFactory(String name) {
+        this.name = PREFIX + name;
     }
 
     /**
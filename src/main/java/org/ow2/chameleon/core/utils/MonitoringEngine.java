@@ -0,0 +1,414 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * The engine running the directory monitoring.
+ * <p>
+ * All monitored directories share a small scheduled thread pool: each polling monitor is a periodic task, and the
+ * periodic tasks are spread over the polling period so they do not all wake up at the same time. Directories
+ * monitored using native notifications share a single watch service, read by a single thread that only dispatches
+ * the checks to the pool. So, the number of threads does not depend on the number of monitored directories.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class MonitoringEngine {
+
+    /**
+     * The default number of threads of the scheduled pool.
+     */
+    public static final int DEFAULT_THREADS = 1;
+
+    /**
+     * The class name of the JDK's watch service implementation used when the platform has no native support.
+     */
+    private static final String POLLING_WATCH_SERVICE = "sun.nio.fs.PollingWatchService";
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitoringEngine.class);
+
+    /**
+     * The number of threads of the scheduled pool.
+     */
+    private final int threads;
+
+    /**
+     * The watched directories (watch keys) and their monitor.
+     */
+    private final Map<WatchKey, NativeAlterationMonitor> keys =
+            new ConcurrentHashMap<WatchKey, NativeAlterationMonitor>();
+
+    /**
+     * The periodic tasks (the directory scans), excluding the one-shot tasks.
+     */
+    private final Set<ScheduledFuture<?>> periodic =
+            Collections.newSetFromMap(new ConcurrentHashMap<ScheduledFuture<?>, Boolean>());
+
+    /**
+     * The scheduled pool, created on demand.
+     */
+    private ScheduledThreadPoolExecutor executor;
+
+    /**
+     * The shared watch service, created on demand.
+     */
+    private WatchService service;
+
+    /**
+     * Whether or not native notifications are not supported, to avoid retrying.
+     */
+    private boolean nativeUnsupported;
+
+    /**
+     * The number of scheduled periodic tasks, used to spread the tasks over the period.
+     */
+    private int sequence;
+
+    /**
+     * Creates the engine.
+     *
+     * @param threads the number of threads of the scheduled pool, must be positive.
+     */
+    public MonitoringEngine(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of monitoring threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Computes the position (in {@literal [0, 1[}) of the n-th periodic task in the period. It uses the van der
+     * Corput sequence (1/2, 1/4, 3/4, 1/8...), so the tasks are evenly spread whatever their number.
+     *
+     * @param index the index of the task
+     * @return the position of the task in the period
+     */
+    static double spread(int index) {
+        double position = 0;
+        double fraction = 0.5;
+        int i = index;
+        while (i > 0) {
+            if ((i & 1) != 0) {
+                position += fraction;
+            }
+            i >>= 1;
+            fraction /= 2;
+        }
+        return position;
+    }
+
+    private synchronized ScheduledThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(threads, new MonitorThreadFactory("scheduler"));
+            // Cancelled tasks must not stay in the queue until their next execution.
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Schedules a periodic task. The first execution is delayed to spread the tasks over the period.
+     *
+     * @param task   the task
+     * @param period the period in milliseconds
+     * @return the future used to cancel the task
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long period) {
+        final long delay;
+        synchronized (this) {
+            delay = (long) (period * spread(sequence++));
+        }
+        ScheduledFuture<?> future = executor().scheduleWithFixedDelay(task, delay, period, TimeUnit.MILLISECONDS);
+        periodic.add(future);
+        return future;
+    }
+
+    /**
+     * Executes the given task once, after the given delay.
+     *
+     * @param task  the task
+     * @param delay the delay in milliseconds
+     * @return the future used to cancel the task
+     */
+    public ScheduledFuture<?> delay(Runnable task, long delay) {
+        return executor().schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes the given task as soon as possible.
+     *
+     * @param task the task
+     */
+    public void execute(Runnable task) {
+        executor().execute(task);
+    }
+
+    /**
+     * Registers the directory of the given monitor and its sub-directories in the shared watch service.
+     *
+     * @param monitor the monitor
+     * @return {@literal true} if the directory is watched, {@literal false} if native notifications are not
+     * supported or if the directory cannot be registered. In this later case, the directory is not watched at all.
+     */
+    boolean watch(NativeAlterationMonitor monitor) {
+        WatchService watcher = watchService();
+        if (watcher == null) {
+            return false;
+        }
+        try {
+            register(watcher, monitor.getDirectory().toPath(), monitor);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Cannot register {} in the watch service ({})", monitor.getDirectory().getAbsolutePath(),
+                    e.getMessage());
+            unwatch(monitor);
+            return false;
+        }
+    }
+
+    /**
+     * Stops watching the directories of the given monitor.
+     *
+     * @param monitor the monitor
+     */
+    void unwatch(NativeAlterationMonitor monitor) {
+        Iterator<Map.Entry<WatchKey, NativeAlterationMonitor>> iterator = keys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<WatchKey, NativeAlterationMonitor> entry = iterator.next();
+            if (entry.getValue() == monitor) {
+                entry.getKey().cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized WatchService watchService() {
+        if (service != null || nativeUnsupported) {
+            return service;
+        }
+        try {
+            WatchService watcher = FileSystems.getDefault().newWatchService();
+            if (POLLING_WATCH_SERVICE.equals(watcher.getClass().getName())) {
+                // Not native, our own polling is cheaper and configurable.
+                watcher.close();
+                nativeUnsupported = true;
+                return null;
+            }
+            service = watcher;
+            Thread thread = new MonitorThreadFactory("notifications").newThread(new Dispatcher(watcher));
+            thread.start();
+            return service;
+        } catch (UnsupportedOperationException e) {
+            LOGGER.debug("Watch service not supported", e);
+        } catch (IOException e) {
+            LOGGER.debug("Cannot create the watch service", e);
+        }
+        nativeUnsupported = true;
+        return null;
+    }
+
+    /**
+     * Registers the given directory and all its sub-directories.
+     *
+     * @param watcher the watch service
+     * @param root    the root directory
+     * @param monitor the monitor notified when the directories change
+     * @throws IOException if a directory cannot be registered
+     */
+    private void register(final WatchService watcher, Path root, final NativeAlterationMonitor monitor)
+            throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), monitor);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Gets the number of monitoring tasks ready to be executed but waiting for a thread. A queue depth constantly
+     * greater than 0 means the pool is too small for the number of monitored directories.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        ScheduledThreadPoolExecutor pool;
+        synchronized (this) {
+            pool = executor;
+        }
+        if (pool == null) {
+            return 0;
+        }
+        int depth = 0;
+        for (Runnable task : pool.getQueue()) {
+            if (task instanceof Delayed && ((Delayed) task).getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Gets the number of scheduled periodic scans (polled directories). The one-shot tasks, such as the delayed
+     * event deliveries and the checks triggered by native notifications, are not counted.
+     *
+     * @return the number of periodic tasks
+     */
+    public int getScheduledTaskCount() {
+        int count = 0;
+        for (Iterator<ScheduledFuture<?>> iterator = periodic.iterator(); iterator.hasNext(); ) {
+            // A periodic task is done only once cancelled (or failed).
+            if (iterator.next().isDone()) {
+                iterator.remove();
+            } else {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of directories (including sub-directories) watched using native notifications.
+     *
+     * @return the number of watched directories
+     */
+    public int getWatchedDirectoryCount() {
+        return keys.size();
+    }
+
+    /**
+     * Stops the engine. The threads are stopped, but the engine can still be used, in this case new threads are
+     * created.
+     */
+    public void shutdown() {
+        ScheduledThreadPoolExecutor pool;
+        WatchService watcher;
+        synchronized (this) {
+            pool = executor;
+            watcher = service;
+            executor = null;
+            service = null;
+            nativeUnsupported = false;
+            sequence = 0;
+        }
+        keys.clear();
+        periodic.clear();
+        if (watcher != null) {
+            try {
+                // Unblocks the dispatcher thread.
+                watcher.close();
+            } catch (IOException e) {
+                LOGGER.debug("Cannot close the watch service", e);
+            }
+        }
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the watch service and dispatches the checks of the monitors to the pool. Notifications received in a
+     * row are coalesced, so a directory is checked once per batch.
+     */
+    private class Dispatcher implements Runnable {
+
+        private final WatchService watcher;
+
+        private Dispatcher(WatchService watcher) {
+            this.watcher = watcher;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Set<NativeAlterationMonitor> changed = new LinkedHashSet<NativeAlterationMonitor>();
+                try {
+                    WatchKey key = watcher.take();
+                    while (key != null) {
+                        NativeAlterationMonitor monitor = keys.get(key);
+                        if (monitor != null) {
+                            process(key, monitor);
+                            changed.add(monitor);
+                        }
+                        if (!key.reset()) {
+                            keys.remove(key);
+                        }
+                        key = watcher.poll();
+                    }
+                } catch (InterruptedException e) { //NOSONAR the engine is stopping.
+                    return;
+                } catch (ClosedWatchServiceException e) { //NOSONAR the engine is stopping.
+                    return;
+                }
+
+                for (NativeAlterationMonitor monitor : changed) {
+                    try {
+                        monitor.requestCheck();
+                    } catch (RejectedExecutionException e) { //NOSONAR the engine is stopping.
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Processes the notifications of the given key. New directories are registered so they are watched too.
+         * Overflows do not need a specific handling as the whole directory is checked anyway.
+         *
+         * @param key     the key
+         * @param monitor the monitor of the directory
+         */
+        private void process(WatchKey key, NativeAlterationMonitor monitor) {
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == ENTRY_CREATE) {
+                    Path child = dir.resolve((Path) event.context());
+                    if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        try {
+                            register(watcher, child, monitor);
+                        } catch (IOException e) {
+                            LOGGER.error("Cannot watch the new directory {}", child, e);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
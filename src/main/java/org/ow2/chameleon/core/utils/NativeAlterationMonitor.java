@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link org.ow2.chameleon.core.utils.AlterationMonitor} driven by the file system notifications
+ * ({@link java.nio.file.WatchService}) instead of periodic polling.
+ * <p>
+ * The monitored directory and all its sub-directories are registered in the watch service of the
+ * {@link org.ow2.chameleon.core.utils.MonitoringEngine}. When notifications are received, the observer is checked
+ * once, so the listeners receive exactly the same callbacks as with the polling monitor. Between notifications, the
+ * file system is not accessed at all.
+ * <p>
+ * If the file system does not support native notifications (no watch service, polling-based watch service or
+ * registration failure, for instance when the inotify limits are reached), this monitor falls back to a
+ * {@link org.ow2.chameleon.core.utils.PollingAlterationMonitor} using the given polling period.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class NativeAlterationMonitor implements AlterationMonitor, Runnable {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeAlterationMonitor.class);
+
+    /**
+     * The engine.
+     */
+    private final MonitoringEngine engine;
+
+    /**
+     * The monitored directory.
+     */
+    private final File directory;
+
+    /**
+     * The polling period used if native notifications are not supported.
+     */
+    private final long polling;
+
+    /**
+     * The observer.
+     */
+    private final FileAlterationObserver observer;
+
+    /**
+     * Whether or not a check has been requested and not yet started.
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    /**
+     * Whether or not the native monitoring is running. Cleared while holding the observer lock, so no check runs
+     * once the monitor is stopped.
+     */
+    private volatile boolean running;
+
+    /**
+     * The polling monitor used when native notifications are not supported, {@code null} otherwise.
+     */
+    private PollingAlterationMonitor fallback;
+
+    /**
+     * Creates a new native monitor.
+     *
+     * @param engine    the engine managing the watch service
+     * @param directory the monitored directory
+     * @param polling   the polling period in milliseconds, only used if native notifications are not supported
+     * @param observer  the observer to check when notifications are received
+     */
+    public NativeAlterationMonitor(MonitoringEngine engine, File directory, long polling,
+                                   FileAlterationObserver observer) {
+        this.engine = engine;
+        this.directory = directory;
+        this.polling = polling;
+        this.observer = observer;
+    }
+
+    /**
+     * @return the monitored directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Checks whether or not the monitor has fallen back to polling.
+     *
+     * @return {@literal true} if the monitor polls the directory, {@literal false} if it is driven by notifications.
+     */
+    public synchronized boolean isPolling() {
+        return fallback != null;
+    }
+
+    /**
+     * Starts the monitor. If native notifications are not supported, the directory is polled.
+     *
+     * @throws Exception if the monitor cannot be started
+     */
+    @Override
+    public synchronized void start() throws Exception {
+        if (running || fallback != null) {
+            throw new IllegalStateException("Monitor is already running");
+        }
+
+        // The observer must be initialized before the first notification.
+        observer.initialize();
+        running = true;
+        if (engine.watch(this)) {
+            // Catch the changes made between the initialization and the registration.
+            requestCheck();
+            return;
+        }
+
+        running = false;
+        LOGGER.info("Native file notifications not available for {}, polling every {} ms",
+                directory.getAbsolutePath(), polling);
+        fallback = new PollingAlterationMonitor(engine, directory, polling, observer);
+        fallback.start();
+    }
+
+    /**
+     * Stops the monitor. A check in progress is not interrupted, but awaited: no event is fired once this method
+     * returns.
+     *
+     * @throws Exception if the monitor cannot be stopped
+     */
+    @Override
+    public synchronized void stop() throws Exception {
+        if (fallback != null) {
+            try {
+                fallback.stop();
+            } finally {
+                fallback = null;
+            }
+            return;
+        }
+
+        if (!running) {
+            throw new IllegalStateException("Monitor is not running");
+        }
+        engine.unwatch(this);
+        synchronized (observer) {
+            running = false;
+            observer.destroy();
+        }
+    }
+
+    /**
+     * Requests a check of the directory. The check is executed by the engine. If a check is already pending,
+     * this method does nothing, so notifications received before the check are coalesced.
+     */
+    void requestCheck() {
+        if (running && pending.compareAndSet(false, true)) {
+            engine.execute(this);
+        }
+    }
+
+    /**
+     * Checks the directory.
+     */
+    @Override
+    public void run() {
+        pending.set(false);
+        try {
+            // Checks of the same observer must not overlap.
+            synchronized (observer) {
+                if (!running) {
+                    return;
+                }
+                observer.checkAndNotify();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot check the directory {}", directory.getAbsolutePath(), e);
+        }
+    }
+}
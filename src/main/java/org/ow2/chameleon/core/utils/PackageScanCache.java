@@ -0,0 +1,290 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of the packages contained in jar files, as computed by {@link JarScanner#scan(File)}.
+ * <p>
+ * Entries are keyed by the canonical path of the file, and are valid as long as the size and the last modification
+ * date of the file are unchanged. The cache can be saved to a file and reloaded on the next execution, so unchanged
+ * jars are not opened again. Changed jars are scanned in parallel.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class PackageScanCache {
+
+    /**
+     * The default number of threads scanning the changed jars.
+     */
+    public static final int DEFAULT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackageScanCache.class);
+
+    /**
+     * The version of the storage format.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Gets the packages of the given jar files. The jars that are not in the cache or that have changed are scanned
+     * in parallel.
+     *
+     * @param jars    the jar files
+     * @param threads the maximum number of threads scanning jars concurrently
+     * @return the packages of all the jars
+     * @throws IllegalArgumentException if a jar cannot be scanned
+     */
+    public Set<Pckg> getPackages(Collection<File> jars, int threads) {
+        Set<Pckg> packages = new LinkedHashSet<Pckg>();
+        for (Set<Pckg> set : getPackagesByJar(jars, threads).values()) {
+            packages.addAll(set);
+        }
+        return packages;
+    }
+
+    /**
+     * Gets the packages of each of the given jar files. The jars that are not in the cache or that have changed are
+     * scanned in parallel.
+     *
+     * @param jars    the jar files
+     * @param threads the maximum number of threads scanning jars concurrently
+     * @return the packages (unmodifiable) by jar, in the order of the given collection
+     * @throws IllegalArgumentException if a jar cannot be scanned
+     * @since 1.10.8
+     */
+    public Map<File, Set<Pckg>> getPackagesByJar(Collection<File> jars, int threads) {
+        Map<File, Set<Pckg>> packages = new LinkedHashMap<File, Set<Pckg>>();
+        List<File> toScan = new ArrayList<File>();
+        for (File jar : jars) {
+            Entry entry = entries.get(getKey(jar));
+            if (entry != null && entry.size == jar.length() && entry.lastModified == jar.lastModified()) {
+                hits.incrementAndGet();
+                packages.put(jar, entry.packages);
+            } else {
+                // Keep the order of the given collection.
+                packages.put(jar, null);
+                toScan.add(jar);
+            }
+        }
+        if (toScan.isEmpty()) {
+            return packages;
+        }
+
+        int size = Math.min(Math.max(1, threads), toScan.size());
+        if (size == 1) {
+            for (File jar : toScan) {
+                packages.put(jar, scan(jar));
+            }
+            return packages;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(size, new MonitorThreadFactory("libs"));
+        try {
+            Map<File, Future<Set<Pckg>>> results = new LinkedHashMap<File, Future<Set<Pckg>>>();
+            for (final File jar : toScan) {
+                results.put(jar, executor.submit(new Callable<Set<Pckg>>() {
+                    @Override
+                    public Set<Pckg> call() {
+                        return scan(jar);
+                    }
+                }));
+            }
+            for (Map.Entry<File, Future<Set<Pckg>>> result : results.entrySet()) {
+                packages.put(result.getKey(), result.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning the jar files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Cannot scan the jar files", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return packages;
+    }
+
+    private Set<Pckg> scan(File jar) {
+        misses.incrementAndGet();
+        long size = jar.length();
+        long lastModified = jar.lastModified();
+        Set<Pckg> packages;
+        try {
+            packages = JarScanner.scan(jar);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot extract packages from " + jar.getAbsolutePath(), e);
+        }
+        if (packages == null) {
+            packages = Collections.emptySet();
+        }
+        packages = Collections.unmodifiableSet(packages);
+        entries.put(getKey(jar), new Entry(size, lastModified, packages));
+        return packages;
+    }
+
+    private static String getKey(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) { //NOSONAR
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of jars served from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of scanned jars.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Loads the entries stored in the given file. Entries already in the cache are kept. Errors are logged, and the
+     * invalid content is ignored.
+     *
+     * @param storage the file
+     */
+    public void load(File storage) {
+        if (!storage.isFile()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(storage)));
+            if (in.readInt() != FORMAT_VERSION) {
+                LOGGER.info("Ignoring the package scan cache {}, unsupported format", storage.getAbsolutePath());
+                return;
+            }
+            Map<String, Entry> loaded = new HashMap<String, Entry>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int packageCount = in.readInt();
+                Set<Pckg> packages = new HashSet<Pckg>();
+                for (int j = 0; j < packageCount; j++) {
+                    packages.add(new Pckg(in.readUTF(), in.readUTF()));
+                }
+                loaded.put(key, new Entry(size, lastModified, Collections.unmodifiableSet(packages)));
+            }
+            for (Map.Entry<String, Entry> entry : loaded.entrySet()) {
+                entries.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            LOGGER.debug("{} jar scans loaded from {}", loaded.size(), storage.getAbsolutePath());
+        } catch (IOException e) {
+            LOGGER.error("Cannot load the package scan cache from {}", storage.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Saves the entries to the given file. The entries of the files that do not exist anymore are not saved. The
+     * content is written to a temporary file first, renamed once complete.
+     *
+     * @param storage the file
+     */
+    public void save(File storage) {
+        File tmp = new File(storage.getAbsolutePath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            FileUtils.forceMkdir(storage.getAbsoluteFile().getParentFile());
+            Map<String, Entry> toSave = new HashMap<String, Entry>();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (new File(entry.getKey()).isFile()) {
+                    toSave.put(entry.getKey(), entry.getValue());
+                }
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(toSave.size());
+            for (Map.Entry<String, Entry> entry : toSave.entrySet()) {
+                // Paths and package names are far below the 64K limit of writeUTF.
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().lastModified);
+                out.writeInt(entry.getValue().packages.size());
+                for (Pckg pckg : entry.getValue().packages) {
+                    out.writeUTF(pckg.name);
+                    out.writeUTF(pckg.version);
+                }
+            }
+            out.close();
+            out = null;
+            FileUtils.deleteQuietly(storage);
+            FileUtils.moveFile(tmp, storage);
+        } catch (IOException e) {
+            LOGGER.error("Cannot save the package scan cache to {}", storage.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * A cache entry.
+     */
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final Set<Pckg> packages;
+
+        private Entry(long size, long lastModified, Set<Pckg> packages) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.packages = packages;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * An {@link org.ow2.chameleon.core.utils.AlterationMonitor} checking the directory periodically.
+ * The check is a periodic task of the {@link org.ow2.chameleon.core.utils.MonitoringEngine}.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class PollingAlterationMonitor implements AlterationMonitor, Runnable {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PollingAlterationMonitor.class);
+
+    /**
+     * The engine.
+     */
+    private final MonitoringEngine engine;
+
+    /**
+     * The monitored directory.
+     */
+    private final File directory;
+
+    /**
+     * The polling period in milliseconds.
+     */
+    private final long polling;
+
+    /**
+     * The observer.
+     */
+    private final FileAlterationObserver observer;
+
+    /**
+     * The periodic task, {@code null} if not started.
+     */
+    private ScheduledFuture<?> task;
+
+    /**
+     * Whether or not the monitor is running. Read and cleared while holding the observer lock, so no check runs
+     * once the monitor is stopped.
+     */
+    private volatile boolean running;
+
+    /**
+     * Creates a new polling monitor.
+     *
+     * @param engine    the engine running the periodic check
+     * @param directory the monitored directory
+     * @param polling   the polling period in milliseconds
+     * @param observer  the observer checked periodically
+     */
+    public PollingAlterationMonitor(MonitoringEngine engine, File directory, long polling,
+                                    FileAlterationObserver observer) {
+        this.engine = engine;
+        this.directory = directory;
+        this.polling = polling;
+        this.observer = observer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void start() throws Exception {
+        if (task != null) {
+            throw new IllegalStateException("Monitor is already running");
+        }
+        observer.initialize();
+        running = true;
+        task = engine.schedule(this, polling);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A check in progress is not interrupted, but awaited: no event is fired once this method returns.
+     */
+    @Override
+    public synchronized void stop() throws Exception {
+        if (task == null) {
+            throw new IllegalStateException("Monitor is not running");
+        }
+        task.cancel(false);
+        task = null;
+        synchronized (observer) {
+            running = false;
+            observer.destroy();
+        }
+    }
+
+    /**
+     * Checks the directory.
+     */
+    @Override
+    public void run() {
+        try {
+            // Checks of the same observer must not overlap.
+            synchronized (observer) {
+                if (!running) {
+                    // Stopped.
+                    return;
+                }
+                observer.checkAndNotify();
+            }
+        } catch (RuntimeException e) {
+            // Must not be propagated, it would cancel the periodic task.
+            LOGGER.error("Cannot check the directory {}", directory.getAbsolutePath(), e);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.ow2.chameleon.core.services.StartupPhase;
+import org.ow2.chameleon.core.services.StartupProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of the {@link StartupProfile}, with nanosecond timings. The recorded phases can be written to a JSON
+ * and a CSV report.
+ * <p>
+ * At most {@link #MAX_PHASES} phases are recorded, the following ones are dropped.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class StartupProfiler implements StartupProfile {
+
+    /**
+     * The maximum number of recorded phases.
+     */
+    public static final int MAX_PHASES = 10000;
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupProfiler.class);
+
+    /**
+     * A completed profiler, used when no profile is available.
+     */
+    private static final StartupProfiler DISABLED = new StartupProfiler();
+
+    static {
+        DISABLED.complete();
+    }
+
+    private final long origin;
+    private final long startTime;
+    private final Queue<StartupPhase> phases = new ConcurrentLinkedQueue<StartupPhase>();
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile boolean completed;
+
+    /**
+     * Creates a profiler. The startup begins now.
+     */
+    public StartupProfiler() {
+        origin = System.nanoTime();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the startup profile registered in the framework of the given context.
+     *
+     * @param context the bundle context
+     * @return the profile, a completed profile recording nothing if there is no profile service.
+     */
+    public static StartupProfile getProfile(BundleContext context) {
+        ServiceReference<StartupProfile> reference = context.getServiceReference(StartupProfile.class);
+        if (reference != null) {
+            StartupProfile profile = context.getService(reference);
+            // The profile is a plain object owned by the Chameleon instance, we don't need to keep the service.
+            context.ungetService(reference);
+            if (profile != null) {
+                return profile;
+            }
+        }
+        return DISABLED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void end(String category, String name, long begin) {
+        long end = System.nanoTime();
+        if (completed || count.incrementAndGet() > MAX_PHASES) {
+            return;
+        }
+        phases.add(new StartupPhase(category, name, Thread.currentThread().getName(), begin - origin, end - begin));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<StartupPhase> getPhases() {
+        List<StartupPhase> list = new ArrayList<StartupPhase>(phases);
+        Collections.sort(list, new Comparator<StartupPhase>() {
+            @Override
+            public int compare(StartupPhase p1, StartupPhase p2) {
+                return p1.start < p2.start ? -1 : (p1.start == p2.start ? 0 : 1);
+            }
+        });
+        return list;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Completes the startup. The following phases are not recorded.
+     */
+    public void complete() {
+        completed = true;
+    }
+
+    /**
+     * Writes the JSON ({@code base.json}) and CSV ({@code base.csv}) reports. Errors are logged.
+     *
+     * @param base the path of the reports, without extension
+     */
+    public void write(File base) {
+        List<StartupPhase> list = getPhases();
+        try {
+            FileUtils.forceMkdir(base.getAbsoluteFile().getParentFile());
+            writeJson(new File(base.getAbsolutePath() + ".json"), list);
+            writeCsv(new File(base.getAbsolutePath() + ".csv"), list);
+            LOGGER.debug("Startup profile written to {} ({} phases)", base.getAbsolutePath(), list.size());
+        } catch (IOException e) {
+            LOGGER.error("Cannot write the startup profile to {}", base.getAbsolutePath(), e);
+        }
+    }
+
+    private void writeJson(File file, List<StartupPhase> list) throws IOException {
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            writer.write("{\n  \"startTime\": " + startTime + ",\n  \"completed\": " + completed
+                    + ",\n  \"phases\": [");
+            for (int i = 0; i < list.size(); i++) {
+                StartupPhase phase = list.get(i);
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write("    {\"category\": " + quoteJson(phase.category)
+                        + ", \"name\": " + quoteJson(phase.name)
+                        + ", \"thread\": " + quoteJson(phase.thread)
+                        + ", \"start\": " + phase.start
+                        + ", \"duration\": " + phase.duration + "}");
+            }
+            writer.write("\n  ]\n}\n");
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+    private void writeCsv(File file, List<StartupPhase> list) throws IOException {
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            writer.write("category,name,thread,start,duration\n");
+            for (StartupPhase phase : list) {
+                writer.write(quoteCsv(phase.category) + "," + quoteCsv(phase.name) + "," + quoteCsv(phase.thread)
+                        + "," + phase.start + "," + phase.duration + "\n");
+            }
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+    static String quoteJson(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    static String quoteCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1
+                && value.indexOf('\r') == -1) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the bundles that cannot be started, indexed by their requirements.
+ * <p>
+ * A tracked bundle is indexed by its mandatory {@literal Import-Package} packages and {@literal Require-Bundle}
+ * symbolic names. When bundles are installed or updated, only the tracked bundles requiring one of their exported
+ * packages or their symbolic name are candidates to a new start attempt. The tracked bundles without such
+ * requirements (waiting for a generic capability for instance) are always candidates.
+ * <p>
+ * This class is not thread-safe, except the metrics, and is used when holding the deployer lock.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+public class UnresolvedBundleTracker {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnresolvedBundleTracker.class);
+
+    private static final String PACKAGE_PREFIX = "package:";
+    private static final String BUNDLE_PREFIX = "bundle:";
+
+    /**
+     * The tracked bundles, in tracking order, with their requirement keys.
+     */
+    private final Map<Bundle, Set<String>> tracked = new LinkedHashMap<Bundle, Set<String>>();
+
+    /**
+     * The tracked bundles by requirement key.
+     */
+    private final Map<String, Set<Bundle>> requirements = new HashMap<String, Set<Bundle>>();
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Tracks the given bundle if it is neither active, nor uninstalled, nor a fragment. Otherwise the bundle is not
+     * tracked anymore.
+     *
+     * @param bundle the bundle
+     */
+    public void update(Bundle bundle) {
+        remove(bundle);
+        int state = bundle.getState();
+        if (state == Bundle.ACTIVE || state == Bundle.STARTING || state == Bundle.UNINSTALLED
+                || BundleHelper.isFragment(bundle)) {
+            return;
+        }
+        Set<String> keys = new HashSet<String>();
+        for (String pkg : BundleInstaller.parseHeader(bundle.getHeaders().get(Constants.IMPORT_PACKAGE), true)) {
+            keys.add(PACKAGE_PREFIX + pkg);
+        }
+        for (String name : BundleInstaller.parseHeader(bundle.getHeaders().get(Constants.REQUIRE_BUNDLE), true)) {
+            keys.add(BUNDLE_PREFIX + name);
+        }
+        tracked.put(bundle, keys);
+        for (String key : keys) {
+            Set<Bundle> bundles = requirements.get(key);
+            if (bundles == null) {
+                bundles = new LinkedHashSet<Bundle>();
+                requirements.put(key, bundles);
+            }
+            bundles.add(bundle);
+        }
+    }
+
+    /**
+     * Stops tracking the given bundle.
+     *
+     * @param bundle the bundle
+     */
+    public void remove(Bundle bundle) {
+        Set<String> keys = tracked.remove(bundle);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Set<Bundle> bundles = requirements.get(key);
+            if (bundles != null) {
+                bundles.remove(bundle);
+                if (bundles.isEmpty()) {
+                    requirements.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the tracked bundles whose requirements may be satisfied by the given bundles.
+     *
+     * @param providers the installed or updated bundles
+     * @return the candidates, in tracking order
+     */
+    public List<Bundle> getCandidates(Collection<Bundle> providers) {
+        Set<Bundle> matching = new HashSet<Bundle>();
+        for (Bundle provider : providers) {
+            for (String pkg : BundleInstaller.parseHeader(provider.getHeaders().get(Constants.EXPORT_PACKAGE))) {
+                addAll(matching, requirements.get(PACKAGE_PREFIX + pkg));
+            }
+            if (provider.getSymbolicName() != null) {
+                addAll(matching, requirements.get(BUNDLE_PREFIX + provider.getSymbolicName()));
+            }
+        }
+        List<Bundle> candidates = new ArrayList<Bundle>();
+        for (Map.Entry<Bundle, Set<String>> entry : tracked.entrySet()) {
+            if (entry.getValue().isEmpty() || matching.contains(entry.getKey())) {
+                candidates.add(entry.getKey());
+            }
+        }
+        return candidates;
+    }
+
+    private static void addAll(Set<Bundle> set, Set<Bundle> bundles) {
+        if (bundles != null) {
+            set.addAll(bundles);
+        }
+    }
+
+    /**
+     * Tries to start the given tracked bundle. The bundle is not tracked anymore if it is started or uninstalled.
+     *
+     * @param bundle the bundle
+     * @return {@literal true} if the bundle was started, {@literal false} otherwise.
+     */
+    public boolean start(Bundle bundle) {
+        if (bundle.getState() == Bundle.UNINSTALLED) {
+            remove(bundle);
+            return false;
+        }
+        attempts.incrementAndGet();
+        try {
+            bundle.start();
+            remove(bundle);
+            return true;
+        } catch (BundleException e) {
+            failures.incrementAndGet();
+            LOGGER.debug("Failed to start bundle {}", bundle.getSymbolicName(), e);
+        } catch (IllegalStateException e) {
+            // Uninstalled in the meantime.
+            failures.incrementAndGet();
+            remove(bundle);
+        }
+        return false;
+    }
+
+    /**
+     * @return the tracked bundles, in tracking order.
+     */
+    public List<Bundle> getBundles() {
+        return new ArrayList<Bundle>(tracked.keySet());
+    }
+
+    /**
+     * @return the number of tracked bundles.
+     */
+    public int size() {
+        return tracked.size();
+    }
+
+    /**
+     * @return the number of start attempts made on tracked bundles.
+     */
+    public long getStartAttemptCount() {
+        return attempts.get();
+    }
+
+    /**
+     * @return the number of failed start attempts made on tracked bundles.
+     */
+    public long getFailedStartCount() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils.jul;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Formats the JUL messages, producing the same output as {@link MessageFormat#format(String, Object...)}.
+ * <p>
+ * The patterns are parsed once and cached. The patterns only made of text and {@code {n}} placeholders (without
+ * quotes and format types), and given arguments that are neither numbers nor dates, are formatted by substituting
+ * the arguments in a reused per-thread buffer. The other messages are delegated to {@link MessageFormat}.
+ *
+ * @author The OW2 Chameleon Team
+ * @version $Id: 1.10.8 $Id
+ * @since 1.10.8
+ */
+final class JulFormatter {
+
+    /**
+     * The maximum number of cached patterns. The cache is cleared when it is full.
+     */
+    static final int MAX_PATTERNS = 512;
+
+    /**
+     * The size above which the per-thread buffer is not kept.
+     */
+    private static final int MAX_BUFFER_SIZE = 4096;
+
+    /**
+     * The marker of the patterns delegated to {@link MessageFormat}.
+     */
+    private static final Template COMPLEX = new Template(null, null);
+
+    private static final ConcurrentMap<String, Template> TEMPLATES = new ConcurrentHashMap<String, Template>();
+
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private JulFormatter() {
+        // Avoid direct instantiation.
+    }
+
+    /**
+     * Formats a message.
+     *
+     * @param pattern   the pattern
+     * @param arguments the arguments
+     * @return the formatted message
+     * @throws IllegalArgumentException if the pattern is invalid, as {@link MessageFormat} does
+     */
+    static String format(String pattern, Object... arguments) {
+        Template template = getTemplate(pattern);
+        if (template == COMPLEX || !template.accepts(arguments)) {
+            return MessageFormat.format(pattern, arguments);
+        }
+
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        template.appendTo(buffer, arguments);
+        String message = buffer.toString();
+        if (buffer.capacity() > MAX_BUFFER_SIZE) {
+            BUFFER.remove();
+        }
+        return message;
+    }
+
+    /**
+     * @return the number of cached patterns.
+     */
+    static int getCachedPatternCount() {
+        return TEMPLATES.size();
+    }
+
+    private static Template getTemplate(String pattern) {
+        Template template = TEMPLATES.get(pattern);
+        if (template == null) {
+            template = parse(pattern);
+            if (TEMPLATES.size() >= MAX_PATTERNS) {
+                TEMPLATES.clear();
+            }
+            TEMPLATES.put(pattern, template);
+        }
+        return template;
+    }
+
+    /**
+     * Parses a pattern.
+     *
+     * @param pattern the pattern
+     * @return the template, {@link #COMPLEX} if the pattern contains quotes, format types or invalid placeholders
+     */
+    static Template parse(String pattern) {
+        if (pattern.indexOf('\'') != -1) {
+            return COMPLEX;
+        }
+        // Count the placeholders.
+        int count = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == '{') {
+                count++;
+            }
+        }
+
+        String[] texts = new String[count + 1];
+        int[] indexes = new int[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int open = pattern.indexOf('{', start);
+            int close = pattern.indexOf('}', open);
+            // Only non-empty, short, numeric placeholders.
+            if (close == -1 || close == open + 1 || close > open + 5) {
+                return COMPLEX;
+            }
+            int index = 0;
+            for (int j = open + 1; j < close; j++) {
+                char c = pattern.charAt(j);
+                if (c < '0' || c > '9') {
+                    return COMPLEX;
+                }
+                index = index * 10 + (c - '0');
+            }
+            texts[i] = pattern.substring(start, open);
+            indexes[i] = index;
+            start = close + 1;
+        }
+        texts[count] = pattern.substring(start);
+        return new Template(texts, indexes);
+    }
+
+    /**
+     * A parsed pattern: the texts surrounding the placeholders, and the indexes of the arguments.
+     */
+    static final class Template {
+
+        private final String[] texts;
+        private final int[] indexes;
+
+        Template(String[] texts, int[] indexes) {
+            this.texts = texts;
+            this.indexes = indexes;
+        }
+
+        /**
+         * Checks whether the arguments are formatted as their string representation, {@link MessageFormat} using
+         * the locale-specific formats for the numbers and the dates.
+         */
+        boolean accepts(Object[] arguments) {
+            if (arguments == null) {
+                return true;
+            }
+            for (int index : indexes) {
+                if (index < arguments.length
+                        && (arguments[index] instanceof Number || arguments[index] instanceof Date)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void appendTo(StringBuilder buffer, Object[] arguments) {
+            for (int i = 0; i < indexes.length; i++) {
+                buffer.append(texts[i]);
+                int index = indexes[i];
+                if (arguments == null || index >= arguments.length) {
+                    // Missing arguments are left as placeholders.
+                    buffer.append('{').append(index).append('}');
+                } else {
+                    Object argument = arguments[index];
+                    buffer.append(argument == null ? "null" : argument.toString());
+                }
+            }
+            buffer.append(texts[indexes.length]);
+        }
+    }
+}
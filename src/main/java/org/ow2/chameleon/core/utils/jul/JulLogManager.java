@@ -19,16 +19,18 @@
  */
 package org.ow2.chameleon.core.utils.jul;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggerContextListener;
 import org.slf4j.LoggerFactory;
 
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.Iterator;
-import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.LogManager;
 
 /**
@@ -36,6 +38,16 @@ import java.util.logging.LogManager;
  */
 public class JulLogManager extends LogManager {
 
+    /**
+     * The wrapped loggers, by name.
+     */
+    private final ConcurrentMap<String, JulWrapper> loggers = new ConcurrentHashMap<String, JulWrapper>();
+
+    /**
+     * Whether the level listener is registered in the LogBack context.
+     */
+    private volatile boolean listening;
+
     /**
      * Creates the {@link org.ow2.chameleon.core.utils.jul.JulLogManager}.
      */
@@ -44,14 +56,53 @@ public class JulLogManager extends LogManager {
     }
 
     /**
-     * Method to find a named logger. Just create the wrapped logger.
+     * Method to find a named logger. The wrapped loggers are created once, and reused.
      *
      * @param name name of the logger
-     * @return a new wrapper logger.
+     * @return the wrapper logger.
      */
     @Override
     public java.util.logging.Logger getLogger(final String name) {
-        return new JulWrapper(name);
+        JulWrapper logger = loggers.get(name);
+        if (logger != null) {
+            return logger;
+        }
+        listen();
+        logger = new JulWrapper(name);
+        JulWrapper previous = loggers.putIfAbsent(name, logger);
+        if (previous != null) {
+            return previous;
+        }
+        // The level may have changed before the logger was cached.
+        logger.refreshLevel();
+        return logger;
+    }
+
+    /**
+     * Registers the listener refreshing the cached levels of the wrapped loggers when a level changes in the LogBack
+     * context. As setting the level of a logger changes the effective level of all its descendants, all the wrapped
+     * loggers are refreshed.
+     */
+    private void listen() {
+        if (listening) {
+            return;
+        }
+        synchronized (this) {
+            if (listening) {
+                return;
+            }
+            JulWrapper.getLoggerContext().addListener(new LevelListener());
+            listening = true;
+        }
+    }
+
+    /**
+     * Recomputes the cached levels of all the wrapped loggers.
+     */
+    private void refreshLevels() {
+        for (JulWrapper logger : loggers.values()) {
+            logger.refreshLevel();
+        }
     }
 
     /**
@@ -110,32 +161,14 @@ public class JulLogManager extends LogManager {
      * that are currently registered. It is also important to note that this method only returns the name of a
      * Logger, not a strong reference to the Logger itself.
      * <p>
-     * This method asks LogBack to retrieve the list of known loggers. The names are retrieved when this method is
-     * called, so loggers created after this call are not listed.
+     * This method lists the loggers obtained from this manager, without copying them: loggers created while the
+     * enumeration is consumed may or may not be listed.
      *
      * @return enumeration of logger name strings
      */
     @Override
     public Enumeration<String> getLoggerNames() {
-        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
-        List<String> names = new ArrayList<String>();
-        for (ch.qos.logback.classic.Logger logger : context.getLoggerList()) {
-            names.add(logger.getName());
-        }
-        final Iterator<String> iterator = names.iterator();
-
-        return new Enumeration<String>() {
-
-            @Override
-            public boolean hasMoreElements() {
-                return iterator.hasNext();
-            }
-
-            @Override
-            public String nextElement() {
-                return iterator.next();
-            }
-        };
+        return Collections.enumeration(loggers.keySet());
     }
 
     /**
@@ -157,12 +190,7 @@ public class JulLogManager extends LogManager {
             return true;
         }
         LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
-        for (ch.qos.logback.classic.Logger l : context.getLoggerList()) {
-            if (l.getName().equals(logger.getName())) {
-                return false;
-            }
-        }
-        return true;
+        return context.exists(logger.getName()) == null;
     }
 
     /**
@@ -172,4 +200,36 @@ public class JulLogManager extends LogManager {
     public void reset() {
         // Do nothing.
     }
+
+    /**
+     * Refreshes the cached levels when the LogBack levels change or the context is reset. It survives the resets, as
+     * the LogBack context is reconfigured by resetting it.
+     */
+    private class LevelListener implements LoggerContextListener {
+
+        @Override
+        public boolean isResetResistant() {
+            return true;
+        }
+
+        @Override
+        public void onStart(LoggerContext context) {
+            refreshLevels();
+        }
+
+        @Override
+        public void onReset(LoggerContext context) {
+            refreshLevels();
+        }
+
+        @Override
+        public void onStop(LoggerContext context) {
+            // Nothing to do.
+        }
+
+        @Override
+        public void onLevelChange(ch.qos.logback.classic.Logger logger, Level level) {
+            refreshLevels();
+        }
+    }
 }
@@ -26,8 +26,6 @@ import ch.qos.logback.core.CoreConstants;
 import org.slf4j.ILoggerFactory;
 import org.slf4j.LoggerFactory;
 
-import java.text.MessageFormat;
-
 /**
  * A JUL Logger implementation delegating to a SLF4J Logger.
  */
@@ -51,6 +49,12 @@ public class JulWrapper extends java.util.logging.Logger {
      */
     private final Logger logger; //NOSONAR ignore naming convention - it's a wrapped instance.
 
+    /**
+     * The effective level of the wrapped logger, cached to avoid walking the logger hierarchy on each check. It is
+     * refreshed when the level of a logger changes (see {@link #refreshLevel()}).
+     */
+    private volatile int effectiveLevel;
+
     /**
      * Creates JUL Wrapper for given name.
      *
@@ -59,10 +63,39 @@ public class JulWrapper extends java.util.logging.Logger {
     protected JulWrapper(final String name) {
         super(name, null);
         this.logger = loggerContext.getLogger(name);
+        this.effectiveLevel = this.logger.getEffectiveLevel().toInt();
 
         super.setLevel(JulLevels.toJUL(this.logger.getEffectiveLevel()));
     }
 
+    /**
+     * @return the logger context in which the wrapped loggers are created.
+     */
+    static LoggerContext getLoggerContext() {
+        return loggerContext;
+    }
+
+    /**
+     * Recomputes the cached effective level from the wrapped logger.
+     */
+    void refreshLevel() {
+        this.effectiveLevel = this.logger.getEffectiveLevel().toInt();
+    }
+
+    /**
+     * Checks whether the given level is enabled. The cached effective level is used, unless turbo filters are
+     * configured, as they may accept or deny the level.
+     *
+     * @param level the level
+     * @return {@code true} if the level is enabled
+     */
+    private boolean isEnabledFor(final Level level) {
+        if (loggerContext.getTurboFilterList().isEmpty()) {
+            return level.toInt() >= effectiveLevel;
+        }
+        return this.logger.isEnabledFor(level);
+    }
+
     /**
      * Logs a message.
      *
@@ -74,12 +107,12 @@ public class JulWrapper extends java.util.logging.Logger {
             return;
         }
         final Level level = JulLevels.toSlf4J(record.getLevel());
-        if (this.logger.isEnabledFor(level)) {
+        if (isEnabledFor(level)) {
             String message = record.getMessage();
             try {
                 Object[] parameters = record.getParameters();
                 if (parameters != null && parameters.length != 0) {
-                    message = MessageFormat.format(message, parameters);
+                    message = JulFormatter.format(message, parameters);
                 }
             } catch (Exception ex) { // NOSONAR
                 // ignore parameter error
@@ -96,6 +129,7 @@ public class JulWrapper extends java.util.logging.Logger {
     @Override
     public void setLevel(final java.util.logging.Level newLevel) {
         logger.setLevel(JulLevels.toSlf4J(newLevel));
+        refreshLevel();
         super.setLevel(newLevel);
     }
 
@@ -122,7 +156,7 @@ public class JulWrapper extends java.util.logging.Logger {
      */
     @Override
     public boolean isLoggable(final java.util.logging.Level level) {
-        return this.logger.isEnabledFor(JulLevels.toSlf4J(level));
+        return isEnabledFor(JulLevels.toSlf4J(level));
     }
 
     /**
@@ -159,8 +193,8 @@ public class JulWrapper extends java.util.logging.Logger {
     public void log(java.util.logging.Level level, String msg, Object param1) {
         Level logbackLevel = JulLevels.toSlf4J(level);
 
-        if (this.logger.isEnabledFor(logbackLevel)) {
-            String fmtMsg = MessageFormat.format(msg, param1);
+        if (isEnabledFor(logbackLevel)) {
+            String fmtMsg = JulFormatter.format(msg, param1);
             this.logger.log(null, Logger.FQCN, Level.toLocationAwareLoggerInteger(logbackLevel), fmtMsg, null, null);
         }
     }
@@ -177,8 +211,8 @@ public class JulWrapper extends java.util.logging.Logger {
     public void log(java.util.logging.Level level, String msg, Object[] params) {
         Level logbackLevel = JulLevels.toSlf4J(level);
 
-        if (this.logger.isEnabledFor(logbackLevel)) {
-            String fmtMsg = MessageFormat.format(msg, params);
+        if (isEnabledFor(logbackLevel)) {
+            String fmtMsg = JulFormatter.format(msg, params);
             this.logger.log(null, Logger.FQCN, Level.toLocationAwareLoggerInteger(logbackLevel), fmtMsg, null, null);
         }
     }
@@ -57,6 +57,8 @@ fi
 
 if test "$1" = "clean-all"; then
   rm -rf chameleon-cache
+  rm -f chameleon-libs.cache
+  rm -f chameleon-classes.profile chameleon-classes.lst
   rm -rf logs
   if [ $# -ne 1 ]
   then
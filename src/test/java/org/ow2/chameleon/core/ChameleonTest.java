@@ -33,6 +33,8 @@ import org.ow2.chameleon.core.services.AbstractStabilityChecker;
 import org.ow2.chameleon.core.services.Stability;
 import org.ow2.chameleon.core.services.StabilityChecker;
 import org.ow2.chameleon.core.services.StabilityResult;
+import org.ow2.chameleon.core.services.StartupPhase;
+import org.ow2.chameleon.core.services.StartupProfile;
 import org.ow2.chameleon.core.utils.jul.JulLogManager;
 import org.ow2.chameleon.core.utils.jul.JulWrapper;
 
@@ -103,6 +105,30 @@ public class ChameleonTest {
         assertThat(MyHook.shuttingDownCalled).isTrue();
     }
 
+    @Test
+    public void testStartupProfile() throws Exception {
+        File report = new File(CHAMELEON, Constants.DEFAULT_STARTUP_PROFILE_FILE + ".json");
+        FileUtils.deleteQuietly(report);
+        chameleon.start();
+        ServiceReference<StartupProfile> reference = chameleon.context().getServiceReference(StartupProfile.class);
+        assertThat(reference).isNotNull();
+        assertThat(chameleon.context().getService(reference)).isSameAs(chameleon.profile());
+        chameleon.waitForStability();
+
+        StartupProfile profile = chameleon.profile();
+        assertThat(profile.isCompleted()).isTrue();
+        Set<String> phases = new java.util.HashSet<String>();
+        for (StartupPhase phase : profile.getPhases()) {
+            phases.add(phase.category + ":" + phase.name);
+            assertThat(phase.duration).isGreaterThanOrEqualTo(0);
+        }
+        assertThat(phases).contains("chameleon:configuration.initialize", "framework:create", "framework:start",
+                "activator.start:CoreActivator", "chameleon:stability");
+        assertThat(report).isFile();
+        assertThat(FileUtils.readFileToString(report)).contains("\"category\": \"framework\"");
+        assertThat(new File(CHAMELEON, Constants.DEFAULT_STARTUP_PROFILE_FILE + ".csv")).isFile();
+    }
+
     @Test
     public void testStability() throws BundleException {
         assertThat(chameleon).isNotNull();
@@ -26,8 +26,10 @@ import org.junit.Test;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 import org.ow2.chameleon.core.Chameleon;
+import org.ow2.chameleon.core.ChameleonConfiguration;
 
 import java.io.File;
+import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.ops4j.pax.tinybundles.core.TinyBundles.bundle;
@@ -135,6 +137,54 @@ public class BundleDeployerTest {
 
     }
 
+    @Test
+    public void testWarmRestartReusesTheInstalledBundles() throws Exception {
+        FileUtils.deleteQuietly(new File(CHAMELEON, "chameleon-cache"));
+        createBundle("my-bundle", "1.0.0", "bundle1.jar");
+        createBundle("my-bundle-2", "1.0.0", "bundle2.jar");
+        createBundle("my-bundle-3", "1.0.0", "bundle3.jar");
+
+        chameleon = createChameleonRetainingTheCache();
+        chameleon.start();
+        Bundle bundle1 = getBundle("my-bundle");
+        long id1 = bundle1.getBundleId();
+        long lastModified1 = bundle1.getLastModified();
+        long id2 = getBundle("my-bundle-2").getBundleId();
+        assertThat(getBundle("my-bundle-3")).isNotNull();
+        chameleon.stop();
+
+        // Changes while the framework is stopped.
+        createBundle("my-bundle-2", "1.1.0", "bundle2.jar");
+        FileUtils.deleteQuietly(new File(APPLICATION, "bundle3.jar"));
+
+        chameleon = createChameleonRetainingTheCache();
+        chameleon.start();
+        // Unchanged bundle reused, not re-installed nor updated
+        bundle1 = getBundle("my-bundle");
+        assertThat(bundle1.getBundleId()).isEqualTo(id1);
+        assertThat(bundle1.getLastModified()).isEqualTo(lastModified1);
+        assertThat(bundle1.getState()).isEqualTo(Bundle.ACTIVE);
+        // Changed bundle updated
+        Bundle bundle2 = getBundle("my-bundle-2");
+        assertThat(bundle2.getBundleId()).isEqualTo(id2);
+        assertThat(bundle2.getVersion().toString()).isEqualTo("1.1.0");
+        // Deleted bundle uninstalled
+        assertThat(getBundle("my-bundle-3")).isNull();
+    }
+
+    private Chameleon createChameleonRetainingTheCache() throws IOException {
+        ChameleonConfiguration configuration = new ChameleonConfiguration(CHAMELEON);
+        configuration.put("org.osgi.framework.storage.clean", "none");
+        return new Chameleon(configuration);
+    }
+
+    private void createBundle(String symbolicName, String version, String file) throws IOException {
+        FileUtils.copyInputStreamToFile(bundle()
+                .set(org.osgi.framework.Constants.BUNDLE_SYMBOLICNAME, symbolicName)
+                .set(org.osgi.framework.Constants.BUNDLE_VERSION, version)
+                .build(withBnd()), new File(APPLICATION, file));
+    }
+
     private void waitPolling() throws InterruptedException {
         Thread.sleep(2500);
     }
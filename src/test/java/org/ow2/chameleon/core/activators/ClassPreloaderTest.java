@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.hooks.weaving.WovenClass;
+import org.osgi.framework.wiring.BundleWiring;
+import org.ow2.chameleon.core.services.AbstractStabilityChecker;
+import org.ow2.chameleon.core.services.Stability;
+import org.ow2.chameleon.core.services.StabilityCallback;
+import org.ow2.chameleon.core.services.StabilityChecker;
+import org.ow2.chameleon.core.services.StabilityResult;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the behavior of the {@link ClassPreloader}.
+ */
+public class ClassPreloaderTest {
+
+    private File root;
+    private BundleContext context;
+
+    @Before
+    public void setUp() {
+        root = new File("target/test-data/class-preloader");
+        FileUtils.deleteQuietly(root);
+        root.mkdirs();
+        context = mock(BundleContext.class);
+        when(context.getBundle(0L)).thenReturn(mock(Bundle.class));
+    }
+
+    @Test
+    public void testRecording() throws Exception {
+        File profile = new File(root, ClassPreloader.PROFILE_FILE);
+        ClassPreloader preloader = new ClassPreloader(profile, true, false, null);
+        preloader.start(context);
+
+        preloader.weave(woven("org.acme.b", "org.acme.b.Foo"));
+        preloader.weave(woven("org.acme.a", "org.acme.a.Foo"));
+        preloader.weave(woven("org.acme.a", "org.acme.a.Bar"));
+        assertThat(preloader.getRecordedClasses()).hasSize(2);
+
+        preloader.onStability();
+        assertThat(FileUtils.readLines(profile, "UTF-8")).containsSequence(
+                "org.acme.a\torg.acme.a.Bar", "org.acme.a\torg.acme.a.Foo", "org.acme.b\torg.acme.b.Foo");
+        assertThat(ClassPreloader.read(profile)).containsKeys("org.acme.a", "org.acme.b");
+        assertThat(ClassPreloader.read(profile).get("org.acme.a")).containsExactly("org.acme.a.Bar",
+                "org.acme.a.Foo");
+        preloader.stop(context);
+    }
+
+    @Test
+    public void testPreloading() throws Exception {
+        Bundle resolved = bundle("org.acme.a", Bundle.ACTIVE);
+        when(resolved.loadClass("org.acme.a.Foo")).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return String.class;
+            }
+        });
+        when(resolved.loadClass("org.acme.a.Missing")).thenThrow(new ClassNotFoundException("missing"));
+        Bundle installed = bundle("org.acme.b", Bundle.INSTALLED);
+        when(context.getBundles()).thenReturn(new Bundle[]{resolved, installed});
+
+        Map<String, Set<String>> classes = new LinkedHashMap<String, Set<String>>();
+        classes.put("org.acme.a", new LinkedHashSet<String>(Arrays.asList("org.acme.a.Foo", "org.acme.a.Missing")));
+        classes.put("org.acme.b", Collections.singleton("org.acme.b.Foo"));
+        classes.put("org.acme.unknown", Collections.singleton("org.acme.unknown.Foo"));
+
+        ClassPreloader preloader = new ClassPreloader(new File(root, ClassPreloader.PROFILE_FILE), false, true, null);
+        preloader.start(context);
+        preloader.preload(classes);
+        preloader.stop(context);
+
+        assertThat(preloader.getPreloadedCount()).isEqualTo(1);
+        assertThat(preloader.getFailedCount()).isEqualTo(1);
+        verify(installed, never()).loadClass(anyString());
+    }
+
+    @Test
+    public void testGivesUpWhenTheStabilityIsNotReached() throws Exception {
+        File profile = new File(root, ClassPreloader.PROFILE_FILE);
+        ClassPreloader preloader = new ClassPreloader(profile, true, false, null);
+        preloader.start(context);
+        preloader.weave(woven("org.acme.a", "org.acme.a.Foo"));
+
+        final StabilityChecker checker = mock(StabilityChecker.class);
+        when(checker.getName()).thenReturn("bundles");
+        Stability stability = mock(Stability.class);
+        when(stability.waitForStability(anyLong(), any(TimeUnit.class), any(StabilityCallback.class)))
+                .thenAnswer(new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) {
+                        ((StabilityCallback) invocation.getArguments()[2]).stabilityComputed(false,
+                                Collections.singletonMap(checker, StabilityResult.unstable("not yet")));
+                        return null;
+                    }
+                });
+        preloader.waitForStability(stability, 1);
+
+        // The default timeout (already multiplied by the time factor) is used as is.
+        verify(stability, times(ClassPreloader.MAX_STABILITY_COMPUTATIONS)).waitForStability(
+                eq(AbstractStabilityChecker.getDefaultTimeoutInMillis()), eq(TimeUnit.MILLISECONDS),
+                any(StabilityCallback.class));
+        assertThat(profile).doesNotExist();
+        assertThat(preloader.getRecordedClasses()).isEmpty();
+        preloader.stop(context);
+    }
+
+    @Test
+    public void testClassList() throws Exception {
+        File list = new File(root, ClassPreloader.CLASS_LIST_FILE);
+        ClassPreloader.writeClassList(list, Arrays.asList("org.apache.felix.framework.Felix", "java.lang.String"));
+        assertThat(FileUtils.readLines(list, "UTF-8")).containsExactly("java/lang/String",
+                "org/apache/felix/framework/Felix");
+    }
+
+    private WovenClass woven(String bundle, String name) {
+        WovenClass woven = mock(WovenClass.class);
+        BundleWiring wiring = mock(BundleWiring.class);
+        Bundle b = bundle(bundle, Bundle.STARTING);
+        when(wiring.getBundle()).thenReturn(b);
+        when(woven.getBundleWiring()).thenReturn(wiring);
+        when(woven.getClassName()).thenReturn(name);
+        return woven;
+    }
+
+    private Bundle bundle(String name, int state) {
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getSymbolicName()).thenReturn(name);
+        when(bundle.getState()).thenReturn(state);
+        when(bundle.getHeaders()).thenReturn(new Hashtable<String, String>());
+        return bundle;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.junit.Test;
+import org.ow2.chameleon.core.services.AbstractDeployer;
+import org.ow2.chameleon.core.services.Deployer;
+import org.ow2.chameleon.core.services.ExtensionBasedDeployer;
+import org.ow2.chameleon.core.services.FileSelector;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks the behavior of the {@link DeployerIndex}.
+ */
+public class DeployerIndexTest {
+
+    @Test
+    public void testCandidatesAreSelectedByExtension() {
+        Deployer text = new ExtensionBasedDeployer("txt");
+        Deployer configs = new ExtensionBasedDeployer(new String[]{"cfg", "txt"});
+        Deployer any = new AbstractDeployer() {
+            @Override
+            public boolean accept(File file) {
+                return true;
+            }
+        };
+        Deployer legacy = mock(Deployer.class);
+        DeployerIndex index = new DeployerIndex(Arrays.asList(text, any, configs, legacy));
+
+        assertThat(index.getCandidates(new File("a.txt"))).containsExactly(text, any, configs, legacy);
+        assertThat(index.getCandidates(new File("a.cfg"))).containsExactly(any, configs, legacy);
+        assertThat(index.getCandidates(new File("a.jar"))).containsExactly(any, legacy);
+        assertThat(index.getDeployers()).containsExactly(text, any, configs, legacy);
+    }
+
+    @Test
+    public void testCandidatesAreFilteredBySelector() {
+        File directory = new File("target/test-data/index");
+        Deployer scoped = new ScopedDeployer(FileSelector.directory(directory));
+        Deployer bundles = new BundleDeployer(false, false);
+        DeployerIndex index = new DeployerIndex(Arrays.asList(scoped, bundles));
+
+        assertThat(index.getCandidates(new File(directory, "a.jar"))).containsExactly(scoped, bundles);
+        assertThat(index.getCandidates(new File("elsewhere/a.jar"))).containsExactly(bundles);
+        assertThat(index.getCandidates(new File("elsewhere/a.txt"))).isEmpty();
+    }
+
+    private static class ScopedDeployer extends AbstractDeployer {
+
+        private final FileSelector selector;
+
+        private ScopedDeployer(FileSelector selector) {
+            this.selector = selector;
+        }
+
+        @Override
+        public FileSelector getSelector() {
+            return selector;
+        }
+
+        @Override
+        public boolean accept(File file) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link DeployerQueue}.
+ */
+public class DeployerQueueTest {
+
+    @Test
+    public void testEventsAreDeliveredInOrder() throws Exception {
+        DeployerQueue queue = new DeployerQueue("test", 100, DeployerQueue.Overflow.BLOCK);
+        final List<Integer> delivered = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 500; i++) {
+            final int value = i;
+            assertThat(queue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    delivered.add(value);
+                }
+            })).isTrue();
+        }
+        assertThat(queue.shutdown(5000)).isTrue();
+        assertThat(delivered).hasSize(500);
+        for (int i = 0; i < 500; i++) {
+            assertThat(delivered.get(i)).isEqualTo(i);
+        }
+        assertThat(queue.getSubmittedCount()).isEqualTo(500);
+        assertThat(queue.getProcessedCount()).isEqualTo(500);
+        assertThat(queue.getDiscardedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDiscardWhenFull() throws Exception {
+        DeployerQueue queue = new DeployerQueue("test", 2, DeployerQueue.Overflow.DISCARD);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        // One running, two pending, the fourth is discarded.
+        assertThat(queue.submit(blocking)).isTrue();
+        Thread.sleep(100);
+        assertThat(queue.submit(blocking)).isTrue();
+        assertThat(queue.submit(blocking)).isTrue();
+        assertThat(queue.submit(blocking)).isFalse();
+        assertThat(queue.getSize()).isEqualTo(2);
+        assertThat(queue.getDiscardedCount()).isEqualTo(1);
+
+        latch.countDown();
+        assertThat(queue.shutdown(5000)).isTrue();
+        assertThat(queue.getProcessedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testBlockWhenFull() throws Exception {
+        final DeployerQueue queue = new DeployerQueue("test", 1, DeployerQueue.Overflow.BLOCK);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        queue.submit(blocking);
+        Thread.sleep(100);
+        queue.submit(blocking);
+
+        final CountDownLatch submitted = new CountDownLatch(1);
+        new Thread() {
+            @Override
+            public void run() {
+                queue.submit(blocking);
+                submitted.countDown();
+            }
+        }.start();
+        assertThat(submitted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        latch.countDown();
+        assertThat(submitted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queue.shutdown(5000)).isTrue();
+        assertThat(queue.getProcessedCount()).isEqualTo(3);
+        assertThat(queue.getDiscardedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCoalesceWhenFull() throws Exception {
+        DeployerQueue queue = new DeployerQueue("test", 1, DeployerQueue.Overflow.COALESCE);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<Integer>());
+        // One running, one pending, the next ones are merged without waiting.
+        assertThat(queue.submit(blocking)).isTrue();
+        Thread.sleep(100);
+        assertThat(queue.submit(new Values(delivered, 1))).isTrue();
+        assertThat(queue.submit(new Values(delivered, 2))).isTrue();
+        assertThat(queue.submit(new Values(delivered, 3))).isTrue();
+        assertThat(queue.submit(new Values(delivered, 4))).isTrue();
+        // Cannot be merged.
+        assertThat(queue.submit(blocking)).isFalse();
+        assertThat(queue.getSize()).isEqualTo(1);
+        assertThat(queue.getCoalescedCount()).isEqualTo(2);
+        assertThat(queue.getDiscardedCount()).isEqualTo(1);
+
+        latch.countDown();
+        assertThat(queue.shutdown(5000)).isTrue();
+        assertThat(delivered).containsExactly(1, 2, 3, 4);
+        assertThat(queue.getProcessedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testPendingMergedEventsAreDeliveredOnShutdown() throws Exception {
+        DeployerQueue queue = new DeployerQueue("test", 1, DeployerQueue.Overflow.COALESCE);
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(1);
+        assertThat(queue.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        })).isTrue();
+        Thread.sleep(100);
+        queue.submit(new Values(delivered, 1));
+        queue.submit(new Values(delivered, 2));
+        queue.submit(new Values(delivered, 3));
+
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                latch.countDown();
+            }
+        }.start();
+        assertThat(queue.shutdown(5000)).isTrue();
+        assertThat(delivered).containsExactly(1, 2, 3);
+        // Ignored once shut down.
+        assertThat(queue.submit(new Values(delivered, 4))).isFalse();
+    }
+
+    @Test
+    public void testOverflowParsing() {
+        assertThat(DeployerQueue.Overflow.parse("discard", DeployerQueue.Overflow.BLOCK))
+                .isEqualTo(DeployerQueue.Overflow.DISCARD);
+        assertThat(DeployerQueue.Overflow.parse(" Block ", DeployerQueue.Overflow.DISCARD))
+                .isEqualTo(DeployerQueue.Overflow.BLOCK);
+        assertThat(DeployerQueue.Overflow.parse("whatever", DeployerQueue.Overflow.BLOCK))
+                .isEqualTo(DeployerQueue.Overflow.BLOCK);
+        assertThat(DeployerQueue.Overflow.parse(null, DeployerQueue.Overflow.DISCARD))
+                .isEqualTo(DeployerQueue.Overflow.DISCARD);
+        assertThat(DeployerQueue.Overflow.parse("coalesce", DeployerQueue.Overflow.BLOCK))
+                .isEqualTo(DeployerQueue.Overflow.COALESCE);
+    }
+
+    /**
+     * A task delivering values, merged by appending the values of the next task.
+     */
+    private static class Values implements DeployerQueue.CoalescingTask {
+
+        private final List<Integer> delivered;
+        private final List<Integer> values = new ArrayList<Integer>();
+
+        private Values(List<Integer> delivered, int value) {
+            this.delivered = delivered;
+            this.values.add(value);
+        }
+
+        @Override
+        public boolean merge(Runnable next) {
+            if (!(next instanceof Values)) {
+                return false;
+            }
+            values.addAll(((Values) next).values);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            delivered.addAll(values);
+        }
+    }
+}
@@ -25,13 +25,17 @@ import org.junit.Before;
 import org.junit.Test;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
+import org.ow2.chameleon.core.services.BatchDeployer;
 import org.ow2.chameleon.core.services.Deployer;
 import org.ow2.chameleon.core.services.DirectoryBasedDeployer;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -148,6 +152,253 @@ public class DirectoryMonitorTest {
         monitor.stop(context);
     }
 
+    @Test
+    public void testChangesKeepingTheContentAreIgnored() throws Exception {
+        SpyingDeployer spy = new SpyingDeployer();
+        BundleContext context = mock(BundleContext.class);
+        File file = new File(directory, "file1");
+        FileUtils.writeStringToFile(file, "content");
+        monitor.deployers.add(spy);
+        monitor.start(context);
+
+        // Touch the file, the digest is computed on the first change, which is notified
+        assertThat(file.setLastModified(file.lastModified() + 10000)).isTrue();
+        Thread.sleep(200);
+        assertThat(getFileNames(spy.updated)).containsExactly("file1");
+        assertThat(monitor.getSuppressedEventCount()).isEqualTo(0);
+
+        // Touch the file again
+        assertThat(file.setLastModified(file.lastModified() + 10000)).isTrue();
+        Thread.sleep(200);
+        assertThat(getFileNames(spy.updated)).containsExactly("file1");
+        assertThat(monitor.getSuppressedEventCount()).isEqualTo(1);
+
+        // Change the content
+        FileUtils.writeStringToFile(file, "new content");
+        Thread.sleep(200);
+        assertThat(getFileNames(spy.updated)).containsExactly("file1", "file1");
+        assertThat(monitor.getSuppressedEventCount()).isEqualTo(1);
+
+        monitor.stop(context);
+    }
+
+    @Test
+    public void testBatchDeployerReceivesTheFilesOfACheckAtOnce() throws Exception {
+        BatchingDeployer spy = new BatchingDeployer();
+        BundleContext context = mock(BundleContext.class);
+        monitor.deployers.add(spy);
+        monitor.start(context);
+
+        // Move a directory containing several files, so they are all detected by the same check.
+        File staging = new File("target/test-data/staging");
+        FileUtils.deleteQuietly(staging);
+        staging.mkdirs();
+        FileUtils.touch(new File(staging, "file1"));
+        FileUtils.touch(new File(staging, "file2"));
+        FileUtils.touch(new File(staging, "file3"));
+        assertThat(staging.renameTo(new File(directory, "batch"))).isTrue();
+        waitFor(spy.batches, 1);
+
+        assertThat(spy.batches).hasSize(1);
+        assertThat(getFileNames(spy.batches.get(0))).containsOnly("file1", "file2", "file3");
+        assertThat(spy.created).isEmpty();
+
+        // Delete them all
+        FileUtils.deleteDirectory(new File(directory, "batch"));
+        // Under load, the files may be deleted across several checks.
+        waitFor(spy.removed, 3);
+        assertThat(spy.batches.size()).isGreaterThanOrEqualTo(2);
+        for (List<File> batch : spy.batches.subList(1, spy.batches.size())) {
+            assertThat(batch).isEmpty();
+        }
+        assertThat(getFileNames(spy.removed)).containsOnly("file1", "file2", "file3");
+
+        monitor.stop(context);
+    }
+
+    @Test
+    public void testSlowOpeningDoesNotBlockTheOtherDeployers() throws Exception {
+        SpyingDeployer spy = new SpyingDeployer();
+        final SlowDeployer slow = new SlowDeployer();
+        BundleContext context = mock(BundleContext.class);
+        final ServiceReference<Deployer> reference = mock(ServiceReference.class);
+        when(context.getService(reference)).thenReturn(slow);
+        monitor.deployers.add(spy);
+        monitor.start(context);
+
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                monitor.addingService(reference);
+            }
+        };
+        thread.start();
+        Thread.sleep(100);
+        createFile("file1");
+        Thread.sleep(200);
+
+        // The slow deployer is still opening, the other one is notified.
+        assertThat(slow.opened).isFalse();
+        assertThat(getFileNames(spy.created)).containsExactly("file1");
+
+        // The slow deployer is notified once opened.
+        thread.join();
+        Thread.sleep(200);
+        assertThat(getFileNames(slow.created)).containsExactly("file1");
+        assertThat(slow.notifiedBeforeOpening).isFalse();
+
+        monitor.stop(context);
+    }
+
+    @Test
+    public void testSlowDeployerDoesNotDelayTheOtherDeployers() throws Exception {
+        SpyingDeployer spy = new SpyingDeployer();
+        SpyingDeployer slow = new SpyingDeployer() {
+            @Override
+            public void onFileCreate(File file) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onFileCreate(file);
+            }
+        };
+        BundleContext context = mock(BundleContext.class);
+        monitor.deployers.add(slow);
+        monitor.deployers.add(spy);
+        monitor.start(context);
+
+        createFile("file1");
+        Thread.sleep(200);
+        createFile("file2");
+        Thread.sleep(200);
+        assertThat(getFileNames(spy.created)).containsExactly("file1", "file2");
+        assertThat(slow.created).isEmpty();
+
+        Thread.sleep(2000);
+        assertThat(getFileNames(slow.created)).containsExactly("file1", "file2");
+        assertThat(monitor.getDeployerQueues().get(slow).getProcessedCount()).isEqualTo(2);
+
+        monitor.stop(context);
+    }
+
+    @Test
+    public void testEventsAreMergedWhenTheQueueIsFull() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        SpyingDeployer slow = new SpyingDeployer() {
+            @Override
+            public void onFileCreate(File file) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onFileCreate(file);
+            }
+        };
+        monitor = new DirectoryMonitor(1, 1, DeployerQueue.Overflow.COALESCE);
+        monitor.add(directory, 10L);
+        BundleContext context = mock(BundleContext.class);
+        monitor.deployers.add(slow);
+        monitor.start(context);
+
+        // file1 is being handled, file2 is pending, the next events are merged.
+        createFile("file1");
+        Thread.sleep(100);
+        createFile("file2");
+        Thread.sleep(100);
+        createFile("file3");
+        Thread.sleep(100);
+        createFile("file4");
+        Thread.sleep(100);
+        deleteFile("file3");
+        Thread.sleep(100);
+        DeployerQueue queue = monitor.getDeployerQueues().get(slow);
+        assertThat(queue.getCoalescedCount()).isEqualTo(2);
+        assertThat(queue.getDiscardedCount()).isEqualTo(0);
+
+        latch.countDown();
+        monitor.stop(context);
+        assertThat(getFileNames(slow.created)).containsExactly("file1", "file2", "file4");
+        assertThat(slow.deleted).isEmpty();
+    }
+
+    @Test
+    public void testEventsOfARemovedDirectoryAreDropped() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        SpyingDeployer slow = new SpyingDeployer() {
+            @Override
+            public void onFileCreate(File file) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onFileCreate(file);
+            }
+        };
+        BundleContext context = mock(BundleContext.class);
+        monitor.deployers.add(slow);
+        monitor.start(context);
+
+        // file1 is being handled, file2 is pending.
+        createFile("file1");
+        Thread.sleep(100);
+        createFile("file2");
+        Thread.sleep(100);
+
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                latch.countDown();
+            }
+        }.start();
+        // Returns once file1 is handled.
+        assertThat(monitor.removeAndStopIfNeeded(directory)).isTrue();
+        assertThat(getFileNames(slow.created)).containsExactly("file1");
+
+        Thread.sleep(100);
+        assertThat(getFileNames(slow.created)).containsExactly("file1");
+        monitor.stop(context);
+    }
+
+    @Test
+    public void testPendingEventsAreDeliveredOnStop() throws Exception {
+        SpyingDeployer slow = new SpyingDeployer() {
+            @Override
+            public void onFileCreate(File file) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onFileCreate(file);
+            }
+        };
+        // The deployer is tracked, so leaves when the monitor stops.
+        BundleContext context = mock(BundleContext.class);
+        ServiceReference<Deployer> reference = mock(ServiceReference.class);
+        when(context.getServiceReferences(Deployer.class.getName(), null))
+                .thenReturn(new ServiceReference[]{reference});
+        when(context.getService(reference)).thenReturn(slow);
+        monitor.start(context);
+
+        createFile("file1");
+        Thread.sleep(200);
+        // Queued while the creation of file1 is handled.
+        createFile("file2");
+        Thread.sleep(100);
+        monitor.stop(context);
+
+        assertThat(getFileNames(slow.created)).containsExactly("file1", "file2");
+    }
+
     @Test
     public void testDeployersDynamics() throws Exception {
         SpyingDeployer spy = new SpyingDeployer();
@@ -212,7 +463,15 @@ public class DirectoryMonitorTest {
     }
 
     private void waitPolling() throws InterruptedException {
-        Thread.sleep(20);
+        // A few polling periods, the events are then delivered by the deployer queues.
+        Thread.sleep(100);
+    }
+
+    private void waitFor(List<?> notifications, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (notifications.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
     }
 
     private void createFile(String filename) throws IOException {
@@ -247,4 +506,41 @@ public class DirectoryMonitorTest {
         }
     }
 
+    private class SlowDeployer extends SpyingDeployer {
+
+        private volatile boolean opened;
+        private volatile boolean notifiedBeforeOpening;
+
+        @Override
+        public void open(Collection<File> files) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            opened = true;
+        }
+
+        @Override
+        public void onFileCreate(File file) {
+            notifiedBeforeOpening = notifiedBeforeOpening || !opened;
+            super.onFileCreate(file);
+        }
+    }
+
+    private class BatchingDeployer extends SpyingDeployer implements BatchDeployer {
+
+        // Notified by the deployer queue thread.
+        public final List<List<File>> batches = Collections.synchronizedList(new ArrayList<List<File>>());
+        public final List<File> removed = Collections.synchronizedList(new ArrayList<File>());
+
+        @Override
+        public void onFileBatch(List<File> created, List<File> changed, List<File> deleted) {
+            List<File> files = new ArrayList<File>(created);
+            files.addAll(changed);
+            batches.add(files);
+            removed.addAll(deleted);
+        }
+    }
+
 }
@@ -40,6 +40,7 @@ import java.io.File;
 import java.io.IOException;
 
 import static junit.framework.Assert.fail;
+import static org.assertj.core.api.Assertions.assertThat;
 
 /**
  * Checks the Log Activator.
@@ -138,6 +139,92 @@ public class LogActivatorTest {
         logger.logged(le10);
     }
 
+    /**
+     * Checks the asynchronous dispatch of the OSGi log entries, and the entries dropped when the buffer is full.
+     */
+    @Test
+    public void testAsynchronousLogging() throws Exception {
+        ChameleonConfiguration configuration = new ChameleonConfiguration(new File(""));
+        LogActivator async = new LogActivator(Chameleon.initializeLoggingSystem(configuration), 4);
+
+        // Not started yet, the entries are buffered.
+        for (int i = 0; i < 10; i++) {
+            async.logged(getLogEntry("bundle-" + (i % 2), "message " + i, LogService.LOG_ERROR, null, null, null));
+        }
+        assertThat(async.getBacklog()).isEqualTo(4);
+        assertThat(async.getDroppedCount()).isEqualTo(6);
+        assertThat(async.getDispatchedCount()).isEqualTo(0);
+
+        BundleContext bc = Mockito.mock(BundleContext.class);
+        async.start(bc);
+        for (int i = 0; i < 500 && async.getBacklog() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(async.getBacklog()).isEqualTo(0);
+        async.logged(getLogEntry("bundle-1", "message", LogService.LOG_ERROR, "foo", REFERENCE_ID, "pid"));
+        async.stop(bc);
+
+        assertThat(async.getBacklog()).isEqualTo(0);
+        assertThat(async.getDispatchedCount()).isEqualTo(5);
+
+        // Once stopped, the entries are dispatched synchronously.
+        async.logged(getLogEntry(null, "message", LogService.LOG_ERROR, null, null, null));
+        assertThat(async.getDispatchedCount()).isEqualTo(6);
+        assertThat(async.getDroppedCount()).isEqualTo(6);
+    }
+
+    /**
+     * Checks that the entries logged while the activator is stopped are either dispatched or counted as dropped.
+     */
+    @Test
+    public void testNoEntryIsLostOnStop() throws Exception {
+        ChameleonConfiguration configuration = new ChameleonConfiguration(new File(""));
+        final LogActivator async = new LogActivator(Chameleon.initializeLoggingSystem(configuration), 64);
+        final LogEntry entry = getLogEntry("bundle-stop", "message", LogService.LOG_ERROR, null, null, null);
+        BundleContext bc = Mockito.mock(BundleContext.class);
+        async.start(bc);
+
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 500; j++) {
+                        async.logged(entry);
+                    }
+                }
+            };
+            producers[i].start();
+        }
+        Thread.sleep(5);
+        async.stop(bc);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertThat(async.getBacklog()).isEqualTo(0);
+        assertThat(async.getDispatchedCount() + async.getDroppedCount()).isEqualTo(2000);
+    }
+
+    /**
+     * Checks that the entries of a disabled level are not dispatched.
+     */
+    @Test
+    public void testDisabledLevelsAreNotDispatched() {
+        ch.qos.logback.classic.Logger log = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("bundle-quiet");
+        ch.qos.logback.classic.Level level = log.getLevel();
+        log.setLevel(ch.qos.logback.classic.Level.WARN);
+        try {
+            logger.logged(getLogEntry("bundle-quiet", "debug", LogService.LOG_DEBUG, null, null, null));
+            logger.logged(getLogEntry("bundle-quiet", "info", LogService.LOG_INFO, null, null, null));
+            assertThat(logger.getDispatchedCount()).isEqualTo(0);
+            logger.logged(getLogEntry("bundle-quiet", "warn", LogService.LOG_WARNING, null, null, null));
+            assertThat(logger.getDispatchedCount()).isEqualTo(1);
+        } finally {
+            log.setLevel(level);
+        }
+    }
+
     /**
      * Creates a log entry.
      *
@@ -22,7 +22,9 @@ package org.ow2.chameleon.core.activators;
 import org.junit.Test;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceReference;
+import org.ow2.chameleon.core.services.StabilityCheckContext;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyString;
@@ -57,4 +59,17 @@ public class ServiceStabilityCheckerTest {
         assertThat(checker.check().isStable).isFalse();
     }
 
+    @Test
+    public void testShortChecksUseTheirGracePeriodAsQuietPeriod() {
+        BundleContext context = mock(BundleContext.class);
+        StabilityEngine engine = new StabilityEngine(context);
+        engine.open();
+        ServiceStabilityChecker checker = new ServiceStabilityChecker(context, engine);
+        engine.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, mock(ServiceReference.class)));
+
+        // 20 ms is shorter than the default quiet period, but the services have not changed during 5 ms.
+        assertThat(checker.check(new StabilityCheckContext(5, 4)).isStable).isTrue();
+        engine.close();
+    }
+
 }
\ No newline at end of file
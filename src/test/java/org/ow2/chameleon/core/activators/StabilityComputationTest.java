@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.apache.felix.ipojo.extender.queue.QueueService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.mockito.ArgumentCaptor;
+import org.ow2.chameleon.core.services.AbstractStabilityChecker;
+import org.ow2.chameleon.core.services.ContextAwareStabilityChecker;
+import org.ow2.chameleon.core.services.StabilityCallback;
+import org.ow2.chameleon.core.services.StabilityCheckContext;
+import org.ow2.chameleon.core.services.StabilityChecker;
+import org.ow2.chameleon.core.services.StabilityResult;
+
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the asynchronous stability computation.
+ */
+public class StabilityComputationTest {
+
+    private BundleContext context;
+    private Bundle bundle;
+    private StabilityComputation computation;
+
+    @Before
+    public void setUp() throws Exception {
+        context = mock(BundleContext.class);
+        bundle = mock(Bundle.class);
+        when(bundle.getHeaders()).thenReturn(new Hashtable<String, String>());
+        when(bundle.getState()).thenReturn(Bundle.ACTIVE);
+        when(context.getBundles()).thenReturn(new Bundle[]{bundle});
+        when(context.getServiceReferences(QueueService.class, null))
+                .thenReturn(Collections.<ServiceReference<QueueService>>emptyList());
+        computation = new StabilityComputation();
+        computation.start(context);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        computation.stop(context);
+    }
+
+    @Test
+    public void testAsynchronousStability() throws Exception {
+        final AtomicReference<Map<StabilityChecker, StabilityResult>> results =
+                new AtomicReference<Map<StabilityChecker, StabilityResult>>();
+        final CountDownLatch notified = new CountDownLatch(1);
+        // Wait for the quiet period.
+        Future<Boolean> future = computation.waitForStability(5, TimeUnit.SECONDS, new StabilityCallback() {
+            @Override
+            public void stabilityComputed(boolean stable, Map<StabilityChecker, StabilityResult> map) {
+                results.set(map);
+                notified.countDown();
+            }
+        });
+
+        assertThat(future.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(notified.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(results.get()).hasSize(3);
+    }
+
+    @Test
+    public void testAsynchronousInstabilityUsesThePerCallTimeout() throws Exception {
+        when(bundle.getState()).thenReturn(Bundle.INSTALLED);
+        long begin = System.currentTimeMillis();
+        Future<Boolean> future = computation.waitForStability(50, TimeUnit.MILLISECONDS, null);
+        assertThat(future.get(10, TimeUnit.SECONDS)).isFalse();
+        assertThat(System.currentTimeMillis() - begin).isLessThan(5000);
+    }
+
+    @Test
+    public void testConcurrentExecutionWithDependencies() throws Exception {
+        StabilityChecker external = mock(StabilityChecker.class);
+        when(external.getName()).thenReturn("external");
+        when(external.getPriority()).thenReturn(5);
+        when(external.check()).thenReturn(StabilityResult.stable());
+        // The bundle stability cannot be reached.
+        when(bundle.getState()).thenReturn(Bundle.INSTALLED);
+
+        restart(true, external);
+        Map<StabilityChecker, StabilityResult> results =
+                computation.getStabilityResult(new StabilityCheckContext(10, 5), true);
+
+        assertThat(results).hasSize(4);
+        StabilityResult[] values = results.values().toArray(new StabilityResult[4]);
+        // Bundle, service and iPOJO stability, in priority order.
+        assertThat(values[0].isStable).isFalse();
+        assertThat(values[1].reason).isEqualTo("Not Run");
+        assertThat(values[2].reason).isEqualTo("Not Run");
+        // The external checker does not depend on the bundle stability.
+        assertThat(results.get(external).isStable).isTrue();
+    }
+
+    @Test
+    public void testCheckersReceiveTheSettingsOfTheComputation() throws Exception {
+        ContextAwareStabilityChecker external = mock(ContextAwareStabilityChecker.class);
+        when(external.getName()).thenReturn("external");
+        when(external.getPriority()).thenReturn(5);
+        when(external.check(any(StabilityCheckContext.class))).thenReturn(StabilityResult.stable());
+
+        // Executes the checkers concurrently, so the external checker runs even if the (short) quiet period of the
+        // services is not reached.
+        restart(true, external);
+        computation.isStable();
+        ArgumentCaptor<StabilityCheckContext> settings = ArgumentCaptor.forClass(StabilityCheckContext.class);
+        verify(external).check(settings.capture());
+        assertThat(settings.getValue().getGracePeriodInMillis()).isEqualTo(3);
+        assertThat(settings.getValue().getNumberOfAttempts()).isEqualTo(3);
+
+        // Other callers keep the default settings.
+        assertThat(AbstractStabilityChecker.getDefaultNumberOfAttempts())
+                .isEqualTo(Integer.getInteger(AbstractStabilityChecker.STABILITY_ATTEMPTS, 500));
+    }
+
+    @Test
+    public void testQueuedComputationsCompleteWhenTheirDeadlineExpires() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        restart(false, new StabilityChecker() {
+            @Override
+            public String getName() {
+                return "blocking";
+            }
+
+            @Override
+            public int getPriority() {
+                return 5;
+            }
+
+            @Override
+            public StabilityResult check() {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return StabilityResult.stable();
+            }
+        });
+
+        try {
+            // Occupy the computation threads.
+            Future<Boolean> first = computation.waitForStability(10, TimeUnit.SECONDS, null);
+            Future<Boolean> second = computation.waitForStability(10, TimeUnit.SECONDS, null);
+
+            final AtomicReference<Map<StabilityChecker, StabilityResult>> results =
+                    new AtomicReference<Map<StabilityChecker, StabilityResult>>();
+            long begin = System.currentTimeMillis();
+            Future<Boolean> queued = computation.waitForStability(200, TimeUnit.MILLISECONDS,
+                    new StabilityCallback() {
+                        @Override
+                        public void stabilityComputed(boolean stable, Map<StabilityChecker, StabilityResult> map) {
+                            results.set(map);
+                        }
+                    });
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isFalse();
+            assertThat(System.currentTimeMillis() - begin).isLessThan(5000);
+            assertThat(results.get()).hasSize(4);
+            for (StabilityResult result : results.get().values()) {
+                assertThat(result.reason).isEqualTo("Not Run");
+            }
+            assertThat(first.isDone()).isFalse();
+
+            release.countDown();
+            assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(second.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * Restarts the computation with the given checker exposed as a service.
+     */
+    private void restart(boolean parallel, StabilityChecker external) throws Exception {
+        computation.stop(context);
+        ServiceReference reference = mock(ServiceReference.class);
+        when(context.getServiceReferences(StabilityChecker.class.getName(), null))
+                .thenReturn(new ServiceReference[]{reference});
+        when(context.getService(reference)).thenReturn(external);
+        computation = new StabilityComputation(parallel);
+        computation.start(context);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.activators;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.*;
+
+import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the behavior of the {@link StabilityEngine}.
+ */
+public class StabilityEngineTest {
+
+    @Test
+    public void testServiceStabilityAfterTheQuietPeriod() throws InterruptedException {
+        BundleContext context = mock(BundleContext.class);
+        final StabilityEngine engine = new StabilityEngine(context);
+        engine.open();
+
+        ServiceReference reference = mock(ServiceReference.class);
+        engine.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, reference));
+        // Not quiet yet, and the timeout is shorter than the quiet period.
+        assertThat(engine.awaitServiceStability(200, 10)).isFalse();
+
+        long begin = System.currentTimeMillis();
+        assertThat(engine.awaitServiceStability(200, 5000)).isTrue();
+        assertThat(System.currentTimeMillis() - begin).isLessThan(1000);
+        assertThat(engine.getServiceEventCount()).isEqualTo(1);
+
+        // Property modifications are ignored.
+        engine.serviceChanged(new ServiceEvent(ServiceEvent.MODIFIED, reference));
+        assertThat(engine.awaitServiceStability(200, 0)).isTrue();
+    }
+
+    @Test
+    public void testBundleStabilityIsCheckedOnEvents() throws InterruptedException {
+        final AtomicInteger state = new AtomicInteger(Bundle.RESOLVED);
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getHeaders()).thenReturn(new Hashtable<String, String>());
+        when(bundle.getState()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                return state.get();
+            }
+        });
+        BundleContext context = mock(BundleContext.class);
+        when(context.getBundles()).thenReturn(new Bundle[]{bundle});
+        final StabilityEngine engine = new StabilityEngine(context);
+
+        assertThat(engine.awaitBundleStability(10)).isFalse();
+
+        final BundleEvent event = new BundleEvent(BundleEvent.STARTED, bundle);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    // Ignored
+                }
+                state.set(Bundle.ACTIVE);
+                engine.bundleChanged(event);
+            }
+        }).start();
+        long begin = System.currentTimeMillis();
+        assertThat(engine.awaitBundleStability(10000)).isTrue();
+        assertThat(System.currentTimeMillis() - begin).isLessThan(5000);
+        assertThat(engine.getBundleEventCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link FileSelector}.
+ */
+public class FileSelectorTest {
+
+    @Test
+    public void testAny() {
+        assertThat(FileSelector.ANY.matches(new File("foo.jar"))).isTrue();
+        assertThat(FileSelector.ANY.matches(new File("foo"))).isTrue();
+        assertThat(FileSelector.ANY.getExtensions()).isEmpty();
+    }
+
+    @Test
+    public void testExtensions() {
+        FileSelector selector = FileSelector.extensions("cfg", "config");
+        assertThat(selector.matches(new File("conf/org.acme.cfg"))).isTrue();
+        assertThat(selector.matches(new File("conf/org.acme.config"))).isTrue();
+        assertThat(selector.matches(new File("conf/org.acme.cfg.bak"))).isFalse();
+        assertThat(selector.matches(new File("conf/cfg"))).isFalse();
+        assertThat(selector.getExtensions()).containsOnly("cfg", "config");
+    }
+
+    @Test
+    public void testGlobs() {
+        FileSelector selector = FileSelector.globs("*.xml", "config-?.json");
+        assertThat(selector.matches(new File("dir/a.xml"))).isTrue();
+        assertThat(selector.matches(new File("dir/config-1.json"))).isTrue();
+        assertThat(selector.matches(new File("dir/config-12.json"))).isFalse();
+        assertThat(selector.matches(new File("dir/a.txt"))).isFalse();
+    }
+
+    @Test
+    public void testDirectory() {
+        File directory = new File("target/test-data/selector");
+        FileSelector selector = FileSelector.directory(directory);
+        assertThat(selector.matches(new File(directory, "a.txt"))).isTrue();
+        assertThat(selector.matches(new File(directory, "sub/a.txt"))).isTrue();
+        assertThat(selector.matches(new File(directory, "../selector/a.txt"))).isTrue();
+        assertThat(selector.matches(new File(directory.getAbsoluteFile(), "a.txt"))).isTrue();
+        assertThat(selector.matches(new File("target/test-data/selector-2/a.txt"))).isFalse();
+        assertThat(selector.matches(new File("target/test-data/a.txt"))).isFalse();
+    }
+
+    @Test
+    public void testDirectoryReachedThroughASymbolicLink() throws Exception {
+        File root = new File("target/test-data/selector-link");
+        FileUtils.deleteQuietly(root);
+        File directory = new File(root, "real");
+        assertThat(directory.mkdirs()).isTrue();
+        File link = new File(root, "link");
+        try {
+            Files.createSymbolicLink(link.toPath(), directory.getAbsoluteFile().toPath());
+        } catch (Exception e) { //NOSONAR
+            // Symbolic links not supported.
+            return;
+        }
+        FileUtils.writeStringToFile(new File(directory, "a.txt"), "a");
+
+        DirectoryBasedDeployer deployer = new DirectoryBasedDeployer(directory);
+        File file = new File(link, "a.txt");
+        assertThat(deployer.accept(file)).isTrue();
+        assertThat(deployer.getSelector().matches(file)).isTrue();
+        FileUtils.deleteQuietly(root);
+    }
+
+    @Test
+    public void testDeployersOverridingAcceptSelectAllFiles() {
+        ExtensionBasedDeployer widened = new ExtensionBasedDeployer("cfg") {
+            @Override
+            public boolean accept(File file) {
+                return super.accept(file) || file.getName().endsWith(".properties");
+            }
+        };
+        assertThat(widened.getSelector()).isSameAs(FileSelector.ANY);
+        assertThat(new ExtensionBasedDeployer("cfg").getSelector().getExtensions()).containsExactly("cfg");
+
+        DirectoryBasedDeployer directory = new DirectoryBasedDeployer(new File("target/test-data/selector")) {
+            @Override
+            public boolean accept(File file) {
+                return true;
+            }
+        };
+        assertThat(directory.getSelector()).isSameAs(FileSelector.ANY);
+    }
+
+    @Test
+    public void testCombination() {
+        File directory = new File("target/test-data/selector");
+        FileSelector selector = FileSelector.directory(directory)
+                .withExtensions(Collections.singleton("jar"));
+        assertThat(selector.matches(new File(directory, "a.jar"))).isTrue();
+        assertThat(selector.matches(new File(directory, "a.txt"))).isFalse();
+        assertThat(selector.matches(new File("a.jar"))).isFalse();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.services;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link StabilityCheckContext}.
+ */
+public class StabilityCheckContextTest {
+
+    @After
+    public void tearDown() {
+        System.clearProperty(AbstractStabilityChecker.TIME_FACTOR);
+    }
+
+    @Test
+    public void testTheDefaultTimeoutIsMultipliedByTheTimeFactor() {
+        System.setProperty(AbstractStabilityChecker.TIME_FACTOR, "3");
+        StabilityCheckContext context = new StabilityCheckContext(100, 10);
+        assertThat(context.getRemainingTimeInMillis()).isGreaterThan(2000).isLessThanOrEqualTo(3000);
+    }
+
+    @Test
+    public void testTheExplicitTimeoutIsUsedAsIs() {
+        System.setProperty(AbstractStabilityChecker.TIME_FACTOR, "3");
+        StabilityCheckContext context = StabilityCheckContext.withTimeout(1, TimeUnit.SECONDS);
+        assertThat(context.getRemainingTimeInMillis()).isGreaterThan(500).isLessThanOrEqualTo(1000);
+        assertThat(context.renew().getRemainingTimeInMillis()).isGreaterThan(500).isLessThanOrEqualTo(1000);
+    }
+
+    @Test
+    public void testTheGracePeriodIsBoundedByTheTimeout() {
+        StabilityCheckContext context = StabilityCheckContext.withTimeout(5, TimeUnit.MILLISECONDS);
+        assertThat(context.getGracePeriodInMillis()).isLessThanOrEqualTo(5);
+        assertThat(context.getNumberOfAttempts()).isGreaterThanOrEqualTo(1);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the behavior of the {@link BundleInstaller}.
+ */
+public class BundleInstallerTest {
+
+    @Test
+    public void testParseHeader() {
+        assertThat(BundleInstaller.parseHeader(null)).isEmpty();
+        assertThat(BundleInstaller.parseHeader("org.acme")).containsExactly("org.acme");
+        assertThat(BundleInstaller.parseHeader("org.acme;version=\"[1.0,2.0)\", org.acme.api;org.acme.spi;" +
+                "resolution:=optional,org.acme.util"))
+                .containsExactly("org.acme", "org.acme.api", "org.acme.spi", "org.acme.util");
+    }
+
+    @Test
+    public void testParseHeaderSkippingOptionalClauses() {
+        String header = "org.acme;version=1.0,org.acme.opt;resolution:=optional,org.acme.mandatory;" +
+                "resolution:=mandatory, org.acme.quoted;resolution:=\"optional\"";
+        assertThat(BundleInstaller.parseHeader(header, true)).containsExactly("org.acme", "org.acme.mandatory");
+        assertThat(BundleInstaller.parseHeader(header, false)).hasSize(4);
+    }
+
+    @Test
+    public void testStartOrder() {
+        Bundle api = bundle("api", "org.acme.api;version=1.0", null, null, null);
+        Bundle impl = bundle("impl", "org.acme.impl", "org.acme.api;version=\"[1.0,2.0)\",org.osgi.framework",
+                null, null);
+        Bundle client = bundle("client", null, "org.acme.impl", "api", null);
+        Bundle other = bundle("other", null, "org.osgi.framework", null, null);
+        Bundle fragment = bundle("fragment", null, null, null, "api");
+
+        List<List<Bundle>> levels = BundleInstaller.getStartOrder(Arrays.asList(client, impl, fragment, other, api));
+        assertThat(levels).hasSize(3);
+        assertThat(levels.get(0)).containsExactly(other, api);
+        assertThat(levels.get(1)).containsExactly(impl);
+        assertThat(levels.get(2)).containsExactly(client);
+    }
+
+    @Test
+    public void testStartOrderWithCycle() {
+        Bundle a = bundle("a", "org.acme.a", "org.acme.b", null, null);
+        Bundle b = bundle("b", "org.acme.b", "org.acme.a", null, null);
+        Bundle c = bundle("c", null, "org.acme.b", null, null);
+
+        List<List<Bundle>> levels = BundleInstaller.getStartOrder(Arrays.asList(a, b, c));
+        assertThat(levels).hasSize(3);
+        assertThat(levels.get(0)).containsExactly(a);
+        assertThat(levels.get(1)).containsExactly(b);
+        assertThat(levels.get(2)).containsExactly(c);
+    }
+
+    @Test
+    public void testSequentialStartKeepsTheGivenOrder() throws Exception {
+        assertThat(BundleInstaller.DEFAULT_THREADS).isEqualTo(1);
+        Bundle api = bundle("api", "org.acme.api", null, null, null);
+        Bundle impl = bundle("impl", null, "org.acme.api", null, null);
+        Bundle fragment = bundle("fragment", null, null, null, "api");
+        BundleContext context = mock(BundleContext.class);
+        Bundle system = mock(Bundle.class);
+        when(context.getBundle(0L)).thenReturn(system);
+        when(system.adapt(FrameworkWiring.class)).thenReturn(mock(FrameworkWiring.class));
+
+        new BundleInstaller(context, BundleInstaller.DEFAULT_THREADS).start(Arrays.asList(impl, fragment, api));
+
+        InOrder order = inOrder(impl, api);
+        order.verify(impl).start();
+        order.verify(api).start();
+        verify(fragment, never()).start();
+    }
+
+    private Bundle bundle(String name, String exports, String imports, String requires, String host) {
+        Hashtable<String, String> headers = new Hashtable<String, String>();
+        if (exports != null) {
+            headers.put(Constants.EXPORT_PACKAGE, exports);
+        }
+        if (imports != null) {
+            headers.put(Constants.IMPORT_PACKAGE, imports);
+        }
+        if (requires != null) {
+            headers.put(Constants.REQUIRE_BUNDLE, requires);
+        }
+        if (host != null) {
+            headers.put(Constants.FRAGMENT_HOST, host);
+        }
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getSymbolicName()).thenReturn(name);
+        when(bundle.getHeaders()).thenReturn(headers);
+        when(bundle.toString()).thenReturn(name);
+        return bundle;
+    }
+}
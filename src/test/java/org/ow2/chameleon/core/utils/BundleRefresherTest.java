@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the behavior of the {@link BundleRefresher}.
+ */
+public class BundleRefresherTest {
+
+    private BundleContext context;
+    private Bundle a;
+    private Bundle b;
+    private Bundle dependent;
+    private List<Collection<Bundle>> refreshed;
+
+    @Before
+    public void setUp() {
+        context = mock(BundleContext.class);
+        FrameworkWiring wiring = mock(FrameworkWiring.class);
+        Bundle system = mock(Bundle.class);
+        when(context.getBundle(0L)).thenReturn(system);
+        when(system.adapt(FrameworkWiring.class)).thenReturn(wiring);
+        a = mock(Bundle.class);
+        b = mock(Bundle.class);
+        dependent = mock(Bundle.class);
+        Bundle unrelated = mock(Bundle.class);
+
+        when(wiring.getRemovalPendingBundles()).thenReturn(Arrays.asList(a, b, unrelated));
+        when(wiring.getDependencyClosure(anyCollectionOf(Bundle.class))).thenAnswer(new Answer<Collection<Bundle>>() {
+            @Override
+            public Collection<Bundle> answer(InvocationOnMock invocation) throws Throwable {
+                @SuppressWarnings("unchecked")
+                Set<Bundle> closure = new LinkedHashSet<Bundle>((Collection<Bundle>) invocation.getArguments()[0]);
+                closure.add(dependent);
+                return closure;
+            }
+        });
+        refreshed = Collections.synchronizedList(new ArrayList<Collection<Bundle>>());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                @SuppressWarnings("unchecked")
+                Collection<Bundle> bundles = (Collection<Bundle>) invocation.getArguments()[0];
+                refreshed.add(bundles);
+                FrameworkListener listener = (FrameworkListener) invocation.getArguments()[1];
+                listener.frameworkEvent(new FrameworkEvent(FrameworkEvent.PACKAGES_REFRESHED, a, null));
+                return null;
+            }
+        }).when(wiring).refreshBundles(anyCollectionOf(Bundle.class), any(FrameworkListener.class));
+    }
+
+    @Test
+    public void testImmediateRefreshOfTheDependencyClosure() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        BundleRefresher refresher = new BundleRefresher(context, 0, countDown(done));
+        try {
+            refresher.refresh(Collections.singleton(a));
+
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(refreshed).hasSize(1);
+            assertThat(refreshed.get(0)).containsOnly(a, dependent);
+            assertThat(refresher.getRefreshCount()).isEqualTo(1);
+        } finally {
+            refresher.close();
+        }
+    }
+
+    @Test
+    public void testTheCallerDoesNotWaitForTheRefresh() throws InterruptedException {
+        // The refresh never completes.
+        FrameworkWiring wiring = context.getBundle(0L).adapt(FrameworkWiring.class);
+        doNothing().when(wiring).refreshBundles(anyCollectionOf(Bundle.class), any(FrameworkListener.class));
+        BundleRefresher refresher = new BundleRefresher(context, 0, null);
+        try {
+            long begin = System.currentTimeMillis();
+            refresher.refresh(Collections.singleton(a));
+            assertThat(System.currentTimeMillis() - begin).isLessThan(BundleRefresher.REFRESH_TIMEOUT / 2);
+        } finally {
+            refresher.close();
+        }
+    }
+
+    @Test
+    public void testBundlesWithoutPendingRevisionsAreNotRefreshed() throws InterruptedException {
+        BundleRefresher refresher = new BundleRefresher(context, 0, null);
+        try {
+            refresher.refresh(Collections.singleton(dependent));
+            Thread.sleep(200);
+
+            assertThat(refreshed).isEmpty();
+            assertThat(refresher.getRequestCount()).isEqualTo(1);
+            assertThat(refresher.getRefreshCount()).isEqualTo(0);
+        } finally {
+            refresher.close();
+        }
+    }
+
+    private Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void testRequestsWithinTheWindowAreMerged() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        BundleRefresher refresher = new BundleRefresher(context, 200, new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        try {
+            refresher.refresh(Collections.singleton(a));
+            refresher.refresh(Collections.singleton(b));
+
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(refreshed).hasSize(1);
+            assertThat(refreshed.get(0)).containsOnly(a, b, dependent);
+            assertThat(refresher.getRequestCount()).isEqualTo(2);
+            assertThat(refresher.getRefreshCount()).isEqualTo(1);
+        } finally {
+            refresher.close();
+        }
+    }
+}
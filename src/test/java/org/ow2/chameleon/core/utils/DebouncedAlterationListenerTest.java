@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link DebouncedAlterationListener}.
+ */
+public class DebouncedAlterationListenerTest {
+
+    private File directory;
+    private MonitoringEngine engine;
+    private SpyingListener spy;
+    private DebouncedAlterationListener listener;
+
+    @Before
+    public void setUp() {
+        directory = new File("target/test-data/debounced");
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        engine = new MonitoringEngine(1);
+        spy = new SpyingListener();
+        listener = new DebouncedAlterationListener(engine, 50L, spy);
+    }
+
+    @After
+    public void tearDown() {
+        listener.cancel();
+        engine.shutdown();
+    }
+
+    @Test
+    public void testCreationAndChangesAreMerged() throws Exception {
+        File file = new File(directory, "file");
+        FileUtils.writeStringToFile(file, "a");
+        listener.onFileCreate(file);
+        listener.onFileChange(file);
+        listener.onFileChange(file);
+
+        waitForSettlement();
+        assertThat(spy.created).containsExactly(file);
+        assertThat(spy.changed).isEmpty();
+        assertThat(spy.deleted).isEmpty();
+    }
+
+    @Test
+    public void testCreationAndDeletionCancelEachOther() throws Exception {
+        File file = new File(directory, "file");
+        listener.onFileCreate(file);
+        listener.onFileDelete(file);
+
+        waitForSettlement();
+        assertThat(spy.created).isEmpty();
+        assertThat(spy.deleted).isEmpty();
+    }
+
+    @Test
+    public void testDeletionAndCreationIsAChange() throws Exception {
+        File file = new File(directory, "file");
+        FileUtils.writeStringToFile(file, "a");
+        listener.onFileDelete(file);
+        listener.onFileCreate(file);
+
+        waitForSettlement();
+        assertThat(spy.changed).containsExactly(file);
+        assertThat(spy.created).isEmpty();
+        assertThat(spy.deleted).isEmpty();
+    }
+
+    @Test
+    public void testFileBeingWrittenIsHeldBack() throws Exception {
+        File file = new File(directory, "file");
+        FileUtils.writeStringToFile(file, "a");
+        listener.onFileCreate(file);
+
+        // Keep writing, without notifying the listener (as if the polling period was long).
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(20);
+            FileUtils.writeStringToFile(file, "a", true);
+            assertThat(spy.created).isEmpty();
+        }
+
+        waitForSettlement();
+        assertThat(spy.created).containsExactly(file);
+    }
+
+    @Test
+    public void testMergeRules() {
+        // create = 0, change = 1, delete = 2
+        assertThat(DebouncedAlterationListener.merge(0, 1)).isEqualTo(0);
+        assertThat(DebouncedAlterationListener.merge(0, 2)).isEqualTo(-1);
+        assertThat(DebouncedAlterationListener.merge(1, 1)).isEqualTo(1);
+        assertThat(DebouncedAlterationListener.merge(1, 2)).isEqualTo(2);
+        assertThat(DebouncedAlterationListener.merge(2, 0)).isEqualTo(1);
+    }
+
+    private void waitForSettlement() throws InterruptedException {
+        int attempts = 0;
+        while (listener.getPendingCount() > 0 && attempts < 100) {
+            Thread.sleep(10);
+            attempts++;
+        }
+        assertThat(listener.getPendingCount()).isEqualTo(0);
+        // Let the forwarding complete.
+        Thread.sleep(50);
+    }
+
+    private static class SpyingListener extends FileAlterationListenerAdaptor {
+
+        public final List<File> created = new CopyOnWriteArrayList<File>();
+        public final List<File> changed = new CopyOnWriteArrayList<File>();
+        public final List<File> deleted = new CopyOnWriteArrayList<File>();
+
+        @Override
+        public void onFileCreate(File file) {
+            created.add(file);
+        }
+
+        @Override
+        public void onFileChange(File file) {
+            changed.add(file);
+        }
+
+        @Override
+        public void onFileDelete(File file) {
+            deleted.add(file);
+        }
+    }
+}
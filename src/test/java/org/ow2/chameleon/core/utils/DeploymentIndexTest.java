@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the behavior of the {@link DeploymentIndex}.
+ */
+public class DeploymentIndexTest {
+
+    private File root;
+
+    @Before
+    public void setUp() {
+        root = new File("target/test-data/index");
+        FileUtils.deleteQuietly(root);
+        root.mkdirs();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        File file = new File(root, "bundle.jar");
+        FileUtils.writeStringToFile(file, "content");
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(12L);
+        when(bundle.getLocation()).thenReturn("reference:file:/some,where/bundle.jar");
+
+        File storage = new File(root, "data/index");
+        DeploymentIndex index = new DeploymentIndex(storage);
+        index.put(file, bundle);
+        index.save();
+        assertThat(storage).isFile();
+
+        DeploymentIndex loaded = new DeploymentIndex(storage);
+        loaded.load();
+        assertThat(loaded.getFiles()).containsExactly(file.getAbsoluteFile());
+        DeploymentIndex.Entry entry = loaded.get(file);
+        assertThat(entry.getBundleId()).isEqualTo(12L);
+        assertThat(entry.getLocation()).isEqualTo("reference:file:/some,where/bundle.jar");
+        assertThat(entry.isUpToDate(file)).isTrue();
+        assertThat(loaded.matches(file)).isTrue();
+
+        loaded.remove(file);
+        assertThat(loaded.get(file)).isNull();
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+        File file = new File(root, "bundle.jar");
+        FileUtils.writeStringToFile(file, "content");
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getLocation()).thenReturn("file:/bundle.jar");
+        DeploymentIndex index = new DeploymentIndex(null);
+        index.put(file, bundle);
+
+        assertThat(index.matches(file)).isTrue();
+
+        // Different date, the digest is not known yet, so the file is considered as changed
+        assertThat(file.setLastModified(file.lastModified() + 10000)).isTrue();
+        assertThat(index.get(file).isUpToDate(file)).isFalse();
+        assertThat(index.matches(file)).isFalse();
+        // The entry now records the new date and the digest
+        assertThat(index.get(file).isUpToDate(file)).isTrue();
+
+        // Same content, different date
+        assertThat(file.setLastModified(file.lastModified() + 10000)).isTrue();
+        assertThat(index.matches(file)).isTrue();
+
+        // Same size, different content (and a date different from the indexed one)
+        long lastModified = file.lastModified();
+        FileUtils.writeStringToFile(file, "CONTENT");
+        assertThat(file.setLastModified(lastModified + 10000)).isTrue();
+        assertThat(index.matches(file)).isFalse();
+
+        // Different size
+        FileUtils.writeStringToFile(file, "new content");
+        assertThat(index.matches(file)).isFalse();
+    }
+
+    @Test
+    public void testDisabledIndexRecordsNothing() throws Exception {
+        File file = new File(root, "bundle.jar");
+        FileUtils.writeStringToFile(file, "content");
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getLocation()).thenReturn("file:/bundle.jar");
+        DeploymentIndex index = DeploymentIndex.disabled();
+        index.put(file, bundle);
+        assertThat(index.get(file)).isNull();
+        assertThat(index.matches(file)).isFalse();
+        assertThat(index.getFiles()).isEmpty();
+    }
+
+    @Test
+    public void testUnchangedIndexIsNotSaved() throws Exception {
+        File file = new File(root, "bundle.jar");
+        FileUtils.writeStringToFile(file, "content");
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getLocation()).thenReturn("file:/bundle.jar");
+        File storage = new File(root, "index");
+        DeploymentIndex index = new DeploymentIndex(storage);
+        index.save();
+        assertThat(storage).doesNotExist();
+
+        index.put(file, bundle);
+        index.save();
+        assertThat(storage).isFile();
+        assertThat(storage.delete()).isTrue();
+        index.save();
+        assertThat(storage).doesNotExist();
+    }
+
+    @Test
+    public void testInvalidEntriesAreIgnored() throws Exception {
+        File storage = new File(root, "index");
+        FileUtils.writeStringToFile(storage, "/a=1,2,abcd,3,file:/a\n/b=garbage\n/c=x,2,abcd,3,file:/c\n");
+        DeploymentIndex index = new DeploymentIndex(storage);
+        index.load();
+        assertThat(index.getFiles()).containsExactly(new File("/a"));
+    }
+}
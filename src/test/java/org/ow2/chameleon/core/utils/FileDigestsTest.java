@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link FileDigests}.
+ */
+public class FileDigestsTest {
+
+    private File root;
+    private FileDigests digests;
+
+    @Before
+    public void setUp() {
+        root = new File("target/test-data/digests");
+        FileUtils.deleteQuietly(root);
+        root.mkdirs();
+        digests = new FileDigests();
+    }
+
+    @Test
+    public void testUnchangedContentIsSuppressed() throws Exception {
+        File file = new File(root, "file.txt");
+        FileUtils.writeStringToFile(file, "hello");
+        // Unknown yet, the first change is reported without reading the file.
+        assertThat(digests.hasChanged(file)).isTrue();
+        assertThat(digests.size()).isEqualTo(0);
+        // The digest is computed once the change is dispatched.
+        digests.updateIfMissing(file);
+        assertThat(digests.size()).isEqualTo(1);
+
+        // Rewrite the same content
+        FileUtils.writeStringToFile(file, "hello");
+        assertThat(digests.hasChanged(file)).isFalse();
+        assertThat(digests.getSuppressedCount()).isEqualTo(1);
+
+        // Same size, the digest is compared.
+        FileUtils.writeStringToFile(file, "jello");
+        assertThat(digests.hasChanged(file)).isTrue();
+        assertThat(digests.hasChanged(file)).isFalse();
+        assertThat(digests.getSuppressedCount()).isEqualTo(2);
+
+        // Different size, the file is not read.
+        FileUtils.writeStringToFile(file, "hello world");
+        assertThat(digests.hasChanged(file)).isTrue();
+        assertThat(digests.size()).isEqualTo(0);
+        digests.updateIfMissing(file);
+        assertThat(digests.hasChanged(file)).isFalse();
+        assertThat(digests.getSuppressedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testUnknownAndMissingFilesAreChanged() throws Exception {
+        File file = new File(root, "file.txt");
+        FileUtils.writeStringToFile(file, "hello");
+        assertThat(digests.hasChanged(file)).isTrue();
+
+        digests.remove(file);
+        assertThat(digests.hasChanged(file)).isTrue();
+
+        assertThat(digests.hasChanged(new File(root, "missing"))).isTrue();
+        assertThat(digests.getSuppressedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRemoveAll() throws Exception {
+        File sub = new File(root, "sub");
+        FileUtils.writeStringToFile(new File(sub, "a"), "a");
+        FileUtils.writeStringToFile(new File(root, "b"), "b");
+        digests.update(new File(sub, "a"));
+        digests.update(new File(root, "b"));
+        assertThat(digests.size()).isEqualTo(2);
+
+        digests.removeAll(sub);
+        assertThat(digests.size()).isEqualTo(1);
+        digests.removeAll(root);
+        assertThat(digests.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDigestOfLargeFile() throws Exception {
+        File file = new File(root, "large");
+        byte[] content = new byte[1024 * 1024 + 3];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        FileUtils.writeByteArrayToFile(file, content);
+        byte[] digest = FileDigests.digest(file);
+        assertThat(digest).hasSize(20);
+        content[content.length - 1]++;
+        FileUtils.writeByteArrayToFile(file, content);
+        assertThat(FileDigests.digest(file)).isNotEqualTo(digest);
+    }
+}
@@ -20,9 +20,13 @@
 package org.ow2.chameleon.core.utils;
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -77,4 +81,65 @@ public class FrameworkClassLoaderTest {
         assertThat(c).isNotNull();
     }
 
+    @Test
+    public void testLibsIndex() throws Exception {
+        File basedir = new File("target/test-data/framework-classloader");
+        FileUtils.deleteQuietly(basedir);
+        FileUtils.copyFileToDirectory(new File(JarScannerTest.JAR_ROOT, "aopalliance-1.0.jar"),
+                new File(basedir, "libs"));
+        FrameworkClassLoader classLoader = (FrameworkClassLoader) FrameworkClassLoader.getFrameworkClassLoader(basedir);
+        assertThat(classLoader.getIndexedPackageCount()).isEqualTo(2);
+
+        Class c = classLoader.loadClass("org.aopalliance.aop.Advice");
+        assertThat(c.getClassLoader()).isSameAs(classLoader.libsClassLoader);
+        assertThat(classLoader.getHitCount()).isEqualTo(1);
+
+        // Not in the libs jars, they are not searched. Each loading is counted once.
+        assertThat(classLoader.loadClass("org.junit.Test")).isNotNull();
+        assertThat(classLoader.getMissCount()).isEqualTo(1);
+        try {
+            classLoader.loadClass("org.acme.Missing");
+        } catch (ClassNotFoundException e) {
+            // Expected.
+        }
+        assertThat(classLoader.getMissCount()).isEqualTo(2);
+
+        // The libs jars are searched, but the class is not found.
+        try {
+            classLoader.loadClass("org.aopalliance.aop.Missing");
+        } catch (ClassNotFoundException e) {
+            // Expected.
+        }
+        assertThat(classLoader.getMissCount()).isEqualTo(3);
+        assertThat(classLoader.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentDefinition() throws Exception {
+        final FrameworkClassLoader classLoader =
+                (FrameworkClassLoader) FrameworkClassLoader.getFrameworkClassLoader(new File(""));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<Class>> results = new ArrayList<Future<Class>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Class>() {
+                    @Override
+                    public Class call() throws Exception {
+                        start.await();
+                        return classLoader.loadClass("org.apache.felix.framework.Felix");
+                    }
+                }));
+            }
+            start.countDown();
+            Class first = results.get(0).get(10, TimeUnit.SECONDS);
+            assertThat(first.getClassLoader()).isSameAs(classLoader);
+            for (Future<Class> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
 }
\ No newline at end of file
@@ -19,9 +19,11 @@
  */
 package org.ow2.chameleon.core.utils;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.Set;
 import java.util.jar.JarFile;
 
@@ -92,6 +94,55 @@ public class JarScannerTest {
         }
     }
 
+    /**
+     * The central directory scan finds the same packages as the scan of the {@link JarFile} entries.
+     */
+    @Test
+    public void testCentralDirectoryScanMatchesJarFileScan() throws Exception {
+        File[] jars = JAR_ROOT.listFiles();
+        assertThat(jars).isNotEmpty();
+        for (File file : jars) {
+            if (!file.getName().endsWith(".jar")) {
+                continue;
+            }
+            String version = JarScanner.version(file.getName());
+            JarFile jar = new JarFile(file);
+            try {
+                assertThat(JarScanner.scan(file)).containsOnly(
+                        JarScanner.scan(jar, version == null ? "0.0.0" : version).toArray(new Pckg[0]));
+            } finally {
+                jar.close();
+            }
+        }
+    }
+
+    /**
+     * Executable jars start with a launch script, the offsets of the central directory do not account for it.
+     */
+    @Test
+    public void testScanJarWithPrependedData() throws Exception {
+        File dir = new File("target/test-data/jar-scanner");
+        FileUtils.deleteQuietly(dir);
+        File file = new File(dir, "aopalliance-1.0.jar");
+        FileUtils.writeStringToFile(file, "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n");
+        FileUtils.writeByteArrayToFile(file, FileUtils.readFileToByteArray(new File(JAR_ROOT, file.getName())), true);
+
+        assertThat(JarScanner.scan(file)).containsOnly(
+                new Pckg("org.aopalliance.intercept", "1.0.0"),
+                new Pckg("org.aopalliance.aop", "1.0.0")
+        );
+        assertThat(new PackageScanCache().getPackages(Collections.singleton(file), 1)).hasSize(2);
+    }
+
+    @Test
+    public void testPackageName() {
+        assertThat(JarScanner.getPackageName("org/acme/A.class")).isEqualTo("org.acme");
+        assertThat(JarScanner.getPackageName("org/acme/")).isNull();
+        assertThat(JarScanner.getPackageName("A.class")).isNull();
+        assertThat(JarScanner.getPackageName("META-INF/MANIFEST.MF")).isNull();
+        assertThat(JarScanner.getPackageName("META-INF/maven/org.acme/pom.xml")).isNull();
+    }
+
 
 
 }
\ No newline at end of file
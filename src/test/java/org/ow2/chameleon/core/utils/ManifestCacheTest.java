@@ -0,0 +1,151 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link ManifestCache}.
+ */
+public class ManifestCacheTest {
+
+    private File root;
+
+    @Before
+    public void setUp() {
+        root = new File("target/test-data/manifests");
+        FileUtils.deleteQuietly(root);
+        root.mkdirs();
+    }
+
+    @Test
+    public void testHeadersAreReadOnce() throws IOException {
+        File jar = createBundle(new File(root, "bundle.jar"), "org.acme.bundle");
+        ManifestCache cache = new ManifestCache();
+
+        Map<String, String> headers = cache.getHeaders(jar);
+        assertThat(headers).containsEntry("Bundle-SymbolicName", "org.acme.bundle");
+        assertThat(cache.getHeaders(jar)).isSameAs(headers);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+
+        // Changing the file invalidates the entry.
+        createBundle(jar, "org.acme.bundle.v2");
+        jar.setLastModified(jar.lastModified() - 10000);
+        assertThat(cache.getHeaders(jar)).containsEntry("Bundle-SymbolicName", "org.acme.bundle.v2");
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testJarWithoutManifest() throws IOException {
+        File jar = new File(root, "plain.jar");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        out.putNextEntry(new ZipEntry("readme.txt"));
+        out.write("hello".getBytes("UTF-8"));
+        out.close();
+
+        ManifestCache cache = new ManifestCache();
+        assertThat(cache.getHeaders(jar)).isNull();
+        assertThat(cache.getHeaders(jar)).isNull();
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(BundleHelper.isBundle(jar)).isFalse();
+        assertThat(cache.getHeaders(new File(root, "missing.jar"))).isNull();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File jar = createBundle(new File(root, "bundle.jar"), "org.acme.bundle");
+        File plain = new File(root, "plain.jar");
+        new ZipOutputStream(new FileOutputStream(plain)).close();
+        File storage = new File(root, "data/manifests");
+
+        ManifestCache cache = new ManifestCache();
+        cache.getHeaders(jar);
+        cache.getHeaders(plain);
+        cache.save(storage);
+        assertThat(storage).isFile();
+
+        ManifestCache reloaded = new ManifestCache();
+        reloaded.load(storage);
+        assertThat(reloaded.size()).isEqualTo(2);
+        assertThat(reloaded.getHeaders(jar)).containsEntry("Bundle-SymbolicName", "org.acme.bundle");
+        assertThat(reloaded.getHeaders(plain)).isNull();
+        assertThat(reloaded.getMissCount()).isEqualTo(0);
+
+        // Corrupted content is ignored.
+        FileUtils.writeStringToFile(storage, "garbage");
+        ManifestCache empty = new ManifestCache();
+        empty.load(storage);
+        assertThat(empty.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testHeaderNamesAreCaseInsensitive() throws IOException {
+        File jar = createBundle(new File(root, "lower.jar"), "bundle-symbolicname", "org.acme.lower");
+        File fragment = new File(root, "fragment.jar");
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("BUNDLE-SYMBOLICNAME", "org.acme.fragment");
+        manifest.getMainAttributes().putValue("fragment-host", "org.acme.lower");
+        new JarOutputStream(new FileOutputStream(fragment), manifest).close();
+
+        ManifestCache cache = new ManifestCache();
+        assertThat(cache.getHeaders(jar)).containsEntry("Bundle-SymbolicName", "org.acme.lower");
+        assertThat(cache.getHeaders(fragment)).containsEntry("Fragment-Host", "org.acme.lower");
+        assertThat(BundleHelper.isBundle(jar)).isTrue();
+        assertThat(BundleHelper.isFragment(fragment)).isTrue();
+
+        // Same thing once the headers come back from the persisted cache.
+        File storage = new File(root, "data/manifests");
+        cache.save(storage);
+        ManifestCache reloaded = new ManifestCache();
+        reloaded.load(storage);
+        assertThat(reloaded.getHeaders(jar)).containsEntry("Bundle-SymbolicName", "org.acme.lower");
+        assertThat(reloaded.getHeaders(fragment)).containsEntry("Fragment-Host", "org.acme.lower");
+        assertThat(reloaded.getMissCount()).isEqualTo(0);
+    }
+
+    private File createBundle(File file, String symbolicName) throws IOException {
+        return createBundle(file, "Bundle-SymbolicName", symbolicName);
+    }
+
+    private File createBundle(File file, String header, String symbolicName) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Bundle-ManifestVersion", "2");
+        manifest.getMainAttributes().putValue(header, symbolicName);
+        new JarOutputStream(new FileOutputStream(file), manifest).close();
+        return file;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Checks the behavior of the {@link ManifestReader}.
+ */
+public class ManifestReaderTest {
+
+    private static final String MANIFEST = "Manifest-Version: 1.0\r\n" +
+            "Bundle-ManifestVersion: 2\r\n" +
+            "Bundle-SymbolicName: org.acme.bundle\r\n" +
+            "Import-Package: org.acme.api;version=\"[1.0,2.0)\",org.acme.spi;resolution:=optiona\r\n" +
+            " l\r\n" +
+            "\r\n" +
+            "Name: org/acme/Foo.class\r\n" +
+            "SHA-256-Digest: abcd\r\n" +
+            "\r\n";
+
+    private File root;
+
+    @Before
+    public void setUp() {
+        root = new File("target/test-data/manifest-reader");
+        FileUtils.deleteQuietly(root);
+        root.mkdirs();
+    }
+
+    @Test
+    public void testDeflatedManifest() throws IOException {
+        File jar = createJar("deflated.jar", true, 10, false, null);
+        Map<String, String> headers = ManifestReader.read(jar);
+        assertThat(headers).containsEntry("Bundle-SymbolicName", "org.acme.bundle")
+                .containsEntry("Import-Package", "org.acme.api;version=\"[1.0,2.0)\",org.acme.spi;resolution:=optional")
+                .doesNotContainKey("Name").doesNotContainKey("SHA-256-Digest");
+        assertThat(headers).isEqualTo(readWithJarFile(jar));
+    }
+
+    @Test
+    public void testStoredManifestAtTheEndOfALargeArchive() throws IOException {
+        File jar = createJar("stored.jar", false, 5000, true, "a comment");
+        Map<String, String> headers = ManifestReader.read(jar);
+        assertThat(headers).containsEntry("Bundle-SymbolicName", "org.acme.bundle");
+        assertThat(headers).isEqualTo(readWithJarFile(jar));
+    }
+
+    @Test
+    public void testArchiveWithoutManifest() throws IOException {
+        File jar = new File(root, "plain.jar");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        out.putNextEntry(new ZipEntry("readme.txt"));
+        out.write("hello".getBytes("UTF-8"));
+        out.close();
+        assertThat(ManifestReader.read(jar)).isNull();
+    }
+
+    @Test
+    public void testArchiveWithPrependedData() throws IOException {
+        File jar = createJar("archive.jar", true, 10, false, null);
+        File executable = new File(root, "executable.jar");
+        FileUtils.writeStringToFile(executable, "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n");
+        FileUtils.writeByteArrayToFile(executable, FileUtils.readFileToByteArray(jar), true);
+
+        Map<String, String> headers = ManifestReader.read(executable);
+        assertThat(headers).containsEntry("Bundle-SymbolicName", "org.acme.bundle");
+        assertThat(headers).isEqualTo(readWithJarFile(jar));
+    }
+
+    @Test
+    public void testInvalidArchive() throws IOException {
+        File file = new File(root, "invalid.jar");
+        FileUtils.writeStringToFile(file, "this is not a zip archive");
+        try {
+            ManifestReader.read(file);
+            fail("IOException expected");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+
+    private Map<String, String> readWithJarFile(File file) throws IOException {
+        JarFile jar = new JarFile(file);
+        try {
+            Map<String, String> headers = new HashMap<String, String>();
+            for (Map.Entry<Object, Object> entry : jar.getManifest().getMainAttributes().entrySet()) {
+                headers.put(entry.getKey().toString(), (String) entry.getValue());
+            }
+            return headers;
+        } finally {
+            jar.close();
+        }
+    }
+
+    private File createJar(String name, boolean deflated, int entries, boolean manifestLast, String comment)
+            throws IOException {
+        File file = new File(root, name);
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        if (comment != null) {
+            out.setComment(comment);
+        }
+        if (!manifestLast) {
+            writeManifest(out, deflated);
+        }
+        for (int i = 0; i < entries; i++) {
+            out.putNextEntry(new ZipEntry("org/acme/some/quite/long/package/name/Entry" + i + ".class"));
+            out.write(new byte[]{(byte) i});
+            out.closeEntry();
+        }
+        if (manifestLast) {
+            writeManifest(out, deflated);
+        }
+        out.close();
+        return file;
+    }
+
+    private void writeManifest(ZipOutputStream out, boolean deflated) throws IOException {
+        byte[] content = MANIFEST.getBytes("UTF-8");
+        ZipEntry entry = new ZipEntry(JarFile.MANIFEST_NAME);
+        if (!deflated) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+    }
+}
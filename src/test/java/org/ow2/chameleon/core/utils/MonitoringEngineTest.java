@@ -0,0 +1,173 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link MonitoringEngine}.
+ */
+public class MonitoringEngineTest {
+
+    private File root;
+    private MonitoringEngine engine;
+
+    @Before
+    public void setUp() {
+        root = new File("target/test-data/engine");
+        FileUtils.deleteQuietly(root);
+        root.mkdirs();
+        engine = new MonitoringEngine(1);
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testSpread() {
+        assertThat(MonitoringEngine.spread(0)).isEqualTo(0.0);
+        assertThat(MonitoringEngine.spread(1)).isEqualTo(0.5);
+        assertThat(MonitoringEngine.spread(2)).isEqualTo(0.25);
+        assertThat(MonitoringEngine.spread(3)).isEqualTo(0.75);
+        assertThat(MonitoringEngine.spread(4)).isEqualTo(0.125);
+    }
+
+    @Test
+    public void testSeveralDirectoriesShareTheSameThread() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        List<AlterationMonitor> monitors = new ArrayList<AlterationMonitor>();
+        for (int i = 0; i < 10; i++) {
+            File directory = new File(root, "dir-" + i);
+            directory.mkdirs();
+            FileAlterationObserver observer = new FileAlterationObserver(directory, TrueFileFilter.INSTANCE);
+            observer.addListener(new FileAlterationListenerAdaptor() {
+                @Override
+                public void onFileCreate(File file) {
+                    created.incrementAndGet();
+                }
+            });
+            AlterationMonitor monitor = new PollingAlterationMonitor(engine, directory, 10L, observer);
+            monitor.start();
+            monitors.add(monitor);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            FileUtils.writeStringToFile(new File(root, "dir-" + i + "/file"), "a");
+        }
+
+        int attempts = 0;
+        while (created.get() < 10 && attempts < 500) {
+            Thread.sleep(10);
+            attempts++;
+        }
+        assertThat(created.get()).isEqualTo(10);
+        assertThat(engine.getScheduledTaskCount()).isEqualTo(10);
+        assertThat(countThreads(MonitorThreadFactory.PREFIX + "scheduler")).isEqualTo(1);
+
+        for (AlterationMonitor monitor : monitors) {
+            monitor.stop();
+        }
+        // A check in progress is not interrupted, wait until it completes.
+        attempts = 0;
+        while (engine.getScheduledTaskCount() > 0 && attempts < 500) {
+            Thread.sleep(10);
+            attempts++;
+        }
+        assertThat(engine.getScheduledTaskCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testStopWaitsForTheCheckInProgress() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final CountDownLatch checking = new CountDownLatch(1);
+        File directory = new File(root, "slow");
+        directory.mkdirs();
+        FileAlterationObserver observer = new FileAlterationObserver(directory, TrueFileFilter.INSTANCE);
+        observer.addListener(new FileAlterationListenerAdaptor() {
+            @Override
+            public void onFileCreate(File file) {
+                checking.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                created.incrementAndGet();
+            }
+        });
+        AlterationMonitor monitor = new PollingAlterationMonitor(engine, directory, 10L, observer);
+        monitor.start();
+
+        FileUtils.writeStringToFile(new File(directory, "file1"), "a");
+        FileUtils.writeStringToFile(new File(directory, "file2"), "b");
+        assertThat(checking.await(5, TimeUnit.SECONDS)).isTrue();
+        monitor.stop();
+        // No event once stopped.
+        assertThat(created.get()).isEqualTo(2);
+        FileUtils.writeStringToFile(new File(directory, "file3"), "c");
+        Thread.sleep(100);
+        assertThat(created.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testOnlyThePeriodicTasksAreCounted() throws Exception {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                // Nothing to do.
+            }
+        };
+        ScheduledFuture<?> scan = engine.schedule(task, 10000L);
+        engine.delay(task, 10000L);
+        engine.execute(task);
+        assertThat(engine.getScheduledTaskCount()).isEqualTo(1);
+
+        scan.cancel(false);
+        assertThat(engine.getScheduledTaskCount()).isEqualTo(0);
+    }
+
+    private int countThreads(String name) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name) && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
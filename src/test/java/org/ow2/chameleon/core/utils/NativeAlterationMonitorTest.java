@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link NativeAlterationMonitor}.
+ */
+public class NativeAlterationMonitorTest {
+
+    private File directory;
+    private MonitoringEngine engine;
+    private NativeAlterationMonitor monitor;
+    private SpyingListener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new File("target/test-data/native");
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        listener = new SpyingListener();
+        FileAlterationObserver observer = new FileAlterationObserver(directory, TrueFileFilter.INSTANCE);
+        observer.addListener(listener);
+        engine = new MonitoringEngine(1);
+        monitor = new NativeAlterationMonitor(engine, directory, 10L, observer);
+        monitor.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        monitor.stop();
+        engine.shutdown();
+    }
+
+    @Test
+    public void testFileDynamics() throws Exception {
+        File file = new File(directory, "file1");
+        FileUtils.writeStringToFile(file, "a");
+        waitFor(listener.created, 1);
+        assertThat(listener.created).hasSize(1);
+        assertThat(listener.created.get(0).getName()).isEqualTo("file1");
+
+        FileUtils.writeStringToFile(file, "bb");
+        waitFor(listener.changed, 1);
+        assertThat(listener.changed.get(0).getName()).isEqualTo("file1");
+
+        FileUtils.forceDelete(file);
+        waitFor(listener.deleted, 1);
+        assertThat(listener.deleted).hasSize(1);
+        assertThat(listener.deleted.get(0).getName()).isEqualTo("file1");
+    }
+
+    @Test
+    public void testFilesInNewSubDirectory() throws Exception {
+        File sub = new File(directory, "sub");
+        sub.mkdirs();
+        FileUtils.writeStringToFile(new File(sub, "file1"), "a");
+        waitFor(listener.created, 1);
+        assertThat(listener.created.get(0).getName()).isEqualTo("file1");
+
+        // The new directory must be watched too.
+        FileUtils.writeStringToFile(new File(sub, "file2"), "a");
+        waitFor(listener.created, 2);
+        assertThat(listener.created).hasSize(2);
+        assertThat(listener.created.get(1).getName()).isEqualTo("file2");
+    }
+
+    private void waitFor(List<File> files, int size) throws InterruptedException {
+        int attempts = 0;
+        while (files.size() < size && attempts < 500) {
+            Thread.sleep(10);
+            attempts++;
+        }
+        // Notifications may be received while the file is being written, so more events may be received.
+        assertThat(files.size()).isGreaterThanOrEqualTo(size);
+    }
+
+    private static class SpyingListener extends FileAlterationListenerAdaptor {
+
+        public final List<File> created = new CopyOnWriteArrayList<File>();
+        public final List<File> changed = new CopyOnWriteArrayList<File>();
+        public final List<File> deleted = new CopyOnWriteArrayList<File>();
+
+        @Override
+        public void onFileCreate(File file) {
+            created.add(file);
+        }
+
+        @Override
+        public void onFileChange(File file) {
+            changed.add(file);
+        }
+
+        @Override
+        public void onFileDelete(File file) {
+            deleted.add(file);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link PackageScanCache}.
+ */
+public class PackageScanCacheTest {
+
+    private File root;
+
+    @Before
+    public void setUp() {
+        root = new File("target/test-data/package-scans");
+        FileUtils.deleteQuietly(root);
+        root.mkdirs();
+    }
+
+    @Test
+    public void testUnchangedJarsAreScannedOnce() throws IOException {
+        File jar = createJar(new File(root, "acme-1.0.0.jar"), "org/acme/A.class", "org/acme/impl/B.class");
+        PackageScanCache cache = new PackageScanCache();
+
+        assertThat(cache.getPackages(Collections.singleton(jar), 1))
+                .containsOnly(new Pckg("org.acme", "1.0.0"), new Pckg("org.acme.impl", "1.0.0"));
+        assertThat(cache.getPackages(Collections.singleton(jar), 1)).hasSize(2);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+
+        // Changing the file invalidates the entry.
+        createJar(jar, "org/acme/A.class", "org/acme/api/C.class");
+        jar.setLastModified(jar.lastModified() - 10000);
+        assertThat(cache.getPackages(Collections.singleton(jar), 1))
+                .containsOnly(new Pckg("org.acme", "1.0.0"), new Pckg("org.acme.api", "1.0.0"));
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testChangedJarsAreScannedInParallel() throws IOException {
+        List<File> jars = new ArrayList<File>();
+        for (int i = 0; i < 10; i++) {
+            jars.add(createJar(new File(root, "lib" + i + "-2.0.jar"), "org/lib" + i + "/A.class"));
+        }
+        PackageScanCache cache = new PackageScanCache();
+        assertThat(cache.getPackages(jars, 4)).hasSize(10).contains(new Pckg("org.lib3", "2.0.0"));
+        assertThat(cache.getMissCount()).isEqualTo(10);
+        assertThat(cache.size()).isEqualTo(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidJar() throws IOException {
+        File jar = new File(root, "invalid.jar");
+        FileUtils.writeStringToFile(jar, "not a jar");
+        File valid = createJar(new File(root, "valid.jar"), "org/acme/A.class");
+        new PackageScanCache().getPackages(Arrays.asList(valid, jar), 2);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File jar = createJar(new File(root, "acme-1.0.0.jar"), "org/acme/A.class");
+        File deleted = createJar(new File(root, "deleted.jar"), "org/deleted/A.class");
+        File storage = new File(root, "cache/packages.cache");
+
+        PackageScanCache cache = new PackageScanCache();
+        cache.getPackages(Arrays.asList(jar, deleted), 1);
+        FileUtils.forceDelete(deleted);
+        cache.save(storage);
+        assertThat(storage).isFile();
+
+        PackageScanCache reloaded = new PackageScanCache();
+        reloaded.load(storage);
+        assertThat(reloaded.size()).isEqualTo(1);
+        assertThat(reloaded.getPackages(Collections.singleton(jar), 1)).containsOnly(new Pckg("org.acme", "1.0.0"));
+        assertThat(reloaded.getMissCount()).isEqualTo(0);
+        assertThat(reloaded.getHitCount()).isEqualTo(1);
+
+        // Corrupted storage are ignored.
+        FileUtils.writeStringToFile(storage, "garbage");
+        PackageScanCache empty = new PackageScanCache();
+        empty.load(storage);
+        assertThat(empty.size()).isEqualTo(0);
+    }
+
+    private File createJar(File file, String... entries) throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.write(0);
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
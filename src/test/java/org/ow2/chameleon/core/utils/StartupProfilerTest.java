@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.ow2.chameleon.core.services.StartupPhase;
+import org.ow2.chameleon.core.services.StartupProfile;
+
+import java.io.File;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the behavior of the {@link StartupProfiler}.
+ */
+public class StartupProfilerTest {
+
+    @Test
+    public void testPhasesAreSortedByStartTime() throws InterruptedException {
+        StartupProfiler profiler = new StartupProfiler();
+        long outer = profiler.begin();
+        long inner = profiler.begin();
+        Thread.sleep(2);
+        profiler.end("test", "inner", inner);
+        profiler.end("test", "outer", outer);
+
+        List<StartupPhase> phases = profiler.getPhases();
+        assertThat(phases).hasSize(2);
+        assertThat(phases.get(0).name).isEqualTo("outer");
+        assertThat(phases.get(1).name).isEqualTo("inner");
+        assertThat(phases.get(0).duration).isGreaterThanOrEqualTo(phases.get(1).duration);
+        assertThat(phases.get(1).duration).isGreaterThanOrEqualTo(2000000L);
+        assertThat(phases.get(0).thread).isEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void testNothingIsRecordedOnceCompleted() {
+        StartupProfiler profiler = new StartupProfiler();
+        profiler.end("test", "before", profiler.begin());
+        profiler.complete();
+        profiler.end("test", "after", profiler.begin());
+
+        assertThat(profiler.isCompleted()).isTrue();
+        assertThat(profiler.getPhases()).hasSize(1);
+    }
+
+    @Test
+    public void testTheNumberOfPhasesIsBounded() {
+        StartupProfiler profiler = new StartupProfiler();
+        for (int i = 0; i < StartupProfiler.MAX_PHASES + 10; i++) {
+            profiler.end("test", "phase-" + i, profiler.begin());
+        }
+        assertThat(profiler.getPhases()).hasSize(StartupProfiler.MAX_PHASES);
+    }
+
+    @Test
+    public void testReports() throws Exception {
+        File base = new File("target/test/profile/startup");
+        FileUtils.deleteQuietly(base.getParentFile());
+        StartupProfiler profiler = new StartupProfiler();
+        profiler.end("bundle.start", "a,\"b\"", profiler.begin());
+        profiler.write(base);
+
+        String json = FileUtils.readFileToString(new File("target/test/profile/startup.json"), "UTF-8");
+        assertThat(json).contains("\"startTime\": " + profiler.getStartTime());
+        assertThat(json).contains("\"category\": \"bundle.start\", \"name\": \"a,\\\"b\\\"\"");
+        List<String> csv = FileUtils.readLines(new File("target/test/profile/startup.csv"), "UTF-8");
+        assertThat(csv).hasSize(2);
+        assertThat(csv.get(0)).isEqualTo("category,name,thread,start,duration");
+        assertThat(csv.get(1)).startsWith("bundle.start,\"a,\"\"b\"\"\",");
+    }
+
+    @Test
+    public void testProfileLookup() {
+        BundleContext context = mock(BundleContext.class);
+        StartupProfile missing = StartupProfiler.getProfile(context);
+        assertThat(missing.isCompleted()).isTrue();
+        missing.end("test", "ignored", missing.begin());
+        assertThat(missing.getPhases()).isEmpty();
+
+        StartupProfiler profiler = new StartupProfiler();
+        @SuppressWarnings("unchecked")
+        ServiceReference<StartupProfile> reference = mock(ServiceReference.class);
+        when(context.getServiceReference(StartupProfile.class)).thenReturn(reference);
+        when(context.getService(reference)).thenReturn(profiler);
+        assertThat(StartupProfiler.getProfile(context)).isSameAs(profiler);
+    }
+}
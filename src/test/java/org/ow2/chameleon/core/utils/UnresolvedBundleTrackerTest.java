@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2014 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+
+import java.util.Collections;
+import java.util.Hashtable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the behavior of the {@link UnresolvedBundleTracker}.
+ */
+public class UnresolvedBundleTrackerTest {
+
+    @Test
+    public void testCandidatesAreSelectedByRequirements() {
+        UnresolvedBundleTracker tracker = new UnresolvedBundleTracker();
+        Bundle importer = bundle("importer", null, "org.acme.api,org.acme.opt;resolution:=optional", null,
+                Bundle.INSTALLED);
+        Bundle requirer = bundle("requirer", null, null, "provider", Bundle.INSTALLED);
+        Bundle other = bundle("other", null, null, null, Bundle.RESOLVED);
+        Bundle active = bundle("active", null, "org.acme.api", null, Bundle.ACTIVE);
+        tracker.update(importer);
+        tracker.update(requirer);
+        tracker.update(other);
+        tracker.update(active);
+        assertThat(tracker.size()).isEqualTo(3);
+
+        Bundle api = bundle("api", "org.acme.api;version=1.0", null, null, Bundle.ACTIVE);
+        assertThat(tracker.getCandidates(Collections.singleton(api))).containsExactly(importer, other);
+
+        Bundle provider = bundle("provider", null, null, null, Bundle.ACTIVE);
+        assertThat(tracker.getCandidates(Collections.singleton(provider))).containsExactly(requirer, other);
+
+        // Optional imports are not requirements.
+        Bundle opt = bundle("opt", "org.acme.opt", null, null, Bundle.ACTIVE);
+        assertThat(tracker.getCandidates(Collections.singleton(opt))).containsExactly(other);
+    }
+
+    @Test
+    public void testStartAttemptsAreCounted() throws BundleException {
+        UnresolvedBundleTracker tracker = new UnresolvedBundleTracker();
+        Bundle failing = bundle("failing", null, "org.acme.api", null, Bundle.INSTALLED);
+        doThrow(new BundleException("unresolved")).when(failing).start();
+        Bundle starting = bundle("starting", null, "org.acme.api", null, Bundle.INSTALLED);
+        tracker.update(failing);
+        tracker.update(starting);
+
+        assertThat(tracker.start(failing)).isFalse();
+        assertThat(tracker.start(starting)).isTrue();
+
+        assertThat(tracker.getBundles()).containsExactly(failing);
+        assertThat(tracker.getStartAttemptCount()).isEqualTo(2);
+        assertThat(tracker.getFailedStartCount()).isEqualTo(1);
+
+        tracker.remove(failing);
+        assertThat(tracker.size()).isEqualTo(0);
+        Bundle api = bundle("api", "org.acme.api", null, null, Bundle.ACTIVE);
+        assertThat(tracker.getCandidates(Collections.singleton(api))).isEmpty();
+    }
+
+    private Bundle bundle(String name, String exports, String imports, String requires, int state) {
+        Hashtable<String, String> headers = new Hashtable<String, String>();
+        if (exports != null) {
+            headers.put(Constants.EXPORT_PACKAGE, exports);
+        }
+        if (imports != null) {
+            headers.put(Constants.IMPORT_PACKAGE, imports);
+        }
+        if (requires != null) {
+            headers.put(Constants.REQUIRE_BUNDLE, requires);
+        }
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getSymbolicName()).thenReturn(name);
+        when(bundle.getHeaders()).thenReturn(headers);
+        when(bundle.getState()).thenReturn(state);
+        return bundle;
+    }
+}
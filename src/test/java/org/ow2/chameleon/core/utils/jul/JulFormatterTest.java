@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * OW2 Chameleon - Core
+ * %%
+ * Copyright (C) 2009 - 2015 OW2 Chameleon
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.ow2.chameleon.core.utils.jul;
+
+import org.junit.Test;
+
+import java.text.MessageFormat;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the JUL formatter produces the same messages as {@link MessageFormat}.
+ */
+public class JulFormatterTest {
+
+    private static final String[] PATTERNS = {
+            "",
+            "no placeholder",
+            "{0}",
+            "hello {0}",
+            "test {1}, {0}",
+            "{0}{0}{1} and } and {2}",
+            "missing {3}",
+            "leading zero {01}",
+            "quoted '{0}' and it''s",
+            "typed {0,number,#.##} {1,date}",
+            "spaced { 0 }",
+            "nested {{0}}",
+            "unmatched } brace {0}"
+    };
+
+    private static final Object[][] ARGUMENTS = {
+            null,
+            new Object[0],
+            new Object[]{"a"},
+            new Object[]{"a", null, new StringBuilder("sb")},
+            new Object[]{1234.5678, new Date(0), "c"},
+            new Object[]{new Object[]{"x"}, 'c', Boolean.TRUE}
+    };
+
+    @Test
+    public void testSameOutputAsMessageFormat() {
+        for (String pattern : PATTERNS) {
+            for (Object[] arguments : ARGUMENTS) {
+                String expected;
+                try {
+                    expected = MessageFormat.format(pattern, arguments);
+                } catch (IllegalArgumentException e) {
+                    // Typed placeholders reject the arguments of other types.
+                    expected = e.getMessage();
+                }
+                String actual;
+                try {
+                    actual = JulFormatter.format(pattern, arguments);
+                } catch (IllegalArgumentException e) {
+                    actual = e.getMessage();
+                }
+                assertThat(actual).as(pattern).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidPatternsAreRejected() {
+        for (String pattern : new String[]{"open {0", "empty {}", "name {foo}"}) {
+            try {
+                JulFormatter.format(pattern, "a");
+                throw new AssertionError("IllegalArgumentException expected for " + pattern);
+            } catch (IllegalArgumentException e) {
+                // Expected, as with MessageFormat.
+            }
+        }
+    }
+
+    @Test
+    public void testPatternsAreCached() {
+        assertThat(JulFormatter.parse("hello {0}")).isNotSameAs(JulFormatter.parse("'quoted'"));
+        for (int i = 0; i < JulFormatter.MAX_PATTERNS * 2; i++) {
+            assertThat(JulFormatter.format("message " + i + " {0}", "a")).isEqualTo("message " + i + " a");
+        }
+        assertThat(JulFormatter.getCachedPatternCount()).isLessThanOrEqualTo(JulFormatter.MAX_PATTERNS);
+    }
+}
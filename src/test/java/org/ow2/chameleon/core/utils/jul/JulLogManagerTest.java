@@ -33,6 +33,7 @@ import org.slf4j.ILoggerFactory;
 import org.slf4j.impl.StaticLoggerBinder;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -120,6 +121,32 @@ public class JulLogManagerTest {
         assertEquals(java.util.logging.Level.FINEST, julLogger.getLevel());
     }
 
+    @Test
+    public void loggersAreCached() {
+        JulLogManager manager = new JulLogManager();
+        java.util.logging.Logger julLogger = manager.getLogger("org.acme.cached");
+        assertThat(manager.getLogger("org.acme.cached")).isSameAs(julLogger);
+        assertThat(Collections.list(manager.getLoggerNames())).contains("org.acme.cached");
+        assertThat(manager.addLogger(julLogger)).isFalse();
+    }
+
+    @Test
+    public void cachedLevelsFollowTheParentLevel() {
+        JulLogManager manager = new JulLogManager();
+        java.util.logging.Logger julLogger = manager.getLogger("org.acme.levels.Child");
+        Logger parent = loggerContext.getLogger("org.acme.levels");
+
+        parent.setLevel(Level.ERROR);
+        assertThat(julLogger.isLoggable(java.util.logging.Level.WARNING)).isFalse();
+        assertThat(julLogger.isLoggable(java.util.logging.Level.SEVERE)).isTrue();
+
+        parent.setLevel(Level.DEBUG);
+        assertThat(julLogger.isLoggable(java.util.logging.Level.FINE)).isTrue();
+        assertThat(julLogger.isLoggable(java.util.logging.Level.FINEST)).isFalse();
+
+        parent.setLevel(null);
+    }
+
     static class TestFilter extends Filter<ILoggingEvent> {
 
         String msg;